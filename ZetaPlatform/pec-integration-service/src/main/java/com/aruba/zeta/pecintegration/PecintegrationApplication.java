@@ -4,11 +4,13 @@ import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
 import org.springframework.grpc.client.ImportGrpcClients;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 import com.aruba.zeta.integrtoken.grpc.IntegrationTokenServiceGrpc;
 
 @SpringBootApplication
 @ConfigurationPropertiesScan
+@EnableScheduling
 @ImportGrpcClients(target = "user-auth", types = IntegrationTokenServiceGrpc.IntegrationTokenServiceBlockingStub.class)
 public class PecintegrationApplication {
 
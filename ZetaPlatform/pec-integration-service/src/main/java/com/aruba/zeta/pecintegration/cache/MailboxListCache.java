@@ -0,0 +1,135 @@
+package com.aruba.zeta.pecintegration.cache;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import com.aruba.zeta.pecintegration.client.resilience.ArubaCallDispatcher;
+import com.aruba.zeta.pecintegration.client.resilience.ArubaCallPriority;
+import com.aruba.zeta.pecintegration.client.rest.ArubaPecApiClient;
+import com.aruba.zeta.pecintegration.config.PecMailboxCacheProperties;
+import com.aruba.zeta.pecintegration.dto.ArubaMailboxDto;
+import com.aruba.zeta.pecintegration.dto.ArubaMailboxListing;
+import com.aruba.zeta.pecintegration.service.PecAccessTokenService;
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Refresh-ahead, per-user cache of Aruba mailbox lists.
+ *
+ * <p>An entry older than {@code pec.mailbox-cache.refresh-after-ms} is still served, and
+ * the read triggers a background revalidation. The revalidation sends the entry's
+ * {@code ETag} (or {@code Last-Modified}) back to Aruba, so an unchanged list costs a
+ * {@code 304} instead of a full body. If revalidation keeps failing, the entry is dropped
+ * after {@code pec.mailbox-cache.expire-after-ms} and the next read waits for Aruba.
+ * Hit/miss/eviction counters are published under the {@code pec.mailboxes} cache name.
+ */
+@Slf4j
+@Component
+public class MailboxListCache {
+
+    private final boolean enabled;
+    private final ArubaPecApiClient arubaPecApiClient;
+    private final ArubaCallDispatcher arubaCallDispatcher;
+    private final PecAccessTokenService pecAccessTokenService;
+    private final LoadingCache<String, ArubaMailboxListing> cache;
+
+    private final MeterRegistry meterRegistry;
+
+    public MailboxListCache(
+            PecMailboxCacheProperties props,
+            ArubaPecApiClient arubaPecApiClient,
+            ArubaCallDispatcher arubaCallDispatcher,
+            PecAccessTokenService pecAccessTokenService,
+            MeterRegistry meterRegistry,
+            @Qualifier("applicationTaskExecutor") Executor executor) {
+        this.enabled = props.isEnabled();
+        this.arubaPecApiClient = arubaPecApiClient;
+        this.arubaCallDispatcher = arubaCallDispatcher;
+        this.pecAccessTokenService = pecAccessTokenService;
+        this.meterRegistry = meterRegistry;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(props.getMaximumSize())
+                .refreshAfterWrite(Duration.ofMillis(props.getRefreshAfterMs()))
+                .expireAfterWrite(Duration.ofMillis(props.getExpireAfterMs()))
+                .executor(executor)
+                .recordStats()
+                .build(new Loader());
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "pec.mailboxes");
+    }
+
+    /**
+     * Returns the user's mailboxes, from the cache when possible.
+     *
+     * @param userId the platform user UUID
+     * @return the mailboxes
+     */
+    public List<ArubaMailboxDto> get(String userId) {
+        if (!enabled) {
+            return fetch(userId, null, ArubaCallPriority.INTERACTIVE).mailboxes();
+        }
+        return cache.get(userId).mailboxes();
+    }
+
+    /**
+     * Removes the user's cached mailboxes, e.g. after a PEC account was (re)linked.
+     *
+     * @param userId the platform user UUID
+     */
+    public void evict(String userId) {
+        cache.invalidate(userId);
+    }
+
+    private ArubaMailboxListing fetch(String userId, ArubaMailboxListing previous, ArubaCallPriority priority) {
+        String accessToken = pecAccessTokenService.getValidAccessToken(userId);
+        return arubaCallDispatcher.call(priority, userId, () -> previous == null
+                ? arubaPecApiClient.getMailboxes(accessToken, null, null)
+                : arubaPecApiClient.getMailboxes(accessToken, previous.etag(), previous.lastModified()));
+    }
+
+    private void countRevalidation(String result) {
+        Counter.builder("pec.mailboxes.revalidations")
+                .description("Background revalidations of cached mailbox lists by outcome")
+                .tag("result", result)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    // Caffeine loader
+
+    private final class Loader implements CacheLoader<String, ArubaMailboxListing> {
+
+        @Override
+        public ArubaMailboxListing load(String userId) {
+            return fetch(userId, null, ArubaCallPriority.INTERACTIVE);
+        }
+
+        @Override
+        public ArubaMailboxListing reload(String userId, ArubaMailboxListing previous) {
+            ArubaMailboxListing fresh;
+            try {
+                fresh = fetch(userId, previous, ArubaCallPriority.BACKGROUND);
+            } catch (RuntimeException e) {
+                // Caffeine keeps serving the previous list until it expires
+                countRevalidation("error");
+                log.debug("Revalidating mailboxes of user {} failed: {}", userId, e.getMessage());
+                throw e;
+            }
+            if (fresh.notModified()) {
+                countRevalidation("not_modified");
+                return previous;
+            }
+            countRevalidation(previous.etag() == null && previous.lastModified() == null ? "unconditional" : "modified");
+            return fresh;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.aruba.zeta.pecintegration.cache;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import com.aruba.zeta.pec.grpc.GetMessagesResponse;
+import com.aruba.zeta.pecintegration.config.PecMessagePrefetchProperties;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.grpc.Context;
+import io.grpc.Deadline;
+import io.grpc.Status;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Short-lived, byte-bounded cache of speculatively prefetched GetMessages pages.
+ *
+ * <p>Entries are weighed by their serialized protobuf size so the cache never holds more
+ * than {@code pec.messages.prefetch.max-bytes}. A lookup that lands on a prefetch still in
+ * flight waits for it instead of issuing a duplicate Aruba request, but only briefly: the
+ * prefetch runs at background priority and may be queued behind other calls, so after
+ * {@code pec.messages.prefetch.max-wait-ms} (or the caller's deadline, if sooner) the
+ * caller fetches the page itself.
+ */
+@Slf4j
+@Component
+public class MessagePageCache {
+
+    private final boolean enabled;
+    private final long maxWaitNanos;
+    private final Executor executor;
+    private final AsyncCache<MessagePageKey, GetMessagesResponse> cache;
+
+    public MessagePageCache(
+            PecMessagePrefetchProperties props,
+            MeterRegistry meterRegistry,
+            @Qualifier("applicationTaskExecutor") Executor executor) {
+        this.enabled = props.isEnabled();
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(props.getMaxWaitMs());
+        this.executor = executor;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(props.getMaxBytes())
+                .weigher((MessagePageKey key, GetMessagesResponse page) -> page.getSerializedSize())
+                .expireAfterWrite(Duration.ofMillis(props.getTtlMs()))
+                .executor(executor)
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache.synchronous(), "pec.message-pages");
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns a prefetched page, waiting a bounded time for it if the prefetch is still in flight.
+     *
+     * @param key page identifier
+     * @return the page, or empty if it was never prefetched, expired, failed or is not ready in time
+     */
+    public Optional<GetMessagesResponse> get(MessagePageKey key) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        CompletableFuture<GetMessagesResponse> future = cache.getIfPresent(key);
+        if (future == null) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(future.get(waitBudgetNanos(), TimeUnit.NANOSECONDS));
+        } catch (TimeoutException e) {
+            log.debug("Prefetch of page {} of mailbox {} still in flight: not waiting", key.page(), key.mailboxId());
+            return Optional.empty();
+        } catch (ExecutionException e) {
+            log.debug("Prefetched page {} of mailbox {} failed: {}",
+                    key.page(), key.mailboxId(), e.getCause().getMessage());
+            return Optional.empty();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw Status.CANCELLED.withDescription("Interrupted while waiting for a prefetched page").asRuntimeException();
+        }
+    }
+
+    private long waitBudgetNanos() {
+        long budget = maxWaitNanos;
+        Deadline deadline = Context.current().getDeadline();
+        if (deadline != null) {
+            budget = Math.min(budget, deadline.timeRemaining(TimeUnit.NANOSECONDS));
+        }
+        return Math.max(budget, 0);
+    }
+
+    /**
+     * Loads the page in the background unless it is already cached or being loaded. The
+     * load runs under a fork of the caller's {@link Context}: it keeps the context's values
+     * but deliberately outlives the call that triggered it, whose cancellation or deadline
+     * would otherwise abort it as soon as that call returned.
+     *
+     * @param key    page identifier
+     * @param loader fetches the page from Aruba
+     */
+    public void prefetch(MessagePageKey key, Supplier<GetMessagesResponse> loader) {
+        if (!enabled) {
+            return;
+        }
+        Executor detached = Context.current().fork().fixedContextExecutor(executor);
+        cache.get(key, (k, ignored) -> CompletableFuture.supplyAsync(loader, detached));
+    }
+}
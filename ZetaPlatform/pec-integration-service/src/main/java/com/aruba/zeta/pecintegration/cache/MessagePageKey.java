@@ -0,0 +1,31 @@
+package com.aruba.zeta.pecintegration.cache;
+
+import java.time.Instant;
+
+import com.aruba.zeta.pecintegration.mapper.PecMessageProjection;
+
+/**
+ * Identifies one page of a GetMessages listing. The user is part of the key so cached
+ * pages are never served across accounts.
+ *
+ * @param userId    platform user UUID
+ * @param mailboxId Aruba mailbox identifier
+ * @param startDate optional lower bound filter
+ * @param endDate   optional upper bound filter
+ * @param page      0-based page index
+ * @param pageSize  requested page size, or {@code null} for Aruba's default
+ * @param projection message fields the page was built with
+ */
+public record MessagePageKey(
+        String userId,
+        String mailboxId,
+        Instant startDate,
+        Instant endDate,
+        int page,
+        Integer pageSize,
+        PecMessageProjection projection) {
+
+    public MessagePageKey nextPage() {
+        return new MessagePageKey(userId, mailboxId, startDate, endDate, page + 1, pageSize, projection);
+    }
+}
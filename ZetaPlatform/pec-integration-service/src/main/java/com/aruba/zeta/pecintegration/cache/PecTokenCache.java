@@ -0,0 +1,151 @@
+package com.aruba.zeta.pecintegration.cache;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.stereotype.Component;
+
+import com.aruba.zeta.pecintegration.config.PecTokenCacheProperties;
+import com.aruba.zeta.pecintegration.dto.ServiceTokenDto;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Bounded, per-user cache of decrypted PEC access tokens.
+ *
+ * <p>Entries expire {@link #EXPIRY_BUFFER_SECONDS} before the token itself, the same
+ * margin used to decide whether a stored token must be refreshed, so a cache hit can be
+ * handed to the Aruba API without any further check. Hit/miss/eviction counters are
+ * published under the {@code pec.access-tokens} cache name.
+ *
+ * <p>Peers that refresh a token announce it ({@link #invalidateOlderThan}); the token's
+ * expiry orders its generations, so an older cached token is dropped and not cached again.
+ * Without announcements entries still expire with their token.
+ */
+@Slf4j
+@Component
+public class PecTokenCache {
+
+    /** Seconds before expiry at which a token is treated as expired. */
+    public static final long EXPIRY_BUFFER_SECONDS = 60;
+
+    private final boolean enabled;
+    private final Cache<String, ServiceTokenDto> cache;
+    /** Expiry of the newest token announced per user; kept until that token expires. */
+    private final Cache<String, Long> announcedExpiry;
+
+    public PecTokenCache(PecTokenCacheProperties props, MeterRegistry meterRegistry) {
+        this.enabled = props.isEnabled();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(props.getMaximumSize())
+                .expireAfter(new TokenExpiry())
+                .recordStats()
+                .build();
+        this.announcedExpiry = Caffeine.newBuilder()
+                .maximumSize(props.getMaximumSize())
+                .expireAfter(Expiry.writing((String userId, Long expiresAt) ->
+                        Duration.ofSeconds(Math.max(expiresAt - Instant.now().getEpochSecond(), 0))))
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "pec.access-tokens");
+    }
+
+    /**
+     * Returns the cached token for the user, if present and not within the expiry buffer.
+     *
+     * @param userId the platform user UUID
+     * @return the cached token, or empty on a miss
+     */
+    public Optional<ServiceTokenDto> get(String userId) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(cache.getIfPresent(userId));
+    }
+
+    /**
+     * Stores a token for the user. Tokens already inside the expiry buffer, or older than
+     * one a peer announced, are not cached.
+     *
+     * @param userId the platform user UUID
+     * @param token  the token to cache
+     */
+    public void put(String userId, ServiceTokenDto token) {
+        if (!enabled || isExpired(token.getExpiresAt())) {
+            return;
+        }
+        Long announced = announcedExpiry.getIfPresent(userId);
+        if (announced != null && token.getExpiresAt() < announced) {
+            log.debug("Not caching superseded PEC access token for user {}", userId);
+            return;
+        }
+        log.debug("Caching PEC access token for user {} until {}", userId, token.getExpiresAt());
+        cache.put(userId, token);
+    }
+
+    /**
+     * Removes any cached token for the user.
+     *
+     * @param userId the platform user UUID
+     */
+    public void evict(String userId) {
+        cache.invalidate(userId);
+    }
+
+    /**
+     * Applies a peer's notice that the user's token was replaced by one expiring at
+     * {@code expiresAt}: evicts an older cached token, and keeps older tokens out of the
+     * cache until then (such as one a concurrent lookup read just before the peer stored
+     * its new pair).
+     *
+     * @param userId    the platform user UUID
+     * @param expiresAt expiration timestamp of the new token (epoch seconds)
+     * @return {@code true} if a cached token was evicted
+     */
+    public boolean invalidateOlderThan(String userId, long expiresAt) {
+        announcedExpiry.asMap().merge(userId, expiresAt, Math::max);
+        boolean[] evicted = {false};
+        cache.asMap().computeIfPresent(userId, (id, cached) -> {
+            evicted[0] = cached.getExpiresAt() < expiresAt;
+            return evicted[0] ? null : cached;
+        });
+        return evicted[0];
+    }
+
+    /**
+     * Whether a token expiring at the given instant must be treated as expired.
+     *
+     * @param expiresAtEpochSecond token expiration timestamp (epoch seconds)
+     * @return {@code true} if the token is expired or within the expiry buffer
+     */
+    public static boolean isExpired(long expiresAtEpochSecond) {
+        return Instant.now().getEpochSecond() >= expiresAtEpochSecond - EXPIRY_BUFFER_SECONDS;
+    }
+
+    // Caffeine expiry policy
+
+    private static final class TokenExpiry implements Expiry<String, ServiceTokenDto> {
+
+        @Override
+        public long expireAfterCreate(String userId, ServiceTokenDto token, long currentTime) {
+            long seconds = token.getExpiresAt() - EXPIRY_BUFFER_SECONDS - Instant.now().getEpochSecond();
+            return TimeUnit.SECONDS.toNanos(Math.max(seconds, 0));
+        }
+
+        @Override
+        public long expireAfterUpdate(String userId, ServiceTokenDto token, long currentTime, long currentDuration) {
+            return expireAfterCreate(userId, token, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String userId, ServiceTokenDto token, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,335 @@
+package com.aruba.zeta.pecintegration.client.resilience;
+
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+import org.springframework.stereotype.Component;
+
+import com.aruba.zeta.pecintegration.config.ArubaDispatchProperties;
+
+import io.grpc.Context;
+import io.grpc.Deadline;
+import io.grpc.Status;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Admission control in front of {@link com.aruba.zeta.pecintegration.client.rest.ArubaPecApiClient}:
+ * at most {@code aruba.dispatch.max-concurrent-calls} Aruba calls run at once, and when
+ * the budget is exhausted the freed slots are shared fairly.
+ *
+ * <p>Slots go to the highest {@link ArubaCallPriority} with waiters, so interactive RPCs
+ * overtake background polling and bulk exports. Within a class, waiters are queued per
+ * user and served by deficit round robin: each turn a user earns
+ * {@code quantum × weight} credits and starts calls while its credit covers them, so a
+ * tenant with thousands of mailboxes gets the same share as a tenant with one (or its
+ * configured multiple) instead of a share proportional to its backlog.
+ *
+ * <p>A call waits at most until the caller's gRPC deadline, capped by
+ * {@code aruba.dispatch.max-queue-wait-ms}, then fails with {@code RESOURCE_EXHAUSTED}.
+ * The call itself runs on the caller's thread once admitted. A call whose tail is paced
+ * by the client rather than by Aruba, such as a streamed download, takes a {@link Slot}
+ * and gives it back once Aruba answered, so a slow client cannot hold a slot.
+ */
+@Slf4j
+@Component
+public class ArubaCallDispatcher {
+
+    /** Every call costs one credit; the quantum and weights set the share. */
+    private static final int CALL_COST = 1;
+
+    private final ArubaDispatchProperties props;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<ArubaCallPriority, DeficitRoundRobin> queues = new EnumMap<>(ArubaCallPriority.class);
+    private int inFlight;
+
+    private final Map<ArubaCallPriority, Timer> waitTimers = new EnumMap<>(ArubaCallPriority.class);
+    private final Map<ArubaCallPriority, Counter> rejections = new EnumMap<>(ArubaCallPriority.class);
+
+    public ArubaCallDispatcher(ArubaDispatchProperties props, MeterRegistry meterRegistry) {
+        this.props = props;
+        for (ArubaCallPriority priority : ArubaCallPriority.values()) {
+            DeficitRoundRobin queue = new DeficitRoundRobin();
+            queues.put(priority, queue);
+            String tag = priority.name().toLowerCase();
+            Gauge.builder("aruba.dispatch.queue.depth", queue, q -> q.size)
+                    .description("Aruba calls waiting for a dispatch slot")
+                    .tag("priority", tag)
+                    .register(meterRegistry);
+            waitTimers.put(priority, Timer.builder("aruba.dispatch.wait")
+                    .description("Time Aruba calls waited for a dispatch slot")
+                    .tag("priority", tag)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
+            rejections.put(priority, Counter.builder("aruba.dispatch.rejected")
+                    .description("Aruba calls that gave up waiting for a dispatch slot")
+                    .tag("priority", tag)
+                    .register(meterRegistry));
+        }
+        Gauge.builder("aruba.dispatch.in.flight", this, d -> d.inFlight)
+                .description("Aruba calls currently admitted")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Runs {@code call} once a dispatch slot is granted to it.
+     *
+     * @throws io.grpc.StatusRuntimeException {@code RESOURCE_EXHAUSTED} if no slot was
+     *                                        granted within the wait budget, {@code CANCELLED}
+     *                                        if interrupted while waiting
+     */
+    public <T> T call(ArubaCallPriority priority, String userId, Supplier<T> call) {
+        if (!props.isEnabled()) {
+            return call.get();
+        }
+        admit(priority, userId);
+        try {
+            return call.get();
+        } finally {
+            release();
+        }
+    }
+
+    public void run(ArubaCallPriority priority, String userId, Runnable call) {
+        call(priority, userId, () -> {
+            call.run();
+            return null;
+        });
+    }
+
+    /**
+     * Waits for a dispatch slot like {@link #call} and hands it to the caller, who releases
+     * it as soon as the part of the call that loads Aruba is over, and in any case when
+     * done (try-with-resources).
+     *
+     * @throws io.grpc.StatusRuntimeException as {@link #call}
+     */
+    public Slot acquire(ArubaCallPriority priority, String userId) {
+        if (!props.isEnabled()) {
+            return new Slot(() -> { });
+        }
+        admit(priority, userId);
+        return new Slot(this::release);
+    }
+
+    /**
+     * Takes a free dispatch slot without waiting, for optional extra work such as a hedged
+     * read: none is taken while the budget is exhausted or other calls are queued.
+     *
+     * @return the slot, or {@code null} if none is free
+     */
+    public Slot tryAcquire() {
+        if (!props.isEnabled()) {
+            return new Slot(() -> { });
+        }
+        lock.lock();
+        try {
+            if (inFlight >= props.getMaxConcurrentCalls() || !isIdle()) {
+                return null;
+            }
+            inFlight++;
+        } finally {
+            lock.unlock();
+        }
+        return new Slot(this::release);
+    }
+
+    /** A dispatch slot taken with {@link #acquire}; releasing it again has no effect. */
+    public static final class Slot implements AutoCloseable {
+
+        private final AtomicBoolean released = new AtomicBoolean();
+        private final Runnable onRelease;
+
+        private Slot(Runnable onRelease) {
+            this.onRelease = onRelease;
+        }
+
+        public void release() {
+            if (released.compareAndSet(false, true)) {
+                onRelease.run();
+            }
+        }
+
+        @Override
+        public void close() {
+            release();
+        }
+    }
+
+    private void admit(ArubaCallPriority priority, String userId) {
+        long startedAt = System.nanoTime();
+        lock.lock();
+        try {
+            if (inFlight < props.getMaxConcurrentCalls() && isIdle()) {
+                inFlight++;
+                waitTimers.get(priority).record(0, TimeUnit.NANOSECONDS);
+                return;
+            }
+            Waiter waiter = new Waiter(userId, lock.newCondition());
+            DeficitRoundRobin queue = queues.get(priority);
+            queue.add(waiter);
+
+            long remaining = waitBudgetNanos();
+            try {
+                while (!waiter.granted && remaining > 0) {
+                    remaining = waiter.signal.awaitNanos(remaining);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                if (!waiter.granted) {
+                    queue.remove(waiter);
+                    throw Status.CANCELLED.withDescription("Interrupted while queued for Aruba").asRuntimeException();
+                }
+            }
+            if (!waiter.granted) {
+                queue.remove(waiter);
+                rejections.get(priority).increment();
+                throw Status.RESOURCE_EXHAUSTED
+                        .withDescription("Aruba call budget exhausted: no slot within the caller's deadline")
+                        .asRuntimeException();
+            }
+            waitTimers.get(priority).record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void release() {
+        lock.lock();
+        try {
+            inFlight--;
+            Waiter next = nextWaiter();
+            if (next != null) {
+                // The slot passes straight to the waiter, so inFlight is unchanged
+                inFlight++;
+                next.granted = true;
+                next.signal.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Helpers (lock held)
+
+    private boolean isIdle() {
+        return queues.values().stream().allMatch(q -> q.size == 0);
+    }
+
+    private Waiter nextWaiter() {
+        for (ArubaCallPriority priority : ArubaCallPriority.values()) {
+            Waiter next = queues.get(priority).poll();
+            if (next != null) {
+                return next;
+            }
+        }
+        return null;
+    }
+
+    private long waitBudgetNanos() {
+        long budget = TimeUnit.MILLISECONDS.toNanos(props.getMaxQueueWaitMs());
+        Deadline deadline = Context.current().getDeadline();
+        if (deadline != null) {
+            budget = Math.min(budget, deadline.timeRemaining(TimeUnit.NANOSECONDS));
+        }
+        return budget;
+    }
+
+    private int quantumOf(String userId) {
+        return props.getQuantum() * props.getUserWeights().getOrDefault(userId, 1);
+    }
+
+    private static final class Waiter {
+        final String userId;
+        final Condition signal;
+        boolean granted;
+
+        Waiter(String userId, Condition signal) {
+            this.userId = userId;
+            this.signal = signal;
+        }
+    }
+
+    /** Deficit round robin over per-user FIFO queues of one priority class. */
+    private final class DeficitRoundRobin {
+
+        private final Map<String, ArrayDeque<Waiter>> perUser = new HashMap<>();
+        private final Map<String, Integer> deficit = new HashMap<>();
+        /** Users with waiters, in round-robin order; the head is the user whose turn it is. */
+        private final ArrayDeque<String> active = new ArrayDeque<>();
+        /** Whether the head user already received its quantum for the current turn. */
+        private boolean headCredited;
+        private int size;
+
+        void add(Waiter waiter) {
+            ArrayDeque<Waiter> queue = perUser.computeIfAbsent(waiter.userId, id -> new ArrayDeque<>());
+            if (queue.isEmpty()) {
+                active.addLast(waiter.userId);
+                deficit.put(waiter.userId, 0);
+            }
+            queue.addLast(waiter);
+            size++;
+        }
+
+        Waiter poll() {
+            while (size > 0) {
+                String userId = active.peekFirst();
+                ArrayDeque<Waiter> queue = perUser.get(userId);
+                if (!headCredited) {
+                    deficit.merge(userId, quantumOf(userId), Integer::sum);
+                    headCredited = true;
+                }
+                int credit = deficit.get(userId);
+                if (credit >= CALL_COST) {
+                    Waiter next = queue.pollFirst();
+                    deficit.put(userId, credit - CALL_COST);
+                    size--;
+                    if (queue.isEmpty()) {
+                        dropHead(userId);
+                    }
+                    return next;
+                }
+                // Turn over: keep the remaining credit and move to the next user
+                active.addLast(active.pollFirst());
+                headCredited = false;
+            }
+            return null;
+        }
+
+        void remove(Waiter waiter) {
+            ArrayDeque<Waiter> queue = perUser.get(waiter.userId);
+            if (queue == null || !queue.remove(waiter)) {
+                return;
+            }
+            size--;
+            if (queue.isEmpty()) {
+                if (waiter.userId.equals(active.peekFirst())) {
+                    dropHead(waiter.userId);
+                } else {
+                    active.remove(waiter.userId);
+                    perUser.remove(waiter.userId);
+                    deficit.remove(waiter.userId);
+                }
+            }
+        }
+
+        /** An emptied queue leaves the rotation and forfeits its credit, as in DRR. */
+        private void dropHead(String userId) {
+            active.pollFirst();
+            perUser.remove(userId);
+            deficit.remove(userId);
+            headCredited = false;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.aruba.zeta.pecintegration.client.resilience;
+
+/**
+ * Priority classes of outbound Aruba calls, highest first. {@link ArubaCallDispatcher}
+ * always serves a waiting call of a higher class before any call of a lower one.
+ */
+public enum ArubaCallPriority {
+
+    /** Calls a user is waiting on: GetMailboxes, GetMessages, SendMessage. */
+    INTERACTIVE,
+
+    /** Work nobody waits on directly: background polling, page prefetch. */
+    BACKGROUND,
+
+    /** Long scans such as StreamMessages exports. */
+    BULK
+}
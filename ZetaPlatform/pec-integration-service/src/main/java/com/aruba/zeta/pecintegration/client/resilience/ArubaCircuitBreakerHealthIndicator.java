@@ -0,0 +1,41 @@
+package com.aruba.zeta.pecintegration.client.resilience;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.boot.health.contributor.Health;
+import org.springframework.boot.health.contributor.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reports the circuit breaker and bulkhead of every Aruba endpoint under the
+ * {@code arubaCircuitBreaker} health component.
+ *
+ * <p>The component stays {@code UP} while breakers are open: an Aruba outage is not
+ * something restarting or unrouting this pod would fix, and the pod keeps serving what it
+ * can locally. The breaker states are in the details, which are shown to authorized callers
+ * only; the {@code aruba.circuit.*} metrics carry the same states.
+ */
+@Component
+public class ArubaCircuitBreakerHealthIndicator implements HealthIndicator {
+
+    private final ArubaCircuitBreakers circuitBreakers;
+
+    public ArubaCircuitBreakerHealthIndicator(ArubaCircuitBreakers circuitBreakers) {
+        this.circuitBreakers = circuitBreakers;
+    }
+
+    @Override
+    public Health health() {
+        Health.Builder health = Health.up();
+        circuitBreakers.states().forEach((endpoint, state) -> {
+            Map<String, Object> details = new LinkedHashMap<>();
+            details.put("state", state);
+            details.put("failureRate", circuitBreakers.failureRate(endpoint));
+            details.put("slowCallRate", circuitBreakers.slowCallRate(endpoint));
+            details.put("inFlight", circuitBreakers.inFlight(endpoint));
+            health.withDetail(endpoint.tag(), details);
+        });
+        return health.build();
+    }
+}
@@ -0,0 +1,54 @@
+package com.aruba.zeta.pecintegration.client.resilience;
+
+import java.io.IOException;
+
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+/**
+ * Runs every request of a RestClient through {@link ArubaCircuitBreakers}. I/O errors
+ * (including timeouts) and 5xx responses count as failures; any other response proves the
+ * endpoint is answering. Errors raised before the request left the pod, such as a rate
+ * limit rejection or an interrupt, are not counted either way.
+ *
+ * <p>Registered before {@link ArubaRateLimitInterceptor}, so one logical call holds a
+ * single permit across its throttling retries and is judged by its final response.
+ */
+public class ArubaCircuitBreakerInterceptor implements ClientHttpRequestInterceptor {
+
+    private final ArubaCircuitBreakers circuitBreakers;
+    private final String client;
+
+    /**
+     * @param client client name, {@link ArubaRateLimiter#PEC_API} or {@link ArubaRateLimiter#OAUTH2}
+     */
+    public ArubaCircuitBreakerInterceptor(ArubaCircuitBreakers circuitBreakers, String client) {
+        this.circuitBreakers = circuitBreakers;
+        this.client = client;
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+        if (!circuitBreakers.isEnabled()) {
+            return execution.execute(request, body);
+        }
+        ArubaCircuitBreakers.Permit permit = circuitBreakers.acquire(ArubaEndpoint.of(client, request));
+        ArubaCircuitBreakers.Outcome outcome = ArubaCircuitBreakers.Outcome.IGNORED;
+        try {
+            ClientHttpResponse response = execution.execute(request, body);
+            outcome = response.getStatusCode().is5xxServerError()
+                    ? ArubaCircuitBreakers.Outcome.FAILURE
+                    : ArubaCircuitBreakers.Outcome.SUCCESS;
+            return response;
+        } catch (IOException e) {
+            if (!Thread.currentThread().isInterrupted()) {
+                outcome = ArubaCircuitBreakers.Outcome.FAILURE;
+            }
+            throw e;
+        } finally {
+            circuitBreakers.complete(permit, outcome);
+        }
+    }
+}
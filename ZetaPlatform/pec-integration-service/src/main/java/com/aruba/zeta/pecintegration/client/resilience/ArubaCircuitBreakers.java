@@ -0,0 +1,148 @@
+package com.aruba.zeta.pecintegration.client.resilience;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.stereotype.Component;
+
+import com.aruba.zeta.pecintegration.config.ArubaCircuitBreakerProperties;
+
+import io.grpc.Status;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * One {@link CircuitBreaker} and one bulkhead per {@link ArubaEndpoint}.
+ *
+ * <p>The bulkhead caps the calls in flight to an endpoint at
+ * {@code aruba.circuit-breaker.bulkhead-max-concurrent-calls} without queueing, so when
+ * Aruba slows down only that many threads sit in its read timeout; the breaker then stops
+ * calls altogether once the endpoint keeps failing or answering slowly. Either way the
+ * caller gets {@code UNAVAILABLE} immediately instead of waiting out the timeout.
+ */
+@Slf4j
+@Component
+public class ArubaCircuitBreakers {
+
+    /** An admitted call; hand it back to {@link #complete} exactly once. */
+    record Permit(ArubaEndpoint endpoint, long epoch, long startedAt) {}
+
+    enum Outcome { SUCCESS, FAILURE, IGNORED }
+
+    private final ArubaCircuitBreakerProperties props;
+    private final Map<ArubaEndpoint, CircuitBreaker> breakers = new EnumMap<>(ArubaEndpoint.class);
+    private final Map<ArubaEndpoint, Semaphore> bulkheads = new EnumMap<>(ArubaEndpoint.class);
+    private final Map<ArubaEndpoint, Counter> openRejections = new EnumMap<>(ArubaEndpoint.class);
+    private final Map<ArubaEndpoint, Counter> bulkheadRejections = new EnumMap<>(ArubaEndpoint.class);
+
+    public ArubaCircuitBreakers(ArubaCircuitBreakerProperties props, MeterRegistry meterRegistry) {
+        this.props = props;
+        for (ArubaEndpoint endpoint : ArubaEndpoint.values()) {
+            CircuitBreaker breaker = new CircuitBreaker(props, (from, to) -> {
+                log.info("Circuit breaker for Aruba endpoint {} went from {} to {}", endpoint.tag(), from, to);
+                Counter.builder("aruba.circuit.transitions")
+                        .description("Circuit breaker state changes")
+                        .tag("endpoint", endpoint.tag())
+                        .tag("state", to.name().toLowerCase())
+                        .register(meterRegistry)
+                        .increment();
+            });
+            Semaphore bulkhead = new Semaphore(props.getBulkheadMaxConcurrentCalls());
+            breakers.put(endpoint, breaker);
+            bulkheads.put(endpoint, bulkhead);
+            openRejections.put(endpoint, rejectionCounter(meterRegistry, endpoint, "open"));
+            bulkheadRejections.put(endpoint, rejectionCounter(meterRegistry, endpoint, "bulkhead"));
+
+            Gauge.builder("aruba.circuit.state", breaker, b -> b.state().ordinal())
+                    .description("Circuit breaker state: 0 closed, 1 open, 2 half-open")
+                    .tag("endpoint", endpoint.tag())
+                    .register(meterRegistry);
+            Gauge.builder("aruba.circuit.failure.rate", breaker, CircuitBreaker::failureRate)
+                    .description("Failure rate over the circuit breaker's sliding window")
+                    .tag("endpoint", endpoint.tag())
+                    .register(meterRegistry);
+            Gauge.builder("aruba.bulkhead.in.flight", bulkhead,
+                            b -> props.getBulkheadMaxConcurrentCalls() - b.availablePermits())
+                    .description("Aruba calls in flight per endpoint")
+                    .tag("endpoint", endpoint.tag())
+                    .register(meterRegistry);
+        }
+    }
+
+    public boolean isEnabled() {
+        return props.isEnabled();
+    }
+
+    /**
+     * Admits a call to {@code endpoint}.
+     *
+     * @throws io.grpc.StatusRuntimeException {@code UNAVAILABLE} if the breaker is open or
+     *                                        the endpoint's bulkhead is full
+     */
+    Permit acquire(ArubaEndpoint endpoint) {
+        Semaphore bulkhead = bulkheads.get(endpoint);
+        if (!bulkhead.tryAcquire()) {
+            bulkheadRejections.get(endpoint).increment();
+            throw Status.UNAVAILABLE
+                    .withDescription("Aruba " + endpoint.tag() + " endpoint saturated: too many calls in flight")
+                    .asRuntimeException();
+        }
+        long now = System.nanoTime();
+        long epoch = breakers.get(endpoint).tryAcquire(now);
+        if (epoch < 0) {
+            bulkhead.release();
+            openRejections.get(endpoint).increment();
+            throw Status.UNAVAILABLE
+                    .withDescription("Aruba " + endpoint.tag() + " endpoint unavailable: circuit breaker open")
+                    .asRuntimeException();
+        }
+        return new Permit(endpoint, epoch, now);
+    }
+
+    void complete(Permit permit, Outcome outcome) {
+        bulkheads.get(permit.endpoint()).release();
+        CircuitBreaker breaker = breakers.get(permit.endpoint());
+        if (outcome == Outcome.IGNORED) {
+            breaker.onIgnored(permit.epoch());
+            return;
+        }
+        long now = System.nanoTime();
+        boolean slow = permit.endpoint().tracksSlowCalls()
+                && now - permit.startedAt() >= TimeUnit.MILLISECONDS.toNanos(props.getSlowCallDurationMs());
+        breaker.onResult(permit.epoch(), outcome == Outcome.FAILURE, slow, now);
+    }
+
+    /** Current breaker state of every endpoint, for health reporting. */
+    public Map<ArubaEndpoint, String> states() {
+        Map<ArubaEndpoint, String> states = new EnumMap<>(ArubaEndpoint.class);
+        breakers.forEach((endpoint, breaker) -> states.put(endpoint, breaker.state().name()));
+        return states;
+    }
+
+    /** Calls in flight to {@code endpoint}. */
+    public int inFlight(ArubaEndpoint endpoint) {
+        return props.getBulkheadMaxConcurrentCalls() - bulkheads.get(endpoint).availablePermits();
+    }
+
+    /** Failure rate over {@code endpoint}'s current window. */
+    public double failureRate(ArubaEndpoint endpoint) {
+        return breakers.get(endpoint).failureRate();
+    }
+
+    /** Slow-call rate over {@code endpoint}'s current window. */
+    public double slowCallRate(ArubaEndpoint endpoint) {
+        return breakers.get(endpoint).slowCallRate();
+    }
+
+    private static Counter rejectionCounter(MeterRegistry meterRegistry, ArubaEndpoint endpoint, String reason) {
+        return Counter.builder("aruba.circuit.rejected")
+                .description("Aruba calls rejected without reaching Aruba")
+                .tag("endpoint", endpoint.tag())
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,62 @@
+package com.aruba.zeta.pecintegration.client.resilience;
+
+import java.net.URI;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRequest;
+
+/**
+ * Aruba endpoints guarded by their own circuit breaker and bulkhead, so that a degraded
+ * endpoint does not take the others down with it.
+ */
+public enum ArubaEndpoint {
+
+    /** {@code GET /mailboxes}. */
+    MAILBOXES,
+    /** {@code GET /mailboxes/{id}/messages}, including change probes. */
+    MESSAGES,
+    /** {@code POST /mailboxes/{id}/messages}. */
+    SEND,
+    /** {@code GET /mailboxes/{id}/messages/{id}/attachments/{id}} (binary downloads). */
+    ATTACHMENTS,
+    /** {@code POST /documents} (streamed document uploads). */
+    UPLOADS,
+    /** OAuth2 token endpoint (code exchanges and refreshes). */
+    TOKEN;
+
+    /** Metric tag value. */
+    public String tag() {
+        return name().toLowerCase();
+    }
+
+    /**
+     * Whether call duration says anything about the endpoint's health. An upload or a
+     * download lasts as long as the client takes to stream the document, so it is never
+     * counted as slow.
+     */
+    public boolean tracksSlowCalls() {
+        return this != UPLOADS && this != ATTACHMENTS;
+    }
+
+    /** Classifies a request of the given client ({@link ArubaRateLimiter#PEC_API} or {@link ArubaRateLimiter#OAUTH2}). */
+    static ArubaEndpoint of(String client, HttpRequest request) {
+        return of(client, request.getMethod(), request.getURI());
+    }
+
+    static ArubaEndpoint of(String client, HttpMethod method, URI uri) {
+        if (ArubaRateLimiter.OAUTH2.equals(client)) {
+            return TOKEN;
+        }
+        String path = uri.getRawPath();
+        if (path != null && path.contains("/documents")) {
+            return UPLOADS;
+        }
+        if (path == null || !path.contains("/messages")) {
+            return MAILBOXES;
+        }
+        if (path.contains("/attachments/")) {
+            return ATTACHMENTS;
+        }
+        return method == HttpMethod.POST ? SEND : MESSAGES;
+    }
+}
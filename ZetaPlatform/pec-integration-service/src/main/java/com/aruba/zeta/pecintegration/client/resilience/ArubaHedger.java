@@ -0,0 +1,240 @@
+package com.aruba.zeta.pecintegration.client.resilience;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import com.aruba.zeta.pecintegration.config.ArubaHedgingProperties;
+
+import io.grpc.Context;
+import io.grpc.Status;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Hedged execution of idempotent Aruba reads. The call is started on a virtual thread; if
+ * it has not answered once the endpoint's rolling {@code aruba.hedging.percentile} latency
+ * has elapsed, an identical second call is started and whichever succeeds first wins. Each
+ * attempt runs under its own cancellable child of the caller's gRPC {@link Context}; the
+ * loser's context is cancelled, which makes {@link DeadlinePropagatingRequestFactory} abort
+ * its request and return the pooled connection.
+ *
+ * <p>The hedge takes a dispatch slot of its own from {@link ArubaCallDispatcher#tryAcquire},
+ * so it never pushes the Aruba calls in flight past {@code aruba.dispatch.max-concurrent-calls};
+ * when no slot is free the call is not hedged. The primary runs in the caller's slot.
+ *
+ * <p>Hedges are paid for from a per-endpoint budget: every hedgeable call deposits
+ * {@code budget-percent / 100} of a token and a hedge costs a whole one, so hedges never
+ * add more than that share of extra load, even when the whole endpoint turns slow.
+ */
+@Slf4j
+@Component
+public class ArubaHedger {
+
+    /** Unused budget carried over, in hedges; bounds the burst after a quiet period. */
+    private static final double MAX_BUDGET = 10;
+
+    private final ArubaHedgingProperties props;
+    private final AsyncTaskExecutor taskExecutor;
+    private final ArubaCallDispatcher dispatcher;
+    private final Map<ArubaEndpoint, EndpointHedging> endpoints = new EnumMap<>(ArubaEndpoint.class);
+
+    public ArubaHedger(
+            ArubaHedgingProperties props,
+            @Qualifier("applicationTaskExecutor") AsyncTaskExecutor taskExecutor,
+            ArubaCallDispatcher dispatcher,
+            MeterRegistry meterRegistry) {
+        this.props = props;
+        this.taskExecutor = taskExecutor;
+        this.dispatcher = dispatcher;
+        for (ArubaEndpoint endpoint : ArubaEndpoint.values()) {
+            endpoints.put(endpoint, new EndpointHedging(endpoint, meterRegistry));
+        }
+    }
+
+    /**
+     * Runs {@code call}, hedging it when it is slower than usual for {@code endpoint}.
+     * {@code call} must be idempotent and safe to abort.
+     */
+    public <T> T call(ArubaEndpoint endpoint, Supplier<T> call) {
+        if (!props.isEnabled()) {
+            return call.get();
+        }
+        EndpointHedging hedging = endpoints.get(endpoint);
+        hedging.deposit();
+        long delay = hedging.delayNanos();
+        if (delay < 0) {
+            // Not enough samples yet: run inline and learn the endpoint's latency
+            long startedAt = System.nanoTime();
+            T result = call.get();
+            hedging.latencies.record(System.nanoTime() - startedAt);
+            return result;
+        }
+
+        CompletionService<T> completion = new ExecutorCompletionService<>(taskExecutor);
+        List<Future<T>> attempts = new ArrayList<>(2);
+        List<Context.CancellableContext> contexts = new ArrayList<>(2);
+        ArubaCallDispatcher.Slot hedgeSlot = null;
+        AtomicBoolean hedgeStarted = new AtomicBoolean();
+        long primaryStartedAt = System.nanoTime();
+        attempts.add(completion.submit(attempt(hedging, call, contexts, null, new AtomicBoolean())));
+        try {
+            Future<T> done = completion.poll(delay, TimeUnit.NANOSECONDS);
+            if (done == null) {
+                hedgeSlot = dispatcher.tryAcquire();
+                if (hedgeSlot == null) {
+                    hedging.noSlot.increment();
+                } else if (hedging.withdraw()) {
+                    attempts.add(completion.submit(attempt(hedging, call, contexts, hedgeSlot, hedgeStarted)));
+                    hedging.hedged.increment();
+                } else {
+                    hedgeSlot.release();
+                    hedging.budgetExhausted.increment();
+                }
+                done = completion.take();
+            }
+            T result;
+            try {
+                result = done.get();
+            } catch (ExecutionException e) {
+                if (attempts.size() == 1) {
+                    throw rethrow(e);
+                }
+                // The other attempt may still succeed
+                done = completion.take();
+                result = get(done);
+            }
+            if (attempts.size() > 1 && done == attempts.get(1)) {
+                hedging.hedgeWins.increment();
+                // The losing primary never records its latency; count it as at least this slow
+                hedging.latencies.record(System.nanoTime() - primaryStartedAt);
+            }
+            return result;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw Status.CANCELLED.withDescription("Interrupted while waiting for Aruba").asRuntimeException();
+        } finally {
+            // Aborts the loser's request; the winner is already done
+            contexts.forEach(context -> context.cancel(null));
+            attempts.forEach(f -> f.cancel(false));
+            // A hedge that never started gives its slot back here; a started one on its way out
+            if (hedgeSlot != null && hedgeStarted.compareAndSet(false, true)) {
+                hedgeSlot.release();
+            }
+        }
+    }
+
+    // Helpers
+
+    /**
+     * One attempt, under a cancellable child of the caller's context.
+     *
+     * @param slot    dispatch slot of a hedge, released when it ends, or {@code null} for the primary
+     * @param started set when the attempt starts; an attempt found already claimed does nothing
+     */
+    private <T> Callable<T> attempt(EndpointHedging hedging, Supplier<T> call, List<Context.CancellableContext> contexts,
+                                    ArubaCallDispatcher.Slot slot, AtomicBoolean started) {
+        Context.CancellableContext context = Context.current().withCancellation();
+        contexts.add(context);
+        return context.wrap(() -> {
+            if (!started.compareAndSet(false, true)) {
+                return null;
+            }
+            try {
+                long startedAt = System.nanoTime();
+                T result = call.get();
+                hedging.latencies.record(System.nanoTime() - startedAt);
+                return result;
+            } finally {
+                if (slot != null) {
+                    slot.release();
+                }
+            }
+        });
+    }
+
+    private static <T> T get(Future<T> future) throws InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw rethrow(e);
+        }
+    }
+
+    private static RuntimeException rethrow(ExecutionException e) {
+        if (e.getCause() instanceof RuntimeException runtime) {
+            return runtime;
+        }
+        if (e.getCause() instanceof Error error) {
+            throw error;
+        }
+        return new IllegalStateException(e.getCause());
+    }
+
+    /** Latencies, budget and metrics of one endpoint. */
+    private final class EndpointHedging {
+
+        final LatencyWindow latencies = new LatencyWindow(props.getWindowSize(), props.getPercentile());
+        final Counter hedged;
+        final Counter hedgeWins;
+        final Counter budgetExhausted;
+        final Counter noSlot;
+        private double budget;
+
+        EndpointHedging(ArubaEndpoint endpoint, MeterRegistry meterRegistry) {
+            this.hedged = hedgeCounter(meterRegistry, endpoint, "sent");
+            this.hedgeWins = hedgeCounter(meterRegistry, endpoint, "won");
+            this.budgetExhausted = hedgeCounter(meterRegistry, endpoint, "budget_exhausted");
+            this.noSlot = hedgeCounter(meterRegistry, endpoint, "no_slot");
+            Gauge.builder("aruba.hedging.delay", latencies, w -> Math.max(w.percentileNanos(), 0) / 1e9)
+                    .description("Latency after which a hedged Aruba read is sent")
+                    .baseUnit("seconds")
+                    .tag("endpoint", endpoint.tag())
+                    .register(meterRegistry);
+        }
+
+        /** Hedge delay, or {@code -1} while the endpoint has too few samples. */
+        long delayNanos() {
+            long percentile = latencies.percentileNanos();
+            if (percentile < 0 || latencies.size() < props.getMinSamples()) {
+                return -1;
+            }
+            return Math.max(percentile, TimeUnit.MILLISECONDS.toNanos(props.getMinDelayMs()));
+        }
+
+        synchronized void deposit() {
+            budget = Math.min(budget + props.getBudgetPercent() / 100, MAX_BUDGET);
+        }
+
+        synchronized boolean withdraw() {
+            if (budget < 1) {
+                return false;
+            }
+            budget -= 1;
+            return true;
+        }
+
+        private static Counter hedgeCounter(MeterRegistry meterRegistry, ArubaEndpoint endpoint, String result) {
+            return Counter.builder("aruba.hedging.requests")
+                    .description("Hedged Aruba reads by outcome")
+                    .tag("endpoint", endpoint.tag())
+                    .tag("result", result)
+                    .register(meterRegistry);
+        }
+    }
+}
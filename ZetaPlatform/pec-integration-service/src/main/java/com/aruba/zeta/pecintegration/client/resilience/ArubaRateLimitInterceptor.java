@@ -0,0 +1,102 @@
+package com.aruba.zeta.pecintegration.client.resilience;
+
+import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import jakarta.annotation.Nullable;
+
+/**
+ * Applies {@link ArubaRateLimiter} to every request of a RestClient and retries requests
+ * answered with 429, or with 503 when the method is idempotent, honouring
+ * {@code Retry-After}. A retry is only attempted when its delay fits the caller's wait
+ * budget; otherwise the throttling response is returned to the client as is.
+ *
+ * <p>Must be the last interceptor of the chain, since it executes the request again.
+ */
+public class ArubaRateLimitInterceptor implements ClientHttpRequestInterceptor {
+
+    private static final Pattern MAILBOX_PATH = Pattern.compile("/mailboxes/([^/?]+)");
+
+    private final ArubaRateLimiter rateLimiter;
+    private final String client;
+    private final boolean perMailbox;
+
+    /**
+     * @param client     client bucket name, {@link ArubaRateLimiter#PEC_API} or {@link ArubaRateLimiter#OAUTH2}
+     * @param perMailbox whether mailbox-scoped paths also draw from a per-mailbox bucket
+     */
+    public ArubaRateLimitInterceptor(ArubaRateLimiter rateLimiter, String client, boolean perMailbox) {
+        this.rateLimiter = rateLimiter;
+        this.client = client;
+        this.perMailbox = perMailbox;
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+        if (!rateLimiter.isEnabled()) {
+            return execution.execute(request, body);
+        }
+        String mailboxId = perMailbox ? mailboxOf(request.getURI()) : null;
+        for (int attempt = 0; ; attempt++) {
+            rateLimiter.acquire(client, mailboxId);
+            ClientHttpResponse response = execution.execute(request, body);
+            int status = response.getStatusCode().value();
+            if (status != 429 && status != 503) {
+                return response;
+            }
+            long delay = rateLimiter.onThrottled(client, mailboxId, status, retryAfter(response.getHeaders()), attempt);
+            boolean retryable = status == 429 || isIdempotent(request.getMethod());
+            if (!retryable || attempt >= rateLimiter.maxRetries() || delay > rateLimiter.waitBudgetNanos()) {
+                return response;
+            }
+            response.close();
+            rateLimiter.onRetry(client);
+            // The next acquire waits out the pause set by onThrottled
+        }
+    }
+
+    // Helpers
+
+    private static String mailboxOf(URI uri) {
+        Matcher matcher = MAILBOX_PATH.matcher(uri.getRawPath());
+        return matcher.find() ? matcher.group(1) : null;
+    }
+
+    private static boolean isIdempotent(HttpMethod method) {
+        return method == HttpMethod.GET || method == HttpMethod.HEAD
+                || method == HttpMethod.PUT || method == HttpMethod.DELETE;
+    }
+
+    /** Parses {@code Retry-After} as delta-seconds or an HTTP-date. */
+    @Nullable
+    static Duration retryAfter(HttpHeaders headers) {
+        String value = headers.getFirst(HttpHeaders.RETRY_AFTER);
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return Duration.ofSeconds(Math.max(0, Long.parseLong(value.trim())));
+        } catch (NumberFormatException e) {
+            try {
+                ZonedDateTime at = ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME);
+                long millis = at.toInstant().toEpochMilli() - System.currentTimeMillis();
+                return Duration.ofMillis(Math.max(0, millis));
+            } catch (DateTimeParseException ignored) {
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.aruba.zeta.pecintegration.client.resilience;
+
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.stereotype.Component;
+
+import com.aruba.zeta.pecintegration.config.ArubaRateLimitProperties;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.grpc.Context;
+import io.grpc.Deadline;
+import io.grpc.Status;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.Nullable;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Token buckets guarding outbound Aruba calls, at two levels: one bucket per client
+ * ({@value #PEC_API} shared by the whole client id, {@value #OAUTH2} for the token
+ * endpoint) and one per mailbox for mailbox-scoped PEC API calls.
+ *
+ * <p>A call waits for a permit at most until the caller's gRPC deadline, and never longer
+ * than {@code aruba.rate-limit.max-wait-ms}; if no permit is available in that budget it
+ * fails fast with {@code RESOURCE_EXHAUSTED} instead of queueing work the caller has
+ * already given up on. Throttling responses from Aruba pause the affected bucket, so the
+ * whole pod backs off rather than each caller discovering the quota separately.
+ */
+@Slf4j
+@Component
+public class ArubaRateLimiter {
+
+    public static final String PEC_API = "aruba-pec-api";
+    public static final String OAUTH2 = "aruba-oauth2";
+
+    private final ArubaRateLimitProperties props;
+    private final Map<String, TokenBucket> clientBuckets;
+    private final Cache<String, TokenBucket> mailboxBuckets;
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Timer> waitTimers;
+
+    public ArubaRateLimiter(ArubaRateLimitProperties props, MeterRegistry meterRegistry) {
+        this.props = props;
+        this.meterRegistry = meterRegistry;
+        long now = System.nanoTime();
+        this.clientBuckets = Map.of(
+                PEC_API, new TokenBucket(props.getApiPermitsPerSecond(), props.getApiBurst(), now),
+                OAUTH2, new TokenBucket(props.getOauth2PermitsPerSecond(), props.getOauth2Burst(), now));
+        this.mailboxBuckets = Caffeine.newBuilder()
+                .maximumSize(props.getMaxMailboxBuckets())
+                .expireAfterAccess(Duration.ofMinutes(10))
+                .build();
+        this.waitTimers = Map.of(PEC_API, waitTimer(PEC_API), OAUTH2, waitTimer(OAUTH2));
+    }
+
+    public boolean isEnabled() {
+        return props.isEnabled();
+    }
+
+    /**
+     * Blocks until a permit for the client (and mailbox, if given) is available.
+     *
+     * @throws io.grpc.StatusRuntimeException {@code RESOURCE_EXHAUSTED} when no permit is
+     *                                        available within the wait budget
+     * @throws InterruptedIOException         if interrupted while waiting
+     */
+    void acquire(String client, @Nullable String mailboxId) throws InterruptedIOException {
+        long budget = waitBudgetNanos();
+        long now = System.nanoTime();
+
+        TokenBucket mailbox = mailboxId == null ? null : mailboxBuckets.get(mailboxId, id -> newMailboxBucket());
+        long mailboxWait = 0;
+        if (mailbox != null && (mailboxWait = mailbox.reserve(now, budget)) < 0) {
+            throw reject(client, "mailbox");
+        }
+        long clientWait = clientBuckets.get(client).reserve(now, budget);
+        if (clientWait < 0) {
+            if (mailbox != null) {
+                mailbox.refund();
+            }
+            throw reject(client, "client");
+        }
+
+        long wait = Math.max(mailboxWait, clientWait);
+        waitTimers.get(client).record(wait, TimeUnit.NANOSECONDS);
+        if (wait > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for an Aruba rate-limit permit");
+            }
+        }
+    }
+
+    /**
+     * Records a 429/503 from Aruba and pauses the bucket it most likely refers to: the
+     * mailbox bucket for a mailbox-scoped 429, the client bucket otherwise.
+     *
+     * @param retryAfter delay requested by the {@code Retry-After} header, if any
+     * @param attempt    0-based attempt that was throttled
+     * @return jittered delay before the retry, in nanoseconds
+     */
+    long onThrottled(String client, @Nullable String mailboxId, int status, @Nullable Duration retryAfter, int attempt) {
+        long baseNanos = TimeUnit.MILLISECONDS.toNanos(props.getRetryBaseDelayMs());
+        long delay = retryAfter != null
+                // Spread the callers released by the same Retry-After
+                ? retryAfter.toNanos() + ThreadLocalRandom.current().nextLong(baseNanos + 1)
+                // Full jitter over the exponential backoff
+                : ThreadLocalRandom.current().nextLong((baseNanos << Math.min(attempt, 16)) + 1);
+        delay = Math.min(delay, TimeUnit.MILLISECONDS.toNanos(props.getMaxRetryDelayMs()));
+
+        TokenBucket paused = status == 429 && mailboxId != null
+                ? mailboxBuckets.get(mailboxId, id -> newMailboxBucket())
+                : clientBuckets.get(client);
+        paused.pauseUntil(System.nanoTime() + delay);
+
+        Counter.builder("aruba.ratelimit.throttled")
+                .description("Aruba responses signalling throttling or overload")
+                .tag("client", client)
+                .tag("status", String.valueOf(status))
+                .register(meterRegistry)
+                .increment();
+        log.warn("Aruba {} answered {}{}; backing off {} ms", client, status,
+                mailboxId != null ? " for mailbox " + mailboxId : "", TimeUnit.NANOSECONDS.toMillis(delay));
+        return delay;
+    }
+
+    void onRetry(String client) {
+        Counter.builder("aruba.ratelimit.retries")
+                .description("Aruba calls retried after a 429/503")
+                .tag("client", client)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    int maxRetries() {
+        return props.getMaxRetries();
+    }
+
+    /** Time a call may spend waiting: the remaining gRPC deadline, capped by the configured maximum. */
+    long waitBudgetNanos() {
+        long budget = TimeUnit.MILLISECONDS.toNanos(props.getMaxWaitMs());
+        Deadline deadline = Context.current().getDeadline();
+        if (deadline != null) {
+            budget = Math.min(budget, deadline.timeRemaining(TimeUnit.NANOSECONDS));
+        }
+        return Math.max(budget, 0);
+    }
+
+    // Helpers
+
+    private TokenBucket newMailboxBucket() {
+        return new TokenBucket(props.getMailboxPermitsPerSecond(), props.getMailboxBurst(), System.nanoTime());
+    }
+
+    private RuntimeException reject(String client, String scope) {
+        Counter.builder("aruba.ratelimit.rejected")
+                .description("Aruba calls failed fast because no permit was available in time")
+                .tag("client", client)
+                .tag("scope", scope)
+                .register(meterRegistry)
+                .increment();
+        return Status.RESOURCE_EXHAUSTED
+                .withDescription("Aruba " + scope + " rate limit: no permit available within the caller's deadline")
+                .asRuntimeException();
+    }
+
+    private Timer waitTimer(String client) {
+        return Timer.builder("aruba.ratelimit.wait")
+                .description("Time outbound Aruba calls waited for a rate-limit permit")
+                .tag("client", client)
+                .register(meterRegistry);
+    }
+}
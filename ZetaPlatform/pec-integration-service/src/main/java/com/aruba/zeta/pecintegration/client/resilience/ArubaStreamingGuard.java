@@ -0,0 +1,98 @@
+package com.aruba.zeta.pecintegration.client.resilience;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.function.Supplier;
+
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.ResourceAccessException;
+
+import io.grpc.StatusRuntimeException;
+
+/**
+ * Applies {@link ArubaRateLimiter} and {@link ArubaCircuitBreakers} to calls with a
+ * streamed request or response body. Such calls cannot go through the interceptor chain,
+ * which buffers the whole request body in memory and releases the breaker permit as soon
+ * as the response headers arrive; here the permit is held until the body was transferred.
+ * They are also never retried, since a streamed body cannot be replayed: a 429/503 only
+ * pauses the rate-limit bucket for the next call.
+ *
+ * <p>Outcomes are judged like {@link ArubaCircuitBreakerInterceptor} does: I/O errors and
+ * 5xx responses are failures, any other response is a success. A body that aborts with
+ * {@link BodyAbortedException} is not counted either way.
+ */
+@Component
+public class ArubaStreamingGuard {
+
+    private final ArubaRateLimiter rateLimiter;
+    private final ArubaCircuitBreakers circuitBreakers;
+
+    public ArubaStreamingGuard(ArubaRateLimiter rateLimiter, ArubaCircuitBreakers circuitBreakers) {
+        this.rateLimiter = rateLimiter;
+        this.circuitBreakers = circuitBreakers;
+    }
+
+    /**
+     * Runs {@code call} against the Aruba PEC API.
+     *
+     * @throws StatusRuntimeException {@code RESOURCE_EXHAUSTED} when rate limited,
+     *                                {@code UNAVAILABLE} when the endpoint's breaker is open
+     *                                or its bulkhead is full
+     */
+    public <T> T execute(ArubaEndpoint endpoint, Supplier<T> call) {
+        if (rateLimiter.isEnabled()) {
+            try {
+                rateLimiter.acquire(ArubaRateLimiter.PEC_API, null);
+            } catch (InterruptedIOException e) {
+                throw new ResourceAccessException(e.getMessage(), e);
+            }
+        }
+        if (!circuitBreakers.isEnabled()) {
+            return observeThrottling(call);
+        }
+        ArubaCircuitBreakers.Permit permit = circuitBreakers.acquire(endpoint);
+        ArubaCircuitBreakers.Outcome outcome = ArubaCircuitBreakers.Outcome.IGNORED;
+        try {
+            T result = observeThrottling(call);
+            outcome = ArubaCircuitBreakers.Outcome.SUCCESS;
+            return result;
+        } catch (HttpStatusCodeException e) {
+            outcome = e.getStatusCode().is5xxServerError()
+                    ? ArubaCircuitBreakers.Outcome.FAILURE
+                    : ArubaCircuitBreakers.Outcome.SUCCESS;
+            throw e;
+        } catch (ResourceAccessException e) {
+            if (!(e.getCause() instanceof BodyAbortedException) && !Thread.currentThread().isInterrupted()) {
+                outcome = ArubaCircuitBreakers.Outcome.FAILURE;
+            }
+            throw e;
+        } finally {
+            circuitBreakers.complete(permit, outcome);
+        }
+    }
+
+    /**
+     * Thrown by a streamed body that gives up because its source went away, such as a
+     * cancelled client stream. Not held against the endpoint.
+     */
+    public static class BodyAbortedException extends IOException {
+
+        public BodyAbortedException(String message) {
+            super(message);
+        }
+    }
+
+    private <T> T observeThrottling(Supplier<T> call) {
+        try {
+            return call.get();
+        } catch (HttpStatusCodeException e) {
+            int status = e.getStatusCode().value();
+            if (rateLimiter.isEnabled() && (status == 429 || status == 503)) {
+                rateLimiter.onThrottled(ArubaRateLimiter.PEC_API, null, status,
+                        e.getResponseHeaders() != null ? ArubaRateLimitInterceptor.retryAfter(e.getResponseHeaders()) : null, 0);
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.aruba.zeta.pecintegration.client.resilience;
+
+import java.util.concurrent.TimeUnit;
+
+import com.aruba.zeta.pecintegration.config.ArubaCircuitBreakerProperties;
+
+/**
+ * Count-based circuit breaker. While closed, the outcomes of the last
+ * {@code sliding-window-size} calls are kept in a ring; once enough calls are recorded and
+ * the failure or slow-call rate crosses its threshold the breaker opens and rejects every
+ * call for {@code open-duration-ms}. It then turns half-open and admits up to
+ * {@code half-open-permitted-calls} trial calls: a single bad trial reopens it, and it only
+ * closes (with an empty window) once all trials succeeded.
+ *
+ * <p>Every admission is stamped with the breaker's epoch, which advances on each state
+ * change; calls completing in a later epoch than they were admitted in are not counted, so
+ * stragglers cannot close or reopen the breaker. Times are {@link System#nanoTime()}.
+ */
+final class CircuitBreaker {
+
+    enum State { CLOSED, OPEN, HALF_OPEN }
+
+    interface TransitionListener {
+        void onTransition(State from, State to);
+    }
+
+    private static final byte FAILED = 1;
+    private static final byte SLOW = 2;
+
+    private final ArubaCircuitBreakerProperties props;
+    private final TransitionListener listener;
+
+    private State state = State.CLOSED;
+    private long epoch;
+    private long openedAt;
+
+    private final byte[] window;
+    private int next;
+    private int recorded;
+    private int failures;
+    private int slowCalls;
+
+    private int trialsInFlight;
+    private int trialsSucceeded;
+
+    CircuitBreaker(ArubaCircuitBreakerProperties props, TransitionListener listener) {
+        this.props = props;
+        this.listener = listener;
+        this.window = new byte[Math.max(props.getSlidingWindowSize(), 1)];
+    }
+
+    /**
+     * Asks to make a call.
+     *
+     * @return {@code -1} if rejected, otherwise the admission epoch to pass back to
+     *         {@link #onResult} or {@link #onIgnored}
+     */
+    synchronized long tryAcquire(long nowNanos) {
+        if (state == State.OPEN) {
+            if (nowNanos - openedAt < TimeUnit.MILLISECONDS.toNanos(props.getOpenDurationMs())) {
+                return -1;
+            }
+            transition(State.HALF_OPEN);
+        }
+        if (state == State.HALF_OPEN) {
+            if (trialsInFlight + trialsSucceeded >= props.getHalfOpenPermittedCalls()) {
+                return -1;
+            }
+            trialsInFlight++;
+        }
+        return epoch;
+    }
+
+    /** Records the outcome of a call admitted in {@code admittedEpoch}. */
+    synchronized void onResult(long admittedEpoch, boolean failed, boolean slow, long nowNanos) {
+        if (admittedEpoch != epoch) {
+            return;
+        }
+        if (state == State.HALF_OPEN) {
+            trialsInFlight--;
+            if (failed || slow) {
+                open(nowNanos);
+            } else if (++trialsSucceeded >= props.getHalfOpenPermittedCalls()) {
+                resetWindow();
+                transition(State.CLOSED);
+            }
+            return;
+        }
+        byte evicted = recorded == window.length ? window[next] : 0;
+        byte outcome = (byte) ((failed ? FAILED : 0) | (slow ? SLOW : 0));
+        failures += (outcome & FAILED) - (evicted & FAILED);
+        slowCalls += ((outcome & SLOW) - (evicted & SLOW)) / SLOW;
+        window[next] = outcome;
+        next = (next + 1) % window.length;
+        recorded = Math.min(recorded + 1, window.length);
+
+        if (recorded >= props.getMinimumCalls()
+                && (failures * 100L >= (long) props.getFailureRateThreshold() * recorded
+                        || slowCalls * 100L >= (long) props.getSlowCallRateThreshold() * recorded)) {
+            open(nowNanos);
+        }
+    }
+
+    /** Releases an admitted call whose outcome says nothing about the endpoint's health. */
+    synchronized void onIgnored(long admittedEpoch) {
+        if (admittedEpoch == epoch && state == State.HALF_OPEN) {
+            trialsInFlight--;
+        }
+    }
+
+    synchronized State state() {
+        return state;
+    }
+
+    synchronized double failureRate() {
+        return recorded == 0 ? 0 : (double) failures / recorded;
+    }
+
+    synchronized double slowCallRate() {
+        return recorded == 0 ? 0 : (double) slowCalls / recorded;
+    }
+
+    // Helpers (lock held)
+
+    private void open(long nowNanos) {
+        openedAt = nowNanos;
+        resetWindow();
+        transition(State.OPEN);
+    }
+
+    private void resetWindow() {
+        next = 0;
+        recorded = 0;
+        failures = 0;
+        slowCalls = 0;
+        trialsInFlight = 0;
+        trialsSucceeded = 0;
+    }
+
+    private void transition(State to) {
+        State from = state;
+        state = to;
+        epoch++;
+        listener.onTransition(from, to);
+    }
+}
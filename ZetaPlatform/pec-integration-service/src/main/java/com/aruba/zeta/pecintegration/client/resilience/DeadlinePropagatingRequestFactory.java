@@ -0,0 +1,250 @@
+package com.aruba.zeta.pecintegration.client.resilience;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hc.client5.http.classic.HttpClient;
+import org.apache.hc.client5.http.classic.methods.HttpUriRequestBase;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.StreamingHttpOutputMessage;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+
+import com.aruba.zeta.pecintegration.grpc.CallerContexts;
+
+import io.grpc.Context;
+import io.grpc.Deadline;
+import io.grpc.StatusRuntimeException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.Nullable;
+
+/**
+ * Pooled request factory that stops Aruba work nobody is waiting for anymore, based on the
+ * gRPC {@link Context} of the call being served:
+ * <ul>
+ *   <li>a request is not started once the caller cancelled or its deadline passed;</li>
+ *   <li>a {@code GET}/{@code HEAD} waits for a pooled connection and for the response no
+ *       longer than the caller's remaining deadline;</li>
+ *   <li>a {@code GET}/{@code HEAD} in flight (including its response body) is aborted as
+ *       soon as the caller goes away.</li>
+ * </ul>
+ * Other methods are never cut short once started: aborting a send or a token refresh would
+ * leave its outcome unknown while Aruba may well have applied it.
+ *
+ * <p>Requests stopped this way fail with {@code CANCELLED}/{@code DEADLINE_EXCEEDED}
+ * instead of an I/O error, so they are not held against the endpoint's circuit breaker.
+ */
+public class DeadlinePropagatingRequestFactory extends HttpComponentsClientHttpRequestFactory {
+
+    private static final ThreadLocal<ClassicHttpRequest> CREATED = new ThreadLocal<>();
+
+    private final String client;
+    private final MeterRegistry meterRegistry;
+    private final Counter skippedCounter;
+
+    /**
+     * @param client the client the factory serves ({@link ArubaRateLimiter#PEC_API} or
+     *               {@link ArubaRateLimiter#OAUTH2}), used to tag metrics by endpoint
+     */
+    public DeadlinePropagatingRequestFactory(HttpClient httpClient, String client, MeterRegistry meterRegistry) {
+        super(httpClient);
+        this.client = client;
+        this.meterRegistry = meterRegistry;
+        this.skippedCounter = Counter.builder("pec.cancellation.skipped")
+                .description("Work not started because the gRPC caller had already cancelled or timed out")
+                .tag("stage", "aruba_request")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public ClientHttpRequest createRequest(URI uri, HttpMethod httpMethod) throws IOException {
+        Context context = Context.current();
+        if (context.isCancelled()) {
+            skippedCounter.increment();
+            throw CallerContexts.cancelled(context);
+        }
+        ClientHttpRequest request;
+        ClassicHttpRequest nativeRequest;
+        try {
+            request = super.createRequest(uri, httpMethod);
+            nativeRequest = CREATED.get();
+        } finally {
+            CREATED.remove();
+        }
+        if (!isAbortable(httpMethod) || !(nativeRequest instanceof HttpUriRequestBase abortable)) {
+            return request;
+        }
+        return new CancellableRequest(request, abortable, context);
+    }
+
+    @Override
+    protected void postProcessHttpRequest(ClassicHttpRequest request) {
+        CREATED.set(request);
+    }
+
+    /** Caps the pool and response timeouts of reads at the caller's remaining deadline. */
+    @Override
+    @Nullable
+    protected HttpContext createHttpContext(HttpMethod httpMethod, URI uri) {
+        HttpContext custom = super.createHttpContext(httpMethod, uri);
+        Deadline deadline = Context.current().getDeadline();
+        if (custom != null || deadline == null || !isAbortable(httpMethod)) {
+            return custom;
+        }
+        Timeout remaining = Timeout.ofMilliseconds(Math.max(deadline.timeRemaining(TimeUnit.MILLISECONDS), 1));
+        RequestConfig config = createRequestConfig(getHttpClient());
+        RequestConfig.Builder capped = RequestConfig.copy(config);
+        boolean shortened = false;
+        if (exceeds(config.getResponseTimeout(), remaining)) {
+            capped.setResponseTimeout(remaining);
+            shortened = true;
+        }
+        if (exceeds(config.getConnectionRequestTimeout(), remaining)) {
+            capped.setConnectionRequestTimeout(remaining);
+        }
+        if (shortened) {
+            counter("pec.cancellation.timeout.capped",
+                    "Aruba reads whose response timeout was shortened to the caller's deadline", httpMethod, uri)
+                    .increment();
+        }
+        HttpClientContext httpContext = HttpClientContext.create();
+        httpContext.setRequestConfig(capped.build());
+        return httpContext;
+    }
+
+    // Helpers
+
+    private static boolean isAbortable(HttpMethod httpMethod) {
+        return httpMethod == HttpMethod.GET || httpMethod == HttpMethod.HEAD;
+    }
+
+    private static boolean exceeds(@Nullable Timeout timeout, Timeout limit) {
+        return timeout == null || timeout.isDisabled() || timeout.toMilliseconds() > limit.toMilliseconds();
+    }
+
+    private Counter counter(String name, String description, HttpMethod httpMethod, URI uri) {
+        return Counter.builder(name)
+                .description(description)
+                .tag("endpoint", ArubaEndpoint.of(client, httpMethod, uri).tag())
+                .register(meterRegistry);
+    }
+
+    /**
+     * Aborts the underlying request when the caller's context is cancelled, for as long as
+     * the request or its response is open.
+     */
+    private final class CancellableRequest implements ClientHttpRequest, StreamingHttpOutputMessage {
+
+        private final ClientHttpRequest delegate;
+        private final HttpUriRequestBase nativeRequest;
+        private final Context context;
+
+        CancellableRequest(ClientHttpRequest delegate, HttpUriRequestBase nativeRequest, Context context) {
+            this.delegate = delegate;
+            this.nativeRequest = nativeRequest;
+            this.context = context;
+        }
+
+        @Override
+        public ClientHttpResponse execute() throws IOException {
+            Context.CancellationListener abort = cancelled -> {
+                if (nativeRequest.cancel()) {
+                    counter("pec.cancellation.aborted",
+                            "In-flight Aruba reads aborted because the gRPC caller went away",
+                            getMethod(), getURI())
+                            .increment();
+                }
+            };
+            context.addListener(abort, Runnable::run);
+            try {
+                return new ListenedResponse(delegate.execute(), () -> context.removeListener(abort));
+            } catch (IOException e) {
+                context.removeListener(abort);
+                if (context.isCancelled()) {
+                    StatusRuntimeException cancelled = CallerContexts.cancelled(context);
+                    cancelled.addSuppressed(e);
+                    throw cancelled;
+                }
+                throw e;
+            } catch (RuntimeException e) {
+                context.removeListener(abort);
+                throw e;
+            }
+        }
+
+        @Override
+        public void setBody(Body body) {
+            ((StreamingHttpOutputMessage) delegate).setBody(body);
+        }
+
+        @Override
+        public OutputStream getBody() throws IOException {
+            return delegate.getBody();
+        }
+
+        @Override
+        public HttpMethod getMethod() {
+            return delegate.getMethod();
+        }
+
+        @Override
+        public URI getURI() {
+            return delegate.getURI();
+        }
+
+        @Override
+        public Map<String, Object> getAttributes() {
+            return delegate.getAttributes();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return delegate.getHeaders();
+        }
+    }
+
+    private record ListenedResponse(ClientHttpResponse delegate, Runnable onClose) implements ClientHttpResponse {
+
+        @Override
+        public HttpStatusCode getStatusCode() throws IOException {
+            return delegate.getStatusCode();
+        }
+
+        @Override
+        public String getStatusText() throws IOException {
+            return delegate.getStatusText();
+        }
+
+        @Override
+        public InputStream getBody() throws IOException {
+            return delegate.getBody();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return delegate.getHeaders();
+        }
+
+        @Override
+        public void close() {
+            try {
+                delegate.close();
+            } finally {
+                onClose.run();
+            }
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.aruba.zeta.pecintegration.client.resilience;
+
+import java.util.Arrays;
+
+/**
+ * Ring of the most recent call latencies with a cached percentile. The percentile is
+ * recomputed (by sorting a copy of the ring) every tenth of a window, so a read is a field
+ * access and the sort cost is amortised over the samples that changed it.
+ */
+final class LatencyWindow {
+
+    private final long[] samples;
+    private final double percentile;
+    private final int refreshEvery;
+
+    private int next;
+    private int size;
+    private int sinceRefresh;
+    private volatile long cachedNanos = -1;
+
+    LatencyWindow(int capacity, double percentile) {
+        this.samples = new long[Math.max(capacity, 1)];
+        this.percentile = percentile;
+        this.refreshEvery = Math.max(samples.length / 10, 1);
+    }
+
+    synchronized void record(long nanos) {
+        samples[next] = nanos;
+        next = (next + 1) % samples.length;
+        size = Math.min(size + 1, samples.length);
+        if (++sinceRefresh >= refreshEvery) {
+            sinceRefresh = 0;
+            long[] sorted = Arrays.copyOf(samples, size);
+            Arrays.sort(sorted);
+            int rank = (int) Math.ceil(percentile * size) - 1;
+            cachedNanos = sorted[Math.clamp(rank, 0, size - 1)];
+        }
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    /** The percentile as of the last refresh, or {@code -1} before the first one. */
+    long percentileNanos() {
+        return cachedNanos;
+    }
+}
@@ -0,0 +1,67 @@
+package com.aruba.zeta.pecintegration.client.resilience;
+
+/**
+ * Token bucket with reservations: a caller takes a token now and is told how long to wait
+ * before using it, so queued callers are spaced at the refill rate instead of retrying in
+ * a loop. The balance goes negative while callers are queued.
+ *
+ * <p>The bucket can be paused (e.g. on Retry-After): no tokens accrue until the pause ends
+ * and every reservation waits at least until then. Times are {@link System#nanoTime()}.
+ */
+final class TokenBucket {
+
+    private final double permitsPerNano;
+    private final double capacity;
+
+    private double tokens;
+    private long lastRefill;
+    private long pausedUntil;
+
+    TokenBucket(double permitsPerSecond, int burst, long nowNanos) {
+        this.permitsPerNano = permitsPerSecond / 1_000_000_000d;
+        this.capacity = Math.max(burst, 1);
+        this.tokens = capacity;
+        this.lastRefill = nowNanos;
+        this.pausedUntil = nowNanos;
+    }
+
+    /**
+     * Reserves one token.
+     *
+     * @return nanoseconds to wait before using the token, or {@code -1} (nothing reserved)
+     *         when the wait would exceed {@code maxWaitNanos}
+     */
+    synchronized long reserve(long nowNanos, long maxWaitNanos) {
+        refill(nowNanos);
+        long wait = Math.max(0, pausedUntil - nowNanos);
+        double deficit = 1 - tokens;
+        if (deficit > 0) {
+            wait += (long) Math.ceil(deficit / permitsPerNano);
+        }
+        if (wait > maxWaitNanos) {
+            return -1;
+        }
+        tokens -= 1;
+        return wait;
+    }
+
+    /** Returns a reserved token that will not be used. */
+    synchronized void refund() {
+        tokens = Math.min(capacity, tokens + 1);
+    }
+
+    synchronized void pauseUntil(long untilNanos) {
+        if (untilNanos - pausedUntil > 0) {
+            pausedUntil = untilNanos;
+        }
+    }
+
+    private void refill(long nowNanos) {
+        // Nothing accrues while paused
+        long from = Math.max(lastRefill, Math.min(pausedUntil, nowNanos));
+        if (nowNanos > from) {
+            tokens = Math.min(capacity, tokens + (nowNanos - from) * permitsPerNano);
+        }
+        lastRefill = Math.max(lastRefill, nowNanos);
+    }
+}
@@ -1,34 +1,72 @@
 package com.aruba.zeta.pecintegration.client.rest;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.util.List;
 
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.StreamingHttpOutputMessage;
 import jakarta.annotation.Nullable;
 import org.springframework.stereotype.Component;
+import org.springframework.web.client.DefaultResponseErrorHandler;
+import org.springframework.web.client.ResponseErrorHandler;
 import org.springframework.web.client.RestClient;
+import org.springframework.web.util.UriBuilder;
 
+import com.aruba.zeta.pecintegration.client.resilience.ArubaEndpoint;
+import com.aruba.zeta.pecintegration.client.resilience.ArubaHedger;
+import com.aruba.zeta.pecintegration.client.resilience.ArubaStreamingGuard;
+import com.aruba.zeta.pecintegration.config.ArubaPecOAuth2Properties;
+import com.aruba.zeta.pecintegration.dto.ArubaDocumentUploadResponse;
 import com.aruba.zeta.pecintegration.dto.ArubaMailboxDto;
-import com.aruba.zeta.pecintegration.dto.ArubaMessagePage;
+import com.aruba.zeta.pecintegration.dto.ArubaMailboxListing;
 import com.aruba.zeta.pecintegration.dto.ArubaSendMessageRequest;
 import com.aruba.zeta.pecintegration.dto.ArubaSendMessageResponse;
+import com.aruba.zeta.pecintegration.dto.DecodedMessagePage;
+import com.aruba.zeta.pecintegration.mapper.ArubaMessagePageDecoder;
+import com.aruba.zeta.pecintegration.mapper.PecMessageProjection;
 
 import lombok.extern.slf4j.Slf4j;
 
 /**
  * REST client for the Aruba PEC API.
  * Injects the provided access token into the Authorization header for all requests.
+ * Reads are idempotent and run through {@link ArubaHedger}, which may send a second copy
+ * of a slow one.
  */
 @Slf4j
 @Component
 public class ArubaPecApiClient {
 
+    private static final ResponseErrorHandler ERROR_HANDLER = new DefaultResponseErrorHandler();
+    private static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+
     private final RestClient restClient;
+    private final RestClient streamingRestClient;
+    private final ArubaHedger hedger;
+    private final ArubaStreamingGuard streamingGuard;
+    private final String messageFieldsParam;
 
-    public ArubaPecApiClient(@Qualifier("arubaPecApiRestClient") RestClient restClient) {
+    public ArubaPecApiClient(
+            @Qualifier("arubaPecApiRestClient") RestClient restClient,
+            @Qualifier("arubaPecStreamingRestClient") RestClient streamingRestClient,
+            ArubaHedger hedger,
+            ArubaStreamingGuard streamingGuard,
+            ArubaPecOAuth2Properties props) {
         this.restClient = restClient;
+        this.streamingRestClient = streamingRestClient;
+        this.hedger = hedger;
+        this.streamingGuard = streamingGuard;
+        this.messageFieldsParam = props.getMessageFieldsParam();
     }
 
     /**
@@ -38,37 +76,105 @@ public class ArubaPecApiClient {
      * @return list of mailboxes
      */
     public List<ArubaMailboxDto> getMailboxes(String accessToken) {
-        log.debug("Fetching PEC mailboxes from Aruba");
-        return restClient.get()
+        return getMailboxes(accessToken, null, null).mailboxes();
+    }
+
+    /**
+     * Retrieves all accessible PEC mailboxes unless they changed since a previous listing.
+     * The entity tag takes precedence; the modification date is only sent without one.
+     *
+     * @param accessToken  OAuth2 access token
+     * @param etag         {@code ETag} of the previous listing, sent as {@code If-None-Match}
+     * @param lastModified {@code Last-Modified} of the previous listing, sent as {@code If-Modified-Since}
+     * @return the listing, or a not-modified result when the validators still match
+     */
+    public ArubaMailboxListing getMailboxes(String accessToken, @Nullable String etag, @Nullable String lastModified) {
+        log.debug("Fetching PEC mailboxes from Aruba{}", etag != null || lastModified != null ? " (conditional)" : "");
+        ResponseEntity<List<ArubaMailboxDto>> response = hedger.call(ArubaEndpoint.MAILBOXES, () -> restClient.get()
                 .uri("/mailboxes")
                 .header(HttpHeaders.AUTHORIZATION, bearer(accessToken))
+                .headers(headers -> {
+                    if (etag != null) {
+                        headers.setIfNoneMatch(etag);
+                    } else if (lastModified != null) {
+                        headers.set(HttpHeaders.IF_MODIFIED_SINCE, lastModified);
+                    }
+                })
                 .retrieve()
-                .body(new ParameterizedTypeReference<>() {});
+                .toEntity(new ParameterizedTypeReference<List<ArubaMailboxDto>>() {}));
+        if (response.getStatusCode().isSameCodeAs(HttpStatus.NOT_MODIFIED)) {
+            return new ArubaMailboxListing(List.of(), etag, lastModified, true);
+        }
+        List<ArubaMailboxDto> mailboxes = response.getBody() != null ? response.getBody() : List.of();
+        return new ArubaMailboxListing(mailboxes, response.getHeaders().getETag(),
+                response.getHeaders().getFirst(HttpHeaders.LAST_MODIFIED), false);
     }
 
     // Message operations
 
     /**
-     * Retrieves messages for a mailbox, optionally filtered by date range.
+     * Retrieves a single page of messages, decoding the response body as a stream straight
+     * into proto messages (see {@link ArubaMessagePageDecoder}).
      *
      * @param accessToken OAuth2 access token
      * @param mailboxId   mailbox identifier
      * @param startDate   optional lower bound filter (inclusive)
      * @param endDate     optional upper bound filter (inclusive)
-     * @return page of messages
+     * @param page        optional 0-based page index (Aruba default: first page)
+     * @param size        optional page size (Aruba default when absent)
+     * @return decoded page of proto messages
      */
-    public ArubaMessagePage getMessages(String accessToken, String mailboxId, @Nullable Instant startDate, @Nullable Instant endDate) {
-        log.debug("Fetching messages for mailbox {} (startDate={}, endDate={})", mailboxId, startDate, endDate);
-        return restClient.get()
+    public DecodedMessagePage getMessagePage(String accessToken, String mailboxId, @Nullable Instant startDate, @Nullable Instant endDate,
+                                             @Nullable Integer page, @Nullable Integer size) {
+        return getMessagePage(accessToken, mailboxId, startDate, endDate, page, size, PecMessageProjection.ALL);
+    }
+
+    /**
+     * Retrieves a single page of messages, building only the fields in {@code projection}.
+     * The projection is also sent to Aruba as a sparse fieldset when
+     * {@code aruba.oauth2.message-fields-param} is configured.
+     *
+     * @param accessToken OAuth2 access token
+     * @param mailboxId   mailbox identifier
+     * @param startDate   optional lower bound filter (inclusive)
+     * @param endDate     optional upper bound filter (inclusive)
+     * @param page        optional 0-based page index (Aruba default: first page)
+     * @param size        optional page size (Aruba default when absent)
+     * @param projection  message fields to build
+     * @return decoded page of proto messages
+     */
+    public DecodedMessagePage getMessagePage(String accessToken, String mailboxId, @Nullable Instant startDate, @Nullable Instant endDate,
+                                             @Nullable Integer page, @Nullable Integer size, PecMessageProjection projection) {
+        log.debug("Streaming messages for mailbox {} (startDate={}, endDate={}, page={}, size={})",
+                mailboxId, startDate, endDate, page, size);
+        return hedger.call(ArubaEndpoint.MESSAGES, () -> restClient.get()
                 .uri(uriBuilder -> {
-                    uriBuilder.path("/mailboxes/{mailboxId}/messages");
-                    if (startDate != null) uriBuilder.queryParam("startDate", startDate);
-                    if (endDate != null)   uriBuilder.queryParam("endDate", endDate);
-                    return uriBuilder.build(mailboxId);
+                    if (!projection.isAll() && !messageFieldsParam.isBlank()) {
+                        uriBuilder.queryParam(messageFieldsParam, projection.arubaFields());
+                    }
+                    return messagesUri(uriBuilder, mailboxId, startDate, endDate, page, size);
                 })
                 .header(HttpHeaders.AUTHORIZATION, bearer(accessToken))
-                .retrieve()
-                .body(ArubaMessagePage.class);
+                .exchange((request, response) -> {
+                    if (response.getStatusCode().isError()) {
+                        ERROR_HANDLER.handleError(request.getURI(), request.getMethod(), response);
+                    }
+                    return ArubaMessagePageDecoder.decode(response.getBody(), projection);
+                }));
+    }
+
+    /**
+     * Cheap change probe: asks for a single message received at or after {@code since}.
+     * Only the page header matters to callers: {@code totalElements} is the number of
+     * messages matching the filter, at the cost of one tiny response.
+     *
+     * @param accessToken OAuth2 access token
+     * @param mailboxId   mailbox identifier
+     * @param since       optional lower bound filter (inclusive)
+     * @return first page of size 1
+     */
+    public DecodedMessagePage probeMessages(String accessToken, String mailboxId, @Nullable Instant since) {
+        return getMessagePage(accessToken, mailboxId, since, null, 0, 1);
     }
 
     /**
@@ -80,17 +186,123 @@ public class ArubaPecApiClient {
      * @return submission acknowledgement
      */
     public ArubaSendMessageResponse sendMessage(String accessToken, String mailboxId, ArubaSendMessageRequest request) {
+        return sendMessage(accessToken, mailboxId, request, null);
+    }
+
+    /**
+     * Submits a new outbound PEC message, forwarding {@code idempotencyKey} as the
+     * {@code Idempotency-Key} header so Aruba can recognise a resubmission.
+     *
+     * @param accessToken    OAuth2 access token
+     * @param mailboxId      sender mailbox identifier
+     * @param request        message payload
+     * @param idempotencyKey optional key identifying the submission
+     * @return submission acknowledgement
+     */
+    public ArubaSendMessageResponse sendMessage(String accessToken, String mailboxId, ArubaSendMessageRequest request,
+                                                @Nullable String idempotencyKey) {
         log.debug("Sending PEC message from mailbox {} to {}", mailboxId, request.getTo());
         return restClient.post()
                 .uri("/mailboxes/{mailboxId}/messages", mailboxId)
                 .header(HttpHeaders.AUTHORIZATION, bearer(accessToken))
+                .headers(headers -> {
+                    if (idempotencyKey != null) headers.set(IDEMPOTENCY_KEY, idempotencyKey);
+                })
                 .body(request)
                 .retrieve()
                 .body(ArubaSendMessageResponse.class);
     }
 
+    // Document operations
+
+    /**
+     * Uploads a document to Aruba storage, writing the request body as {@code body}
+     * produces it (chunked transfer encoding), never holding the whole document in memory.
+     * The body cannot be replayed, so the upload is not retried.
+     *
+     * @param accessToken OAuth2 access token
+     * @param fileName    original file name
+     * @param contentType MIME type, {@code application/octet-stream} when unknown
+     * @param body        writes the document bytes
+     * @return the stored document
+     */
+    public ArubaDocumentUploadResponse uploadDocument(String accessToken, String fileName, @Nullable MediaType contentType,
+                                                      StreamingHttpOutputMessage.Body body) {
+        log.debug("Uploading document {} to Aruba", fileName);
+        return streamingGuard.execute(ArubaEndpoint.UPLOADS, () -> streamingRestClient.post()
+                .uri("/documents")
+                .header(HttpHeaders.AUTHORIZATION, bearer(accessToken))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename(fileName, StandardCharsets.UTF_8)
+                        .build()
+                        .toString())
+                .contentType(contentType != null ? contentType : MediaType.APPLICATION_OCTET_STREAM)
+                .body(body)
+                .retrieve()
+                .body(ArubaDocumentUploadResponse.class));
+    }
+
+    // Attachment operations
+
+    /**
+     * Downloads an attachment, handing the response body to {@code handler} as a stream.
+     * The body is never buffered: it must be consumed inside the handler, and closing the
+     * response early (e.g. when the caller gives up) drops the connection instead of
+     * draining it. Not hedged, since a second copy of a large download would only add load.
+     *
+     * <p>The ATTACHMENTS breaker permit is held until the handler returns, so its bulkhead
+     * bounds the transfers in progress and a body that fails midway counts against the
+     * endpoint. A handler that gives up because its consumer went away should throw
+     * {@link ArubaStreamingGuard.BodyAbortedException}.
+     *
+     * @param accessToken  OAuth2 access token
+     * @param mailboxId    mailbox identifier
+     * @param messageId    message identifier
+     * @param attachmentId attachment (document) identifier
+     * @param handler      consumes the body
+     * @return the handler's result
+     */
+    public <T> T downloadAttachment(String accessToken, String mailboxId, String messageId, String attachmentId,
+                                    AttachmentBodyHandler<T> handler) {
+        log.debug("Downloading attachment {} of message {} in mailbox {}", attachmentId, messageId, mailboxId);
+        return streamingGuard.execute(ArubaEndpoint.ATTACHMENTS, () -> streamingRestClient.get()
+                .uri("/mailboxes/{mailboxId}/messages/{messageId}/attachments/{attachmentId}",
+                        mailboxId, messageId, attachmentId)
+                .header(HttpHeaders.AUTHORIZATION, bearer(accessToken))
+                .accept(MediaType.APPLICATION_OCTET_STREAM, MediaType.ALL)
+                .exchange((request, response) -> {
+                    if (response.getStatusCode().isError()) {
+                        ERROR_HANDLER.handleError(request.getURI(), request.getMethod(), response);
+                    }
+                    HttpHeaders headers = response.getHeaders();
+                    return handler.handle(headers.getContentType(), headers.getContentLength(), response.getBody());
+                }));
+    }
+
+    /** Consumes a streamed attachment body. */
+    @FunctionalInterface
+    public interface AttachmentBodyHandler<T> {
+
+        /**
+         * @param contentType   {@code Content-Type} of the attachment, if sent
+         * @param contentLength size in bytes, or {@code -1} when unknown
+         * @param body          the body; read it before returning
+         */
+        T handle(@Nullable MediaType contentType, long contentLength, InputStream body) throws IOException;
+    }
+
     // Helpers
 
+    private static URI messagesUri(UriBuilder uriBuilder, String mailboxId, @Nullable Instant startDate, @Nullable Instant endDate,
+                                   @Nullable Integer page, @Nullable Integer size) {
+        uriBuilder.path("/mailboxes/{mailboxId}/messages");
+        if (startDate != null) uriBuilder.queryParam("startDate", startDate);
+        if (endDate != null)   uriBuilder.queryParam("endDate", endDate);
+        if (page != null)      uriBuilder.queryParam("page", page);
+        if (size != null)      uriBuilder.queryParam("size", size);
+        return uriBuilder.build(mailboxId);
+    }
+
     private static String bearer(String token) {
         return "Bearer " + token;
     }
@@ -0,0 +1,41 @@
+package com.aruba.zeta.pecintegration.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * Configuration properties for the per-endpoint circuit breakers and bulkheads around
+ * Aruba calls. Binds to {@code aruba.circuit-breaker.*}.
+ */
+@Data
+@ConfigurationProperties(prefix = "aruba.circuit-breaker")
+public class ArubaCircuitBreakerProperties {
+
+    /** Guard Aruba endpoints with circuit breakers and bulkheads. */
+    private boolean enabled = true;
+
+    /** Number of most recent calls per endpoint the failure and slow-call rates are computed over. */
+    private int slidingWindowSize = 50;
+
+    /** Calls that must be recorded in the window before the breaker may open. */
+    private int minimumCalls = 20;
+
+    /** Percentage of failed calls (I/O errors, 5xx) in the window that opens the breaker. */
+    private int failureRateThreshold = 50;
+
+    /** Calls slower than this (milliseconds) count as slow. */
+    private long slowCallDurationMs = 5_000;
+
+    /** Percentage of slow calls in the window that opens the breaker. */
+    private int slowCallRateThreshold = 80;
+
+    /** How long an open breaker rejects calls before letting trial calls through. */
+    private long openDurationMs = 30_000;
+
+    /** Trial calls admitted while half-open; all must succeed for the breaker to close. */
+    private int halfOpenPermittedCalls = 5;
+
+    /** Concurrent calls per endpoint; calls beyond it are rejected rather than queued. */
+    private int bulkheadMaxConcurrentCalls = 25;
+}
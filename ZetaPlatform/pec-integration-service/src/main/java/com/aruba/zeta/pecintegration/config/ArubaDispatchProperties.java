@@ -0,0 +1,32 @@
+package com.aruba.zeta.pecintegration.config;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * Configuration properties for the fair dispatcher in front of the Aruba PEC API.
+ * Binds to {@code aruba.dispatch.*}.
+ */
+@Data
+@ConfigurationProperties(prefix = "aruba.dispatch")
+public class ArubaDispatchProperties {
+
+    /** Queue Aruba calls fairly across users and priority classes. */
+    private boolean enabled = true;
+
+    /** Aruba calls in flight per pod; matches the per-route connection pool by default. */
+    private int maxConcurrentCalls = 50;
+
+    /** Calls a user may start per round-robin turn, before weighting. */
+    private int quantum = 1;
+
+    /** Per-user weights multiplying the quantum, keyed by user id; unlisted users weigh 1. */
+    private Map<String, Integer> userWeights = new HashMap<>();
+
+    /** Longest a call queues for a slot when the caller has no (or a later) gRPC deadline. */
+    private long maxQueueWaitMs = 30_000;
+}
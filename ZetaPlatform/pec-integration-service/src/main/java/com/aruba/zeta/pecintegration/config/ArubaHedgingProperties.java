@@ -0,0 +1,32 @@
+package com.aruba.zeta.pecintegration.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * Configuration properties for hedged Aruba read requests.
+ * Binds to {@code aruba.hedging.*}.
+ */
+@Data
+@ConfigurationProperties(prefix = "aruba.hedging")
+public class ArubaHedgingProperties {
+
+    /** Send a second copy of slow idempotent GETs and keep whichever answers first. */
+    private boolean enabled = false;
+
+    /** Latency percentile of an endpoint after which the hedge is sent. */
+    private double percentile = 0.95;
+
+    /** Recent latencies per endpoint the percentile is computed over. */
+    private int windowSize = 1_000;
+
+    /** Latencies an endpoint must have recorded before it is hedged at all. */
+    private int minSamples = 100;
+
+    /** Lower bound of the hedge delay (milliseconds), however fast the endpoint currently is. */
+    private long minDelayMs = 50;
+
+    /** Extra requests allowed, as a percentage of the hedgeable requests. */
+    private double budgetPercent = 5;
+}
@@ -26,7 +26,42 @@ public class ArubaPecOAuth2Properties {
 
     private String apiBaseUrl;
 
+    /**
+     * Query parameter through which Aruba accepts a comma-separated list of message fields
+     * (sparse fieldsets). Blank when Aruba does not support it: read masks are then applied
+     * locally only.
+     */
+    private String messageFieldsParam = "";
+
     private int connectTimeoutMs = 5_000;
 
     private int readTimeoutMs = 30_000;
+
+    /** Request factory backing the Aruba RestClients. */
+    private HttpClientType httpClient = HttpClientType.POOLED;
+
+    /** Pooled transport: maximum concurrent connections per host. */
+    private int maxConnectionsPerRoute = 50;
+
+    /** Pooled transport: maximum concurrent connections across all hosts. */
+    private int maxConnectionsTotal = 200;
+
+    /** Pooled transport: idle time after which a kept-alive connection is evicted. */
+    private long idleEvictionMs = 30_000;
+
+    /** Pooled transport: maximum lifetime of a connection regardless of activity. */
+    private long connectionTtlMs = 300_000;
+
+    public enum HttpClientType {
+        /** {@code HttpURLConnection} without pool control (legacy behaviour). */
+        SIMPLE,
+        /** Apache HttpClient 5 connection pool with keep-alive and idle eviction. */
+        POOLED,
+        /**
+         * JDK {@code HttpClient} negotiating HTTP/2 multiplexing, falling back to HTTP/1.1.
+         * Gives up the pool controls: no connection limits, idle eviction, pool metrics or
+         * deadline propagation.
+         */
+        HTTP2
+    }
 }
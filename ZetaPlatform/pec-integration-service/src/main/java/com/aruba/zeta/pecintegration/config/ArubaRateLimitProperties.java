@@ -0,0 +1,50 @@
+package com.aruba.zeta.pecintegration.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * Configuration properties for client-side rate limiting of outbound Aruba calls.
+ * Binds to {@code aruba.rate-limit.*}.
+ */
+@Data
+@ConfigurationProperties(prefix = "aruba.rate-limit")
+public class ArubaRateLimitProperties {
+
+    /** Apply the token buckets and Retry-After handling to Aruba calls. */
+    private boolean enabled = true;
+
+    /** Sustained PEC API rate for the whole client id, per pod. */
+    private double apiPermitsPerSecond = 100;
+
+    /** PEC API burst for the whole client id, per pod. */
+    private int apiBurst = 200;
+
+    /** Sustained PEC API rate for a single mailbox. */
+    private double mailboxPermitsPerSecond = 2;
+
+    /** PEC API burst for a single mailbox. */
+    private int mailboxBurst = 10;
+
+    /** Sustained rate of OAuth2 token endpoint calls (code exchanges and refreshes). */
+    private double oauth2PermitsPerSecond = 20;
+
+    /** Burst of OAuth2 token endpoint calls. */
+    private int oauth2Burst = 40;
+
+    /** Mailbox buckets kept in memory; idle ones are dropped first. */
+    private long maxMailboxBuckets = 100_000;
+
+    /** Longest a call queues for a permit when the caller has no (or a later) gRPC deadline. */
+    private long maxWaitMs = 2_000;
+
+    /** Retries of a call answered with 429 or 503. */
+    private int maxRetries = 2;
+
+    /** Base of the jittered exponential backoff when the response has no Retry-After. */
+    private long retryBaseDelayMs = 500;
+
+    /** Upper bound of a single retry delay, whatever Retry-After says. */
+    private long maxRetryDelayMs = 30_000;
+}
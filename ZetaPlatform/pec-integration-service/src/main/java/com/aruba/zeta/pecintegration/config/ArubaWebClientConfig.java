@@ -1,44 +1,170 @@
 package com.aruba.zeta.pecintegration.config;
 
+import java.net.http.HttpClient;
 import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
 import org.springframework.http.client.SimpleClientHttpRequestFactory;
 import org.springframework.web.client.RestClient;
 
+import com.aruba.zeta.pecintegration.client.resilience.ArubaCircuitBreakerInterceptor;
+import com.aruba.zeta.pecintegration.client.resilience.ArubaCircuitBreakers;
+import com.aruba.zeta.pecintegration.client.resilience.ArubaRateLimitInterceptor;
+import com.aruba.zeta.pecintegration.client.resilience.ArubaRateLimiter;
+import com.aruba.zeta.pecintegration.client.resilience.DeadlinePropagatingRequestFactory;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import jakarta.annotation.PreDestroy;
+
 /**
  * Configures RestClient instances for Aruba OAuth2 and PEC API communication.
- * Applies timeouts from configuration properties.
+ * Applies timeouts and the transport selected by {@code aruba.oauth2.http-client}.
+ *
+ * <p>Each RestClient gets its own request factory, so the OAuth2 and API hosts have
+ * independent connection pools, reported as {@code httpcomponents.httpclient.pool.*}
+ * metrics tagged {@code httpclient=aruba-oauth2} / {@code httpclient=aruba-pec-api}.
+ * Both clients are guarded per endpoint by {@link ArubaCircuitBreakers} and rate limited
+ * by {@link ArubaRateLimiter}. The pooled transport also honours the gRPC caller's
+ * deadline and cancellation ({@link DeadlinePropagatingRequestFactory}).
  */
 @Configuration
 class ArubaWebClientConfig {
 
+    /** JDK clients of the HTTP2 transport; unlike the pooled ones they are not closed by their factory. */
+    private final List<HttpClient> jdkHttpClients = new CopyOnWriteArrayList<>();
+
+    @Bean("arubaOAuth2RequestFactory")
+    ClientHttpRequestFactory arubaOAuth2RequestFactory(ArubaPecOAuth2Properties props, MeterRegistry meterRegistry) {
+        return buildRequestFactory(props, meterRegistry, "aruba-oauth2");
+    }
+
+    @Bean("arubaPecApiRequestFactory")
+    ClientHttpRequestFactory arubaPecApiRequestFactory(ArubaPecOAuth2Properties props, MeterRegistry meterRegistry) {
+        return buildRequestFactory(props, meterRegistry, "aruba-pec-api");
+    }
+
     @Bean("arubaOAuth2RestClient")
-    RestClient arubaOAuth2RestClient(ArubaPecOAuth2Properties props) {
+    RestClient arubaOAuth2RestClient(
+            ArubaPecOAuth2Properties props,
+            @Qualifier("arubaOAuth2RequestFactory") ClientHttpRequestFactory requestFactory,
+            ArubaCircuitBreakers circuitBreakers,
+            ArubaRateLimiter rateLimiter) {
         return RestClient.builder()
                 .baseUrl(props.getTokenUri())
                 .defaultHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_FORM_URLENCODED_VALUE)
-                .requestFactory(buildRequestFactory(props))
+                .requestFactory(requestFactory)
+                .requestInterceptor(new ArubaCircuitBreakerInterceptor(circuitBreakers, ArubaRateLimiter.OAUTH2))
+                .requestInterceptor(new ArubaRateLimitInterceptor(rateLimiter, ArubaRateLimiter.OAUTH2, false))
                 .build();
     }
 
     @Bean("arubaPecApiRestClient")
-    RestClient arubaPecApiRestClient(ArubaPecOAuth2Properties props) {
+    RestClient arubaPecApiRestClient(
+            ArubaPecOAuth2Properties props,
+            @Qualifier("arubaPecApiRequestFactory") ClientHttpRequestFactory requestFactory,
+            ArubaCircuitBreakers circuitBreakers,
+            ArubaRateLimiter rateLimiter) {
         return RestClient.builder()
                 .baseUrl(props.getApiBaseUrl())
                 .defaultHeader(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON_VALUE)
                 .defaultHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
-                .requestFactory(buildRequestFactory(props))
+                .requestFactory(requestFactory)
+                .requestInterceptor(new ArubaCircuitBreakerInterceptor(circuitBreakers, ArubaRateLimiter.PEC_API))
+                .requestInterceptor(new ArubaRateLimitInterceptor(rateLimiter, ArubaRateLimiter.PEC_API, true))
                 .build();
     }
 
-    private SimpleClientHttpRequestFactory buildRequestFactory(ArubaPecOAuth2Properties props) {
+    /**
+     * Client for streamed uploads and downloads. It has no interceptors, since those buffer
+     * the whole request body and let go of the breaker permit once the response headers
+     * arrive; callers apply rate limiting and circuit breaking around the whole transfer
+     * through {@link com.aruba.zeta.pecintegration.client.resilience.ArubaStreamingGuard}.
+     */
+    @Bean("arubaPecStreamingRestClient")
+    RestClient arubaPecStreamingRestClient(
+            ArubaPecOAuth2Properties props,
+            @Qualifier("arubaPecApiRequestFactory") ClientHttpRequestFactory requestFactory) {
+        return RestClient.builder()
+                .baseUrl(props.getApiBaseUrl())
+                .defaultHeader(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON_VALUE)
+                .requestFactory(requestFactory)
+                .build();
+    }
+
+    private ClientHttpRequestFactory buildRequestFactory(
+            ArubaPecOAuth2Properties props, MeterRegistry meterRegistry, String poolName) {
+        return switch (props.getHttpClient()) {
+            case SIMPLE -> buildSimpleRequestFactory(props);
+            case POOLED -> buildPooledRequestFactory(props, meterRegistry, poolName);
+            case HTTP2 -> buildHttp2RequestFactory(props);
+        };
+    }
+
+    private SimpleClientHttpRequestFactory buildSimpleRequestFactory(ArubaPecOAuth2Properties props) {
         var factory = new SimpleClientHttpRequestFactory();
         factory.setConnectTimeout(Duration.ofMillis(props.getConnectTimeoutMs()));
         factory.setReadTimeout(Duration.ofMillis(props.getReadTimeoutMs()));
         return factory;
     }
+
+    private DeadlinePropagatingRequestFactory buildPooledRequestFactory(
+            ArubaPecOAuth2Properties props, MeterRegistry meterRegistry, String poolName) {
+        PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnPerRoute(props.getMaxConnectionsPerRoute())
+                .setMaxConnTotal(props.getMaxConnectionsTotal())
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.ofMilliseconds(props.getConnectTimeoutMs()))
+                        .setSocketTimeout(Timeout.ofMilliseconds(props.getReadTimeoutMs()))
+                        .setTimeToLive(TimeValue.ofMilliseconds(props.getConnectionTtlMs()))
+                        .build())
+                .build();
+        new PoolingHttpClientConnectionManagerMetricsBinder(connectionManager, poolName).bindTo(meterRegistry);
+
+        CloseableHttpClient httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setResponseTimeout(Timeout.ofMilliseconds(props.getReadTimeoutMs()))
+                        .build())
+                .evictIdleConnections(TimeValue.ofMilliseconds(props.getIdleEvictionMs()))
+                .evictExpiredConnections()
+                .build();
+        return new DeadlinePropagatingRequestFactory(httpClient, poolName, meterRegistry);
+    }
+
+    /**
+     * The JDK client multiplexes requests over few connections and has no connection limits,
+     * idle eviction or pool metrics: the pool settings do not apply to this transport.
+     */
+    private JdkClientHttpRequestFactory buildHttp2RequestFactory(ArubaPecOAuth2Properties props) {
+        HttpClient httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(Duration.ofMillis(props.getConnectTimeoutMs()))
+                .build();
+        jdkHttpClients.add(httpClient);
+        var factory = new JdkClientHttpRequestFactory(httpClient);
+        factory.setReadTimeout(Duration.ofMillis(props.getReadTimeoutMs()));
+        return factory;
+    }
+
+    @PreDestroy
+    void closeJdkHttpClients() {
+        jdkHttpClients.forEach(HttpClient::close);
+    }
 }
@@ -0,0 +1,129 @@
+package com.aruba.zeta.pecintegration.config;
+
+import org.springframework.amqp.core.Base64UrlNamingStrategy;
+import org.springframework.amqp.core.Binding;
+import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.Declarables;
+import org.springframework.amqp.core.FanoutExchange;
+import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.core.QueueBuilder;
+import org.springframework.amqp.core.TopicExchange;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.support.converter.JacksonJsonMessageConverter;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.boot.amqp.autoconfigure.SimpleRabbitListenerContainerFactoryConfigurer;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.aruba.zeta.pecintegration.send.SendRetryBackoff;
+
+/**
+ * RabbitMQ topology and serialization for the events published by this service, the
+ * send pipeline, the status feed between pods and token cache invalidation. Exchanges and
+ * queues are declared lazily by the auto-configured {@code RabbitAdmin} on first connection.
+ */
+@Configuration
+public class PecAmqpConfig {
+
+    @Bean
+    public TopicExchange pecEventsExchange(PecAmqpProperties props) {
+        return new TopicExchange(props.getEventsExchange(), true, false);
+    }
+
+    /** Pending sends, persisted by the broker until a worker acknowledges them. */
+    @Bean
+    public Queue pecSendQueue(PecSendProperties props) {
+        return QueueBuilder.durable(props.getQueue()).build();
+    }
+
+    /**
+     * Delay queues of send retries, one per backoff step: their message TTL dead-letters an
+     * expired send back onto {@code pec.send.queue}.
+     */
+    @Bean
+    public Declarables pecSendRetryQueues(PecSendProperties props) {
+        return new Declarables(SendRetryBackoff.delaysMs(props).stream()
+                .map(delayMs -> QueueBuilder.durable(SendRetryBackoff.queue(props, delayMs))
+                        .ttl((int) Math.min(delayMs, Integer.MAX_VALUE))
+                        .deadLetterExchange("")
+                        .deadLetterRoutingKey(props.getQueue())
+                        .build())
+                .toList());
+    }
+
+    /**
+     * This pod's copy of the status-change events, for subscribers of sends made on other
+     * pods: removed with its connection, and bounded like the notice queue below.
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "pec.status", name = "event-feed-enabled", havingValue = "true")
+    public Queue pecStatusFeedQueue(PecAmqpProperties props) {
+        String name = new Base64UrlNamingStrategy(props.getStatusChangedRoutingKey() + ".").generateName();
+        return QueueBuilder.nonDurable(name)
+                .exclusive()
+                .autoDelete()
+                .maxLength(10_000)
+                .build();
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "pec.status", name = "event-feed-enabled", havingValue = "true")
+    public Binding pecStatusFeedBinding(
+            Queue pecStatusFeedQueue, TopicExchange pecEventsExchange, PecAmqpProperties props) {
+        return BindingBuilder.bind(pecStatusFeedQueue).to(pecEventsExchange).with(props.getStatusChangedRoutingKey());
+    }
+
+    /** Token invalidation notices reach every pod, each through its own queue. */
+    @Bean
+    @ConditionalOnProperty(prefix = "pec.token-cache", name = "invalidation-enabled", havingValue = "true")
+    public FanoutExchange pecTokenInvalidationExchange(PecTokenCacheProperties props) {
+        return new FanoutExchange(props.getInvalidationExchange(), true, false);
+    }
+
+    /**
+     * This pod's notice queue: removed with its connection, and bounded, since a notice
+     * that is late is not worth delivering.
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "pec.token-cache", name = "invalidation-enabled", havingValue = "true")
+    public Queue pecTokenInvalidationQueue(PecTokenCacheProperties props) {
+        String name = new Base64UrlNamingStrategy(props.getInvalidationExchange() + ".").generateName();
+        return QueueBuilder.nonDurable(name)
+                .exclusive()
+                .autoDelete()
+                .ttl((int) props.getInvalidationTtlMs())
+                .maxLength(10_000)
+                .build();
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "pec.token-cache", name = "invalidation-enabled", havingValue = "true")
+    public Binding pecTokenInvalidationBinding(
+            Queue pecTokenInvalidationQueue, FanoutExchange pecTokenInvalidationExchange) {
+        return BindingBuilder.bind(pecTokenInvalidationQueue).to(pecTokenInvalidationExchange);
+    }
+
+    /** Send workers: a fixed number of consumers, each holding a bounded number of deliveries. */
+    @Bean
+    public SimpleRabbitListenerContainerFactory pecSendListenerContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer,
+            ConnectionFactory connectionFactory,
+            PecSendProperties props) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        factory.setConcurrentConsumers(props.getConsumers());
+        factory.setMaxConcurrentConsumers(props.getConsumers());
+        factory.setPrefetchCount(props.getPrefetch());
+        // A delivery whose handling failed (e.g. its retry was not confirmed) goes back to the queue
+        factory.setDefaultRequeueRejected(true);
+        return factory;
+    }
+
+    /** Picked up by the auto-configured {@code RabbitTemplate}: events travel as JSON. */
+    @Bean
+    public MessageConverter amqpMessageConverter() {
+        return new JacksonJsonMessageConverter();
+    }
+}
@@ -0,0 +1,23 @@
+package com.aruba.zeta.pecintegration.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * Configuration properties for the events this service publishes to RabbitMQ.
+ * Binds to {@code pec.amqp.*}.
+ */
+@Data
+@ConfigurationProperties(prefix = "pec.amqp")
+public class PecAmqpProperties {
+
+    /** Topic exchange PEC events are published to. */
+    private String eventsExchange = "pec.events";
+
+    /** Routing key of new-message events. */
+    private String newMessageRoutingKey = "pec.message.new";
+
+    /** Routing key of delivery-status change events. */
+    private String statusChangedRoutingKey = "pec.message.status";
+}
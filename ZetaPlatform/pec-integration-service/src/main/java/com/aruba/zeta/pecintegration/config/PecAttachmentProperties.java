@@ -0,0 +1,17 @@
+package com.aruba.zeta.pecintegration.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * Configuration properties for attachment downloads.
+ * Binds to {@code pec.attachments.*}.
+ */
+@Data
+@ConfigurationProperties(prefix = "pec.attachments")
+public class PecAttachmentProperties {
+
+    /** Bytes per DownloadAttachment chunk; also the memory held per download. */
+    private int chunkSizeBytes = 64 * 1024;
+}
@@ -0,0 +1,34 @@
+package com.aruba.zeta.pecintegration.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * Configuration properties for the seen-message filter that suppresses duplicate
+ * new-message events. Binds to {@code pec.dedup.*}.
+ */
+@Data
+@ConfigurationProperties(prefix = "pec.dedup")
+public class PecDedupProperties {
+
+    /** Check polled messages against the seen-message filter before announcing them. */
+    private boolean enabled = true;
+
+    /** Messages one filter generation is sized for; a generation fuller than this rotates early. */
+    private long expectedMessagesPerGeneration = 5_000_000;
+
+    /** Target false-positive rate of one generation. */
+    private double falsePositiveRate = 0.001;
+
+    /** Lifetime of a generation; ids are remembered for one to two generations. */
+    private long generationPeriodMs = 86_400_000;
+
+    /**
+     * File the filter is snapshotted to and restored from, with the exact ledger in
+     * {@code <snapshot-path>.ledger.<generation>} files beside it; empty disables persistence.
+     */
+    private String snapshotPath = "";
+
+    private long snapshotIntervalMs = 300_000;
+}
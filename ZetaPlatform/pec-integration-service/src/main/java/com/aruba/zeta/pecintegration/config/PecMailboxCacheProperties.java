@@ -0,0 +1,24 @@
+package com.aruba.zeta.pecintegration.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * Configuration properties for the per-user mailbox list cache.
+ * Binds to {@code pec.mailbox-cache.*}.
+ */
+@Data
+@ConfigurationProperties(prefix = "pec.mailbox-cache")
+public class PecMailboxCacheProperties {
+
+    private boolean enabled = true;
+
+    private long maximumSize = 100_000;
+
+    /** Age (milliseconds) after which a read serves the entry and revalidates it in the background. */
+    private long refreshAfterMs = 300_000;
+
+    /** Age (milliseconds) after which an entry that could not be revalidated is dropped. */
+    private long expireAfterMs = 3_600_000;
+}
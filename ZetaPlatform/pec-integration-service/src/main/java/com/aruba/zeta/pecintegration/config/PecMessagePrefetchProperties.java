@@ -0,0 +1,26 @@
+package com.aruba.zeta.pecintegration.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * Configuration properties for speculative next-page prefetching in GetMessages.
+ * Binds to {@code pec.messages.prefetch.*}.
+ */
+@Data
+@ConfigurationProperties(prefix = "pec.messages.prefetch")
+public class PecMessagePrefetchProperties {
+
+    private boolean enabled = false;
+
+    private long maxBytes = 64L * 1024 * 1024;
+
+    private long ttlMs = 30_000;
+
+    /**
+     * Longest a GetMessages call waits for a prefetch of its page still in flight before
+     * fetching the page itself; also bounded by the caller's deadline.
+     */
+    private long maxWaitMs = 500;
+}
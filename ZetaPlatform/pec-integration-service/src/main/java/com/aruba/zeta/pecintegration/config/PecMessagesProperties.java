@@ -0,0 +1,17 @@
+package com.aruba.zeta.pecintegration.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * Configuration properties for GetMessages listings.
+ * Binds to {@code pec.messages.*}.
+ */
+@Data
+@ConfigurationProperties(prefix = "pec.messages")
+public class PecMessagesProperties {
+
+    /** Largest {@code page_size} forwarded to Aruba and cached; larger requests are clamped. */
+    private int maxPageSize = 500;
+}
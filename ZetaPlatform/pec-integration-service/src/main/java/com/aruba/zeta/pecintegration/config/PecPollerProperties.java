@@ -0,0 +1,62 @@
+package com.aruba.zeta.pecintegration.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * Configuration properties for the background mailbox poller.
+ * Binds to {@code pec.poller.*}.
+ */
+@Data
+@ConfigurationProperties(prefix = "pec.poller")
+public class PecPollerProperties {
+
+    /** Poll registered mailboxes in the background and publish new-message events. */
+    private boolean enabled = false;
+
+    /** Polls in flight across the whole pod. */
+    private int maxConcurrentPolls = 200;
+
+    /** Polls in flight for a single user, so one large account cannot starve the others. */
+    private int maxConcurrentPollsPerUser = 4;
+
+    /** Lower bound of the adaptive poll interval. */
+    private long minIntervalMs = 30_000;
+
+    /** Upper bound of the adaptive poll interval, reached by quiet mailboxes. */
+    private long maxIntervalMs = 900_000;
+
+    /** Smoothing factor of the arrival-rate EWMA; higher reacts faster to bursts. */
+    private double ewmaAlpha = 0.3;
+
+    /** New messages a poll should find on average; the interval is sized from the EWMA to match. */
+    private double targetMessagesPerPoll = 1.0;
+
+    /** How often the dispatcher hands due mailboxes to the executor. */
+    private long dispatchIntervalMs = 1_000;
+
+    /** Aruba page size used while polling. */
+    private int pageSize = 50;
+
+    /** Probe with a one-message page first and skip the full fetch when nothing arrived. */
+    private boolean probeEnabled = true;
+
+    /** Identity of this pod on the ownership ring; blank picks a random id per start. */
+    private String podId = "";
+
+    /** Lease lifetime; a pod that stops heartbeating loses its mailboxes after this long. */
+    private long leaseTtlMs = 30_000;
+
+    /** How often the lease is renewed and the member list re-read. */
+    private long heartbeatIntervalMs = 10_000;
+
+    /**
+     * How often the owned arcs of an unchanged ring are re-read from the registry, so
+     * mailboxes registered through other pods are picked up; checked on each heartbeat.
+     */
+    private long rescanIntervalMs = 60_000;
+
+    /** Tokens per pod on the hash ring; more tokens give a more even split. */
+    private int virtualNodes = 128;
+}
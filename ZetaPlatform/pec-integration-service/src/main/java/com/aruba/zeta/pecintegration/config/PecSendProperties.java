@@ -0,0 +1,44 @@
+package com.aruba.zeta.pecintegration.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * Configuration properties for the asynchronous SendMessage pipeline and send idempotency.
+ * Binds to {@code pec.send.*}.
+ */
+@Data
+@ConfigurationProperties(prefix = "pec.send")
+public class PecSendProperties {
+
+    /** Queue async SendMessage requests on RabbitMQ and run the send workers on this pod. */
+    private boolean asyncEnabled = false;
+
+    /** Durable queue holding pending sends. */
+    private String queue = "pec.send.requests";
+
+    /** Concurrent send workers per pod. */
+    private int consumers = 4;
+
+    /** Unacknowledged sends a worker holds at once. */
+    private int prefetch = 5;
+
+    /** How long accepting a send waits for the broker's publisher confirm (milliseconds). */
+    private long confirmTimeoutMs = 5_000;
+
+    /** Send attempts, counting the first, before a send that never reached Aruba is failed. */
+    private int maxAttempts = 5;
+
+    /** Delay before the first retry (milliseconds); doubles per attempt. */
+    private long retryBaseDelayMs = 1_000;
+
+    /** Upper bound of the retry delay (milliseconds). */
+    private long maxRetryDelayMs = 60_000;
+
+    /** How long submissions are remembered for idempotency and tracking (milliseconds). */
+    private long retentionMs = 86_400_000;
+
+    /** Submissions remembered by the in-memory store. */
+    private long maxRecords = 1_000_000;
+}
@@ -0,0 +1,53 @@
+package com.aruba.zeta.pecintegration.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * Configuration properties for delivery-status tracking of sent PEC messages.
+ * Binds to {@code pec.status.*}.
+ */
+@Data
+@ConfigurationProperties(prefix = "pec.status")
+public class PecStatusTrackingProperties {
+
+    /** Track sent messages until they are delivered or failed. */
+    private boolean enabled = true;
+
+    /** How often due mailboxes are looked for (milliseconds). */
+    private long dispatchIntervalMs = 1_000;
+
+    /** Delay of the first status check after a send (milliseconds). */
+    private long initialDelayMs = 30_000;
+
+    /** Upper bound of the check interval, which doubles after every check without changes (milliseconds). */
+    private long maxDelayMs = 1_800_000;
+
+    /** Messages still pending after this long (milliseconds) are no longer tracked. */
+    private long maxTrackingAgeMs = 259_200_000;
+
+    /** Mailboxes refreshed at once per pod. */
+    private int maxConcurrentRefreshes = 20;
+
+    /** Aruba page size of status refreshes. */
+    private int pageSize = 50;
+
+    /** Aruba pages a single mailbox refresh may read. */
+    private int maxPagesPerRefresh = 10;
+
+    /** Slack subtracted from the oldest submission time when listing a mailbox (milliseconds). */
+    private long lookbackSlackMs = 60_000;
+
+    /** How long final statuses stay available to new subscribers (milliseconds). */
+    private long recentFinalRetentionMs = 3_600_000;
+
+    /** Updates buffered per subscriber before a slow subscriber is disconnected. */
+    private int subscriberBufferSize = 256;
+
+    /**
+     * Hand the status changes detected by other pods to this pod's subscribers, through the
+     * status-change events. Without it, only sends made on this pod can be subscribed to.
+     */
+    private boolean eventFeedEnabled = false;
+}
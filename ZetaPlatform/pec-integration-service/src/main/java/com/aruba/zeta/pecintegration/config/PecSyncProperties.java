@@ -0,0 +1,43 @@
+package com.aruba.zeta.pecintegration.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * Configuration properties for the incremental per-mailbox sync engine.
+ * Binds to {@code pec.sync.*}.
+ */
+@Data
+@ConfigurationProperties(prefix = "pec.sync")
+public class PecSyncProperties {
+
+    /** Serve GetMessages from the local metadata store instead of proxying every call. */
+    private boolean enabled = false;
+
+    /** Staleness tolerated when the request does not set {@code max_staleness}. */
+    private long defaultMaxStalenessMs = 60_000;
+
+    /** How far back the first sync of a mailbox reaches; 0 syncs the full history. */
+    private int initialWindowDays = 30;
+
+    /** Messages retained per mailbox; older ones are dropped and coverage shrinks accordingly. */
+    private int maxMessagesPerMailbox = 1_000;
+
+    /**
+     * Total serialized size of the retained messages across mailboxes before
+     * least-recently-used mailboxes are evicted. Heap use is a small multiple of it.
+     */
+    private long maxBytes = 128L * 1024 * 1024;
+
+    /** Aruba page size used while fetching deltas. */
+    private int fetchPageSize = 100;
+
+    /** Page size for locally served listings when the request does not set one. */
+    private int defaultPageSize = 50;
+
+    /** File the store is snapshotted to and restored from; empty disables persistence. */
+    private String snapshotPath = "";
+
+    private long snapshotIntervalMs = 300_000;
+}
@@ -0,0 +1,32 @@
+package com.aruba.zeta.pecintegration.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * Configuration properties for the multi-mailbox GetTimeline RPC.
+ * Binds to {@code pec.timeline.*}.
+ */
+@Data
+@ConfigurationProperties(prefix = "pec.timeline")
+public class PecTimelineProperties {
+
+    /** Messages returned when the request sets no limit. */
+    private int defaultLimit = 100;
+
+    /** Upper bound of the request limit. */
+    private int maxLimit = 1_000;
+
+    /** Mailboxes read at once per request. */
+    private int maxConcurrentMailboxes = 8;
+
+    /** Time (milliseconds) all mailboxes together have to answer, at most the caller's deadline; late ones are left out. */
+    private long timeoutMs = 5_000;
+
+    /** Aruba page size used while reading a mailbox. */
+    private int pageSize = 100;
+
+    /** Aruba pages read per mailbox; a mailbox with more is reported incomplete. */
+    private int maxPagesPerMailbox = 5;
+}
@@ -0,0 +1,27 @@
+package com.aruba.zeta.pecintegration.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * Configuration properties for the in-process PEC access-token cache.
+ * Binds to {@code pec.token-cache.*}.
+ */
+@Data
+@ConfigurationProperties(prefix = "pec.token-cache")
+public class PecTokenCacheProperties {
+
+    private boolean enabled = true;
+
+    private long maximumSize = 100_000;
+
+    /** Whether token refreshes are broadcast to, and received from, the other pods. */
+    private boolean invalidationEnabled = false;
+
+    /** Fanout exchange carrying token invalidation notices. */
+    private String invalidationExchange = "pec.token-invalidations";
+
+    /** Time a notice may wait in a pod's queue before it is dropped (TTL expiry covers it). */
+    private long invalidationTtlMs = 60_000;
+}
@@ -0,0 +1,38 @@
+package com.aruba.zeta.pecintegration.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * Configuration properties for SendMessageWithUploads, the client-streaming send with
+ * document uploads. Binds to {@code pec.upload.*}.
+ */
+@Data
+@ConfigurationProperties(prefix = "pec.upload")
+public class PecUploadProperties {
+
+    /** Largest accepted chunk (bytes); larger chunks fail the stream. */
+    private int maxChunkBytes = 1024 * 1024;
+
+    /**
+     * Chunks requested from the client ahead of the Aruba upload. Together with
+     * {@code max-chunk-bytes} this caps the memory held per stream.
+     */
+    private int bufferedChunks = 8;
+
+    /** Largest accepted document (bytes). */
+    private long maxDocumentBytes = 100L * 1024 * 1024;
+
+    /** Documents accepted per stream. */
+    private int maxDocuments = 20;
+
+    /** A stream receiving nothing for this long (milliseconds) is failed. */
+    private long idleTimeoutMs = 30_000;
+
+    /**
+     * Upload streams one user may run at once per pod. Each holds an UPLOADS bulkhead permit
+     * at the client's pace, so this keeps one user from taking them all.
+     */
+    private int maxConcurrentStreamsPerUser = 2;
+}
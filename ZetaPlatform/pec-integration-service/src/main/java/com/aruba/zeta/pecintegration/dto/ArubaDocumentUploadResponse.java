@@ -0,0 +1,22 @@
+package com.aruba.zeta.pecintegration.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import lombok.Data;
+
+/**
+ * Response body returned by the document upload endpoint.
+ */
+@Data
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class ArubaDocumentUploadResponse {
+
+    /** Document identifier in Aruba's storage layer, usable in {@link ArubaSendMessageRequest#getDocumentIds()}. */
+    @JsonProperty("id")
+    private String id;
+
+    /** Stored size in bytes. */
+    @JsonProperty("size")
+    private long size;
+}
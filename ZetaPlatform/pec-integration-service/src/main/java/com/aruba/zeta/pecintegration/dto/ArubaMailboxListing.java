@@ -0,0 +1,22 @@
+package com.aruba.zeta.pecintegration.dto;
+
+import java.util.List;
+
+import jakarta.annotation.Nullable;
+
+/**
+ * Result of a conditional {@code GET /mailboxes}: the mailboxes and the validators Aruba
+ * sent with them, or {@code notModified} (and no mailboxes) when Aruba answered
+ * {@code 304 Not Modified}.
+ *
+ * @param mailboxes    the mailboxes; empty when not modified
+ * @param etag         {@code ETag} of the response, if any
+ * @param lastModified {@code Last-Modified} of the response, if any
+ * @param notModified  whether the validators sent still matched
+ */
+public record ArubaMailboxListing(
+        List<ArubaMailboxDto> mailboxes,
+        @Nullable String etag,
+        @Nullable String lastModified,
+        boolean notModified) {
+}
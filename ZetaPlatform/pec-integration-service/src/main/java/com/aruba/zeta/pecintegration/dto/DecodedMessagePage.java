@@ -0,0 +1,31 @@
+package com.aruba.zeta.pecintegration.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.aruba.zeta.pec.grpc.PecMessage;
+
+import lombok.Data;
+
+/**
+ * A page of Aruba messages decoded straight into proto messages, bypassing
+ * {@link ArubaMessagePage}/{@link ArubaMessageDto}. Pagination fields mirror
+ * {@link ArubaMessagePage}.
+ */
+@Data
+public class DecodedMessagePage {
+
+    private List<PecMessage> messages = new ArrayList<>();
+
+    /** 0-based page index of this result set. */
+    private int page;
+
+    /** Number of items per page requested. */
+    private int size;
+
+    /** Total number of messages available across all pages. */
+    private long totalElements;
+
+    /** Total number of pages available for the requested page size. */
+    private int totalPages;
+}
@@ -0,0 +1,46 @@
+package com.aruba.zeta.pecintegration.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Event published to RabbitMQ when a tracked outbound message changes delivery status.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PecMessageStatusChangedEvent {
+
+    /** Zeta user who sent the message. */
+    @JsonProperty("user_id")
+    private String userId;
+
+    /** Aruba mailbox the message was sent from. */
+    @JsonProperty("mailbox_id")
+    private String mailboxId;
+
+    /** Aruba message identifier. */
+    @JsonProperty("message_id")
+    private String messageId;
+
+    /** Tracking id of the submission, if it had one. */
+    @JsonProperty("tracking_id")
+    private String trackingId;
+
+    /** Status before the change (proto enum name). */
+    @JsonProperty("previous_status")
+    private String previousStatus;
+
+    /** Status after the change (proto enum name). */
+    @JsonProperty("status")
+    private String status;
+
+    /** ISO-8601 instant the change was detected. */
+    @JsonProperty("changed_at")
+    private String changedAt;
+}
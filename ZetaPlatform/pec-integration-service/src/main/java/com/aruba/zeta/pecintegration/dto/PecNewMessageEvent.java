@@ -0,0 +1,52 @@
+package com.aruba.zeta.pecintegration.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Event published to RabbitMQ when the poller sees a message for the first time.
+ *
+ * <p>Carries metadata only: consumers fetch the body through GetMessages if they need it.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PecNewMessageEvent {
+
+    /** Zeta user owning the mailbox. */
+    @JsonProperty("user_id")
+    private String userId;
+
+    /** Aruba mailbox the message was received in. */
+    @JsonProperty("mailbox_id")
+    private String mailboxId;
+
+    /** Aruba message identifier. */
+    @JsonProperty("message_id")
+    private String messageId;
+
+    /** Sender PEC address. */
+    @JsonProperty("sender_address")
+    private String senderAddress;
+
+    /** Message subject. */
+    @JsonProperty("subject")
+    private String subject;
+
+    /** Delivery status name, as in {@code PecMessage.status}. */
+    @JsonProperty("status")
+    private String status;
+
+    /** ISO-8601 timestamp of when Aruba received the message. */
+    @JsonProperty("received_at")
+    private String receivedAt;
+
+    /** ISO-8601 timestamp of when the poller detected the message. */
+    @JsonProperty("detected_at")
+    private String detectedAt;
+}
@@ -0,0 +1,57 @@
+package com.aruba.zeta.pecintegration.dto;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Queued PEC send, published to {@code pec.send.queue} by async SendMessage and consumed
+ * by the send workers. Self-contained, so any replica's worker can perform it.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PecSendCommand {
+
+    /** Tracking id of the submission. */
+    @JsonProperty("tracking_id")
+    private String trackingId;
+
+    /** Caller's idempotency key, or the tracking id when the caller gave none. */
+    @JsonProperty("idempotency_key")
+    private String idempotencyKey;
+
+    /** Zeta user who submitted the send. */
+    @JsonProperty("user_id")
+    private String userId;
+
+    /** Sender mailbox. */
+    @JsonProperty("mailbox_id")
+    private String mailboxId;
+
+    /** Recipient PEC address. */
+    @JsonProperty("recipient_address")
+    private String recipientAddress;
+
+    /** Message subject. */
+    @JsonProperty("subject")
+    private String subject;
+
+    /** Plain-text body. */
+    @JsonProperty("body_text")
+    private String bodyText;
+
+    /** Aruba document IDs to attach. */
+    @JsonProperty("document_ids")
+    private List<String> documentIds;
+
+    /** ISO-8601 instant the submission was accepted. */
+    @JsonProperty("accepted_at")
+    private String acceptedAt;
+}
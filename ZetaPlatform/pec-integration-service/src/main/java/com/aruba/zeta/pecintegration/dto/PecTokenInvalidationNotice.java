@@ -0,0 +1,36 @@
+package com.aruba.zeta.pecintegration.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Broadcast to the other pods when a pod stores a new token pair for a user, so they drop
+ * their cached copy of the old one. Never carries the token itself: peers re-read it from
+ * user-auth-service.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PecTokenInvalidationNotice {
+
+    /** Zeta user whose token was replaced. */
+    @JsonProperty("user_id")
+    private String userId;
+
+    /** Integration service type (proto enum name). */
+    @JsonProperty("service_type")
+    private String serviceType;
+
+    /** Expiration of the new access token (epoch seconds); orders token generations. */
+    @JsonProperty("expires_at")
+    private long expiresAt;
+
+    /** Pod that stored the token, which ignores its own notice. */
+    @JsonProperty("origin")
+    private String origin;
+}
@@ -0,0 +1,29 @@
+package com.aruba.zeta.pecintegration.grpc;
+
+import io.grpc.Context;
+import io.grpc.Deadline;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+
+/**
+ * Helpers for honouring the cancellation and deadline of the gRPC call being served, as
+ * carried by its {@link Context}. The context follows the work onto other threads only
+ * where it is propagated explicitly ({@link Context#wrap}).
+ */
+public final class CallerContexts {
+
+    private CallerContexts() {
+    }
+
+    /**
+     * Error to fail with once the caller of {@code context} is gone: {@code DEADLINE_EXCEEDED}
+     * if its deadline passed, {@code CANCELLED} otherwise.
+     */
+    public static StatusRuntimeException cancelled(Context context) {
+        Deadline deadline = context.getDeadline();
+        Status status = deadline != null && deadline.isExpired()
+                ? Status.DEADLINE_EXCEEDED.withDescription("Caller deadline exceeded")
+                : Status.CANCELLED.withDescription("Caller cancelled the call");
+        return status.withCause(context.cancellationCause()).asRuntimeException();
+    }
+}
@@ -0,0 +1,92 @@
+package com.aruba.zeta.pecintegration.grpc;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+
+/**
+ * Wraps a server-streaming response observer so a producer thread only emits while the
+ * transport is ready, following gRPC's manual flow-control contract.
+ *
+ * <p>Must be created inside the gRPC handler method (the ready/cancel handlers can only be
+ * registered there); the producer itself must run on a separate thread, because ready
+ * callbacks are delivered on the call's serialized executor and would never arrive if the
+ * handler thread blocked waiting for them.
+ *
+ * @param <T> response message type
+ */
+public final class FlowControlledStream<T> {
+
+    private static final long READY_POLL_MS = 1_000;
+
+    private final ServerCallStreamObserver<T> observer;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition readyOrCancelled = lock.newCondition();
+    private volatile boolean cancelled;
+
+    public FlowControlledStream(StreamObserver<T> responseObserver) {
+        this.observer = (ServerCallStreamObserver<T>) responseObserver;
+        this.observer.setOnReadyHandler(this::signal);
+        this.observer.setOnCancelHandler(() -> {
+            cancelled = true;
+            signal();
+        });
+    }
+
+    /**
+     * Blocks until the transport can accept another message, then emits it.
+     *
+     * @param value message to send
+     * @return {@code false} if the client cancelled the call and nothing was sent
+     * @throws InterruptedException if the producer thread is interrupted while waiting
+     */
+    public boolean send(T value) throws InterruptedException {
+        if (!awaitReady()) {
+            return false;
+        }
+        observer.onNext(value);
+        return true;
+    }
+
+    /** Completes the stream unless the client already cancelled it. */
+    public void complete() {
+        if (!cancelled) {
+            observer.onCompleted();
+        }
+    }
+
+    /** Fails the stream unless the client already cancelled it. */
+    public void fail(Throwable t) {
+        if (!cancelled) {
+            observer.onError(t);
+        }
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    private boolean awaitReady() throws InterruptedException {
+        lock.lock();
+        try {
+            while (!cancelled && !observer.isReady()) {
+                readyOrCancelled.await(READY_POLL_MS, TimeUnit.MILLISECONDS);
+            }
+            return !cancelled;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void signal() {
+        lock.lock();
+        try {
+            readyOrCancelled.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.aruba.zeta.pecintegration.mapper;
+
+import java.io.InputStream;
+
+import com.aruba.zeta.pec.grpc.AttachmentRef;
+import com.aruba.zeta.pec.grpc.PecMessage;
+import com.aruba.zeta.pecintegration.dto.DecodedMessagePage;
+import com.google.protobuf.Timestamp;
+
+import tools.jackson.core.JsonParser;
+import tools.jackson.core.JsonToken;
+import tools.jackson.core.ObjectReadContext;
+import tools.jackson.core.json.JsonFactory;
+
+/**
+ * Streaming decoder for the Aruba messages page payload.
+ *
+ * <p>Reads the JSON token by token and fills {@link PecMessage.Builder}s directly,
+ * producing the same proto as {@link PecProtoMapper#toProto(com.aruba.zeta.pecintegration.dto.ArubaMessageDto)}
+ * without materialising the intermediate DTOs. Fields that are never mapped (message
+ * {@code body}, attachment {@code content_type}/{@code size}, unknown properties) are
+ * skipped without being converted to Java strings, and so are fields left out of a
+ * {@link PecMessageProjection}.
+ */
+public final class ArubaMessagePageDecoder {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private ArubaMessagePageDecoder() {}
+
+    /**
+     * Decodes a messages page, closing the stream once the payload has been read.
+     *
+     * @param body raw response body of {@code GET /mailboxes/{id}/messages}
+     * @return decoded page
+     */
+    public static DecodedMessagePage decode(InputStream body) {
+        return decode(body, PecMessageProjection.ALL);
+    }
+
+    /**
+     * Decodes a messages page, building only the fields in {@code projection}; the others
+     * are skipped like unmapped ones. Closes the stream once the payload has been read.
+     *
+     * @param body       raw response body of {@code GET /mailboxes/{id}/messages}
+     * @param projection message fields to build
+     * @return decoded page
+     */
+    public static DecodedMessagePage decode(InputStream body, PecMessageProjection projection) {
+        DecodedMessagePage result = new DecodedMessagePage();
+        try (JsonParser parser = JSON_FACTORY.createParser(ObjectReadContext.empty(), body)) {
+            expect(parser.nextToken(), JsonToken.START_OBJECT);
+            String field;
+            while ((field = parser.nextName()) != null) {
+                JsonToken value = parser.nextToken();
+                switch (field) {
+                    case "messages" -> readMessages(parser, value, projection, result);
+                    case "page" -> result.setPage(parser.getValueAsInt());
+                    case "size" -> result.setSize(parser.getValueAsInt());
+                    case "total_elements" -> result.setTotalElements(parser.getValueAsLong());
+                    case "total_pages" -> result.setTotalPages(parser.getValueAsInt());
+                    default -> parser.skipChildren();
+                }
+            }
+        }
+        return result;
+    }
+
+    // Element readers
+
+    private static void readMessages(JsonParser parser, JsonToken value, PecMessageProjection projection,
+                                     DecodedMessagePage result) {
+        if (value != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return;
+        }
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            result.getMessages().add(readMessage(parser, projection));
+        }
+    }
+
+    private static PecMessage readMessage(JsonParser parser, PecMessageProjection projection) {
+        PecMessage.Builder builder = PecMessage.newBuilder();
+        String field;
+        while ((field = parser.nextName()) != null) {
+            JsonToken value = parser.nextToken();
+            if (!projection.includesArubaField(field)) {
+                parser.skipChildren();
+                continue;
+            }
+            switch (field) {
+                case "id" -> builder.setId(stringValue(parser));
+                case "from" -> builder.setSenderAddress(stringValue(parser));
+                case "to" -> builder.setRecipientAddress(stringValue(parser));
+                case "subject" -> builder.setSubject(stringValue(parser));
+                case "status" -> builder.setStatus(PecProtoMapper.toMessageStatus(parser.getValueAsString()));
+                case "received_at" -> setTimestamp(parser, builder);
+                case "attachments" -> readAttachments(parser, value, builder);
+                default -> parser.skipChildren();
+            }
+        }
+        return builder.build();
+    }
+
+    private static void readAttachments(JsonParser parser, JsonToken value, PecMessage.Builder message) {
+        if (value != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return;
+        }
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            AttachmentRef.Builder attachment = AttachmentRef.newBuilder();
+            String field;
+            while ((field = parser.nextName()) != null) {
+                parser.nextToken();
+                switch (field) {
+                    case "id" -> attachment.setDocumentId(stringValue(parser));
+                    case "file_name" -> attachment.setFileName(stringValue(parser));
+                    default -> parser.skipChildren();
+                }
+            }
+            message.addAttachments(attachment.build());
+        }
+    }
+
+    // Helpers
+
+    private static void setTimestamp(JsonParser parser, PecMessage.Builder builder) {
+        Timestamp receivedAt = PecProtoMapper.toTimestamp(parser.getValueAsString());
+        if (receivedAt != null) {
+            builder.setMessageTimestamp(receivedAt);
+        }
+    }
+
+    private static String stringValue(JsonParser parser) {
+        return parser.getValueAsString("");
+    }
+
+    private static void expect(JsonToken actual, JsonToken expected) {
+        if (actual != expected) {
+            throw new IllegalStateException(
+                    "Malformed Aruba messages page: expected " + expected + " but found " + actual);
+        }
+    }
+}
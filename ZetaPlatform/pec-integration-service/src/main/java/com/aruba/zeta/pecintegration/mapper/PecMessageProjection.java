@@ -0,0 +1,105 @@
+package com.aruba.zeta.pecintegration.mapper;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+import com.aruba.zeta.pec.grpc.PecMessage;
+import com.google.protobuf.Descriptors.FieldDescriptor;
+import com.google.protobuf.FieldMask;
+
+/**
+ * The {@link PecMessage} fields a caller asked for through a {@code read_mask}. Fields
+ * outside the projection are never built by {@link ArubaMessagePageDecoder}, so list
+ * views that only show a few columns do not pay for attachment lists they discard.
+ *
+ * <p>Mask paths name top-level {@link PecMessage} fields; a sub-path such as
+ * {@code attachments.file_name} selects the whole field. {@code id} is always included,
+ * since callers need it to address the message.
+ *
+ * @param fieldNumbers numbers of the included {@link PecMessage} fields, or {@code null} for all
+ */
+public record PecMessageProjection(Set<Integer> fieldNumbers) {
+
+    /** Every field: what an absent or empty mask asks for. */
+    public static final PecMessageProjection ALL = new PecMessageProjection(null);
+
+    /** Aruba JSON property carrying each mapped {@link PecMessage} field. */
+    private static final Map<Integer, String> ARUBA_FIELDS = Map.of(
+            PecMessage.ID_FIELD_NUMBER, "id",
+            PecMessage.SENDER_ADDRESS_FIELD_NUMBER, "from",
+            PecMessage.RECIPIENT_ADDRESS_FIELD_NUMBER, "to",
+            PecMessage.SUBJECT_FIELD_NUMBER, "subject",
+            PecMessage.STATUS_FIELD_NUMBER, "status",
+            PecMessage.MESSAGE_TIMESTAMP_FIELD_NUMBER, "received_at",
+            PecMessage.ATTACHMENTS_FIELD_NUMBER, "attachments");
+
+    private static final Map<String, Integer> BY_ARUBA_FIELD = ARUBA_FIELDS.entrySet().stream()
+            .collect(Collectors.toUnmodifiableMap(Map.Entry::getValue, Map.Entry::getKey));
+
+    /**
+     * Resolves a read mask.
+     *
+     * @throws IllegalArgumentException if a path does not name a {@link PecMessage} field
+     */
+    public static PecMessageProjection of(FieldMask mask) {
+        if (mask.getPathsCount() == 0) {
+            return ALL;
+        }
+        Set<Integer> numbers = new TreeSet<>();
+        numbers.add(PecMessage.ID_FIELD_NUMBER);
+        for (String path : mask.getPathsList()) {
+            int dot = path.indexOf('.');
+            String name = dot < 0 ? path : path.substring(0, dot);
+            FieldDescriptor field = PecMessage.getDescriptor().findFieldByName(name);
+            if (field == null || (dot >= 0 && field.getType() != FieldDescriptor.Type.MESSAGE)) {
+                throw new IllegalArgumentException("Unknown PecMessage field in read_mask: " + path);
+            }
+            numbers.add(field.getNumber());
+        }
+        return numbers.size() == PecMessage.getDescriptor().getFields().size()
+                ? ALL : new PecMessageProjection(Set.copyOf(numbers));
+    }
+
+    public boolean isAll() {
+        return fieldNumbers == null;
+    }
+
+    /** Whether the {@link PecMessage} field with this number is to be built. */
+    public boolean includes(int fieldNumber) {
+        return fieldNumbers == null || fieldNumbers.contains(fieldNumber);
+    }
+
+    /**
+     * Whether the Aruba message property {@code name} feeds an included field. Properties
+     * that are never mapped report {@code true}; decoders skip them anyway.
+     */
+    public boolean includesArubaField(String name) {
+        Integer number = BY_ARUBA_FIELD.get(name);
+        return number == null || includes(number);
+    }
+
+    /** The included fields as Aruba message properties, comma-separated, for a sparse-fieldset request. */
+    public String arubaFields() {
+        return ARUBA_FIELDS.entrySet().stream()
+                .filter(e -> includes(e.getKey()))
+                .map(Map.Entry::getValue)
+                .sorted()
+                .collect(Collectors.joining(","));
+    }
+
+    /** Clears the fields outside the projection from an already built message. */
+    public PecMessage apply(PecMessage message) {
+        if (fieldNumbers == null) {
+            return message;
+        }
+        PecMessage.Builder builder = message.toBuilder();
+        for (FieldDescriptor field : PecMessage.getDescriptor().getFields()) {
+            if (!fieldNumbers.contains(field.getNumber())) {
+                builder.clearField(field);
+            }
+        }
+        return builder.build();
+    }
+}
@@ -1,5 +1,9 @@
 package com.aruba.zeta.pecintegration.mapper;
 
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+
 import com.aruba.zeta.pec.grpc.AttachmentRef;
 import com.aruba.zeta.pec.grpc.Mailbox;
 import com.aruba.zeta.pec.grpc.MailboxStatus;
@@ -11,6 +15,8 @@ import com.aruba.zeta.pecintegration.dto.ArubaMessageDto;
 import com.aruba.zeta.pecintegration.dto.ArubaSendMessageResponse;
 import com.aruba.zeta.pecintegration.enums.EMailboxStatus;
 import com.aruba.zeta.pecintegration.enums.EMessageStatus;
+import com.aruba.zeta.pecintegration.send.SendRecord;
+import com.google.protobuf.Timestamp;
 
 /**
  * Maps Aruba REST API DTOs to proto-generated response messages.
@@ -37,6 +43,10 @@ public final class PecProtoMapper {
                 .setRecipientAddress(nullSafe(dto.getTo()))
                 .setSubject(nullSafe(dto.getSubject()))
                 .setStatus(toMessageStatus(dto.getStatus()));
+        Timestamp receivedAt = toTimestamp(dto.getReceivedAt());
+        if (receivedAt != null) {
+            builder.setMessageTimestamp(receivedAt);
+        }
         if (dto.getAttachments() != null) {
             dto.getAttachments().forEach(a -> builder.addAttachments(
                     AttachmentRef.newBuilder()
@@ -54,6 +64,50 @@ public final class PecProtoMapper {
                 .build();
     }
 
+    /** Response for a tracked send: accepted while pending, Aruba's status once sent. */
+    public static SendMessageResponse toProto(SendRecord record) {
+        MessageStatus status = switch (record.state()) {
+            case QUEUED, SENDING -> MessageStatus.MESSAGE_STATUS_ACCEPTED;
+            case SENT -> {
+                MessageStatus reported = toMessageStatus(record.arubaStatus());
+                yield reported == MessageStatus.MESSAGE_STATUS_UNSPECIFIED ? MessageStatus.MESSAGE_STATUS_SENT : reported;
+            }
+            case FAILED -> MessageStatus.MESSAGE_STATUS_FAILED;
+        };
+        return SendMessageResponse.newBuilder()
+                .setMessageId(nullSafe(record.messageId()))
+                .setCurrentStatus(status)
+                .setTrackingId(record.trackingId())
+                .build();
+    }
+
+    // --- Time helpers ---
+
+    public static Instant toInstant(Timestamp timestamp) {
+        return Instant.ofEpochSecond(timestamp.getSeconds(), timestamp.getNanos());
+    }
+
+    public static Timestamp toTimestamp(Instant instant) {
+        return Timestamp.newBuilder()
+                .setSeconds(instant.getEpochSecond())
+                .setNanos(instant.getNano())
+                .build();
+    }
+
+    /**
+     * Parses an ISO-8601 timestamp as sent by Aruba (e.g. {@code 2026-02-24T10:00:00Z}).
+     *
+     * @return the proto timestamp, or {@code null} if the value is absent or malformed
+     */
+    static Timestamp toTimestamp(String isoDateTime) {
+        if (isoDateTime == null || isoDateTime.isEmpty()) return null;
+        try {
+            return toTimestamp(OffsetDateTime.parse(isoDateTime).toInstant());
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
     // --- Enum helpers ---
 
     private static MailboxStatus toMailboxStatus(String status) {
@@ -65,7 +119,7 @@ public final class PecProtoMapper {
         }
     }
 
-    private static MessageStatus toMessageStatus(String status) {
+    static MessageStatus toMessageStatus(String status) {
         if (status == null) return MessageStatus.MESSAGE_STATUS_UNSPECIFIED;
         try {
             return PecEnumMapper.toProto(EMessageStatus.valueOf(status.toUpperCase()));
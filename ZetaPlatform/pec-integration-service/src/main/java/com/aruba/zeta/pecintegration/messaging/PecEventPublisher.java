@@ -0,0 +1,105 @@
+package com.aruba.zeta.pecintegration.messaging;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import org.springframework.amqp.core.AmqpTemplate;
+import org.springframework.stereotype.Component;
+
+import com.aruba.zeta.pec.grpc.MessageStatusUpdate;
+import com.aruba.zeta.pec.grpc.PecMessage;
+import com.aruba.zeta.pecintegration.config.PecAmqpProperties;
+import com.aruba.zeta.pecintegration.dto.PecMessageStatusChangedEvent;
+import com.aruba.zeta.pecintegration.dto.PecNewMessageEvent;
+import com.aruba.zeta.pecintegration.mapper.PecProtoMapper;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Publishes PEC domain events to the {@code pec.amqp.events-exchange} topic exchange.
+ * Failures surface as {@link org.springframework.amqp.AmqpException} so callers can retry.
+ *
+ * <p>Status-change events carry the publishing replica in the {@value #ORIGIN_HEADER}
+ * header, so that the {@link PecStatusEventFeed} of that replica skips its own changes.
+ */
+@Slf4j
+@Component
+public class PecEventPublisher {
+
+    public static final String ORIGIN_HEADER = "x-pec-origin";
+
+    private final AmqpTemplate amqpTemplate;
+    private final PecAmqpProperties props;
+    private final String origin = UUID.randomUUID().toString();
+    private final Counter newMessageEvents;
+    private final Counter statusChangedEvents;
+
+    public PecEventPublisher(AmqpTemplate amqpTemplate, PecAmqpProperties props, MeterRegistry meterRegistry) {
+        this.amqpTemplate = amqpTemplate;
+        this.props = props;
+        this.newMessageEvents = Counter.builder("pec.events.published")
+                .description("PEC events published to RabbitMQ")
+                .tag("type", "new_message")
+                .register(meterRegistry);
+        this.statusChangedEvents = Counter.builder("pec.events.published")
+                .description("PEC events published to RabbitMQ")
+                .tag("type", "status_changed")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Publishes a new-message event for a message first seen by the poller.
+     *
+     * @param userId     Zeta user owning the mailbox
+     * @param message    the new message; its {@code mailbox_id} must be set
+     * @param detectedAt when the poller saw the message
+     */
+    public void publishNewMessage(String userId, PecMessage message, Instant detectedAt) {
+        PecNewMessageEvent event = PecNewMessageEvent.builder()
+                .userId(userId)
+                .mailboxId(message.getMailboxId())
+                .messageId(message.getId())
+                .senderAddress(message.getSenderAddress())
+                .subject(message.getSubject())
+                .status(message.getStatus().name())
+                .receivedAt(message.hasMessageTimestamp()
+                        ? PecProtoMapper.toInstant(message.getMessageTimestamp()).toString()
+                        : null)
+                .detectedAt(detectedAt.toString())
+                .build();
+        amqpTemplate.convertAndSend(props.getEventsExchange(), props.getNewMessageRoutingKey(), event);
+        newMessageEvents.increment();
+        log.debug("Published new-message event for message {} in mailbox {}", message.getId(), message.getMailboxId());
+    }
+
+    /**
+     * Publishes a delivery-status change of a tracked outbound message.
+     *
+     * @param userId Zeta user who sent the message
+     * @param update the status change
+     */
+    public void publishStatusChanged(String userId, MessageStatusUpdate update) {
+        PecMessageStatusChangedEvent event = PecMessageStatusChangedEvent.builder()
+                .userId(userId)
+                .mailboxId(update.getMailboxId())
+                .messageId(update.getMessageId())
+                .trackingId(update.getTrackingId())
+                .previousStatus(update.getPreviousStatus().name())
+                .status(update.getCurrentStatus().name())
+                .changedAt(PecProtoMapper.toInstant(update.getChangedAt()).toString())
+                .build();
+        amqpTemplate.convertAndSend(props.getEventsExchange(), props.getStatusChangedRoutingKey(), event, message -> {
+            message.getMessageProperties().setHeader(ORIGIN_HEADER, origin);
+            return message;
+        });
+        statusChangedEvents.increment();
+        log.debug("Published status-changed event for message {}: {}", update.getMessageId(), update.getCurrentStatus());
+    }
+
+    /** Identifier of this replica in the {@value #ORIGIN_HEADER} header of its events. */
+    public String origin() {
+        return origin;
+    }
+}
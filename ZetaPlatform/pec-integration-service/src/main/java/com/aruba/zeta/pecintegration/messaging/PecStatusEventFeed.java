@@ -0,0 +1,77 @@
+package com.aruba.zeta.pecintegration.messaging;
+
+import java.time.Instant;
+
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.stereotype.Component;
+
+import com.aruba.zeta.pec.grpc.MessageStatus;
+import com.aruba.zeta.pec.grpc.MessageStatusUpdate;
+import com.aruba.zeta.pecintegration.dto.PecMessageStatusChangedEvent;
+import com.aruba.zeta.pecintegration.mapper.PecProtoMapper;
+import com.aruba.zeta.pecintegration.send.DeliveryStatusTracker;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Feeds the status-change events of the other replicas to this replica's
+ * SubscribeMessageStatus subscribers, so a subscription works whichever pod performed the
+ * send. Each pod reads the events through its own queue; events it published itself were
+ * already handed to its subscribers and are skipped.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "pec.status", name = "event-feed-enabled", havingValue = "true")
+public class PecStatusEventFeed {
+
+    private final DeliveryStatusTracker tracker;
+    private final PecEventPublisher eventPublisher;
+
+    private final Counter accepted;
+    private final Counter ignored;
+
+    public PecStatusEventFeed(DeliveryStatusTracker tracker, PecEventPublisher eventPublisher,
+                              MeterRegistry meterRegistry) {
+        this.tracker = tracker;
+        this.eventPublisher = eventPublisher;
+        this.accepted = feedCounter(meterRegistry, "accepted");
+        this.ignored = feedCounter(meterRegistry, "ignored");
+    }
+
+    @RabbitListener(queues = "#{pecStatusFeedQueue.name}")
+    public void onStatusChanged(PecMessageStatusChangedEvent event,
+                                @Header(name = PecEventPublisher.ORIGIN_HEADER, required = false) String origin) {
+        if (eventPublisher.origin().equals(origin)) {
+            ignored.increment();
+            return;
+        }
+        MessageStatusUpdate update;
+        try {
+            update = MessageStatusUpdate.newBuilder()
+                    .setMessageId(event.getMessageId())
+                    .setMailboxId(event.getMailboxId())
+                    .setTrackingId(event.getTrackingId() != null ? event.getTrackingId() : "")
+                    .setPreviousStatus(MessageStatus.valueOf(event.getPreviousStatus()))
+                    .setCurrentStatus(MessageStatus.valueOf(event.getStatus()))
+                    .setChangedAt(PecProtoMapper.toTimestamp(Instant.parse(event.getChangedAt())))
+                    .build();
+        } catch (RuntimeException e) {
+            ignored.increment();
+            log.warn("Ignoring malformed status-changed event for message {}: {}", event.getMessageId(), e.getMessage());
+            return;
+        }
+        tracker.acceptRemote(event.getUserId(), update);
+        accepted.increment();
+    }
+
+    private static Counter feedCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("pec.status.feed")
+                .description("Status-change events of other replicas by outcome")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,89 @@
+package com.aruba.zeta.pecintegration.messaging;
+
+import java.util.UUID;
+
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.AmqpTemplate;
+import org.springframework.stereotype.Component;
+
+import com.aruba.zeta.integrtoken.grpc.IntegrationServiceType;
+import com.aruba.zeta.pecintegration.cache.PecTokenCache;
+import com.aruba.zeta.pecintegration.config.PecTokenCacheProperties;
+import com.aruba.zeta.pecintegration.dto.PecTokenInvalidationNotice;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Keeps the {@link PecTokenCache} of every pod in step with token refreshes. A pod that
+ * stores a new token pair broadcasts a {@link PecTokenInvalidationNotice} on the
+ * {@code pec.token-cache.invalidation-exchange} fanout exchange; the others evict their
+ * older copy instead of serving it until Aruba rejects it.
+ *
+ * <p>With {@code pec.token-cache.invalidation-enabled=false} nothing is published, and
+ * neither the exchange, this pod's queue nor its {@link PecTokenInvalidationListener} is
+ * declared.
+ *
+ * <p>Delivery is best effort: a notice that is lost or late only means the peer keeps its
+ * token until the cache entry expires with it, as without the bus.
+ */
+@Slf4j
+@Component
+public class PecTokenInvalidationBus {
+
+    private final AmqpTemplate amqpTemplate;
+    private final PecTokenCacheProperties props;
+    private final String origin = UUID.randomUUID().toString();
+
+    private final Counter published;
+    private final Counter publishFailed;
+
+    public PecTokenInvalidationBus(AmqpTemplate amqpTemplate, PecTokenCacheProperties props,
+                                   MeterRegistry meterRegistry) {
+        this.amqpTemplate = amqpTemplate;
+        this.props = props;
+        this.published = noticeCounter(meterRegistry, "published");
+        this.publishFailed = noticeCounter(meterRegistry, "publish_failed");
+    }
+
+    /**
+     * Announces that a new token pair, expiring at {@code expiresAt}, was stored for the user.
+     * Never fails the caller: the token is already persisted.
+     *
+     * @param userId      the platform user UUID
+     * @param serviceType the integration the token belongs to
+     * @param expiresAt   expiration timestamp of the new access token (epoch seconds)
+     */
+    public void publish(String userId, IntegrationServiceType serviceType, long expiresAt) {
+        if (!props.isInvalidationEnabled()) {
+            return;
+        }
+        PecTokenInvalidationNotice notice = PecTokenInvalidationNotice.builder()
+                .userId(userId)
+                .serviceType(serviceType.name())
+                .expiresAt(expiresAt)
+                .origin(origin)
+                .build();
+        try {
+            amqpTemplate.convertAndSend(props.getInvalidationExchange(), "", notice);
+            published.increment();
+        } catch (AmqpException e) {
+            publishFailed.increment();
+            log.warn("Could not broadcast PEC token refresh for user {}; peers fall back to expiry: {}",
+                    userId, e.getMessage());
+        }
+    }
+
+    /** Identifies the notices this pod published, for its listener to skip. */
+    public String origin() {
+        return origin;
+    }
+
+    static Counter noticeCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("pec.token.invalidations")
+                .description("PEC token invalidation notices by outcome")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,53 @@
+package com.aruba.zeta.pecintegration.messaging;
+
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.aruba.zeta.integrtoken.grpc.IntegrationServiceType;
+import com.aruba.zeta.pecintegration.cache.PecTokenCache;
+import com.aruba.zeta.pecintegration.dto.PecTokenInvalidationNotice;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Evicts the {@link PecTokenCache} entries that other pods announced as refreshed through
+ * {@link PecTokenInvalidationBus}. Each pod reads the notices through its own queue;
+ * notices it published itself are skipped.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "pec.token-cache", name = "invalidation-enabled", havingValue = "true")
+public class PecTokenInvalidationListener {
+
+    private final PecTokenCache pecTokenCache;
+    private final PecTokenInvalidationBus invalidationBus;
+
+    private final Counter evicted;
+    private final Counter ignored;
+
+    public PecTokenInvalidationListener(PecTokenCache pecTokenCache, PecTokenInvalidationBus invalidationBus,
+                                        MeterRegistry meterRegistry) {
+        this.pecTokenCache = pecTokenCache;
+        this.invalidationBus = invalidationBus;
+        this.evicted = PecTokenInvalidationBus.noticeCounter(meterRegistry, "evicted");
+        this.ignored = PecTokenInvalidationBus.noticeCounter(meterRegistry, "ignored");
+    }
+
+    @RabbitListener(queues = "#{pecTokenInvalidationQueue.name}")
+    public void onNotice(PecTokenInvalidationNotice notice) {
+        if (invalidationBus.origin().equals(notice.getOrigin())
+                || !IntegrationServiceType.SERVICE_TYPE_PEC.name().equals(notice.getServiceType())) {
+            ignored.increment();
+            return;
+        }
+        if (pecTokenCache.invalidateOlderThan(notice.getUserId(), notice.getExpiresAt())) {
+            evicted.increment();
+            log.debug("Evicted PEC access token of user {} refreshed by a peer", notice.getUserId());
+        } else {
+            ignored.increment();
+        }
+    }
+}
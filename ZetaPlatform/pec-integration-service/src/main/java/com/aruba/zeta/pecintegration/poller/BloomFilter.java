@@ -0,0 +1,116 @@
+package com.aruba.zeta.pecintegration.poller;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free Bloom filter over 64-bit element hashes, using Kirsch–Mitzenmacher double
+ * hashing to derive the {@code k} probe positions from one hash.
+ *
+ * <p>Sized for {@code expectedInsertions} at a target false-positive rate:
+ * {@code m = -n ln p / (ln 2)^2} bits and {@code k = (m / n) ln 2} probes.
+ */
+final class BloomFilter {
+
+    private final AtomicLongArray words;
+    private final long bitCount;
+    private final int hashCount;
+    private final long expectedInsertions;
+    private final long createdAt;
+    private final AtomicLong insertions = new AtomicLong();
+
+    BloomFilter(long expectedInsertions, double falsePositiveRate, long createdAt) {
+        long n = Math.max(expectedInsertions, 1);
+        long bits = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        int wordCount = (int) Math.min(Math.max((bits + 63) / 64, 1), Integer.MAX_VALUE - 8);
+        this.words = new AtomicLongArray(wordCount);
+        this.bitCount = wordCount * 64L;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / n * Math.log(2)));
+        this.expectedInsertions = n;
+        this.createdAt = createdAt;
+    }
+
+    private BloomFilter(AtomicLongArray words, int hashCount, long expectedInsertions, long createdAt, long insertions) {
+        this.words = words;
+        this.bitCount = words.length() * 64L;
+        this.hashCount = hashCount;
+        this.expectedInsertions = expectedInsertions;
+        this.createdAt = createdAt;
+        this.insertions.set(insertions);
+    }
+
+    boolean mightContain(long hash) {
+        long h2 = secondHash(hash);
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(hash + i * h2, bitCount);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    void put(long hash) {
+        long h2 = secondHash(hash);
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(hash + i * h2, bitCount);
+            long mask = 1L << bit;
+            words.getAndAccumulate((int) (bit >>> 6), mask, (word, m) -> word | m);
+        }
+        insertions.incrementAndGet();
+    }
+
+    long insertions() {
+        return insertions.get();
+    }
+
+    long expectedInsertions() {
+        return expectedInsertions;
+    }
+
+    long createdAt() {
+        return createdAt;
+    }
+
+    /** False-positive rate at the current fill: {@code (1 - e^(-kn/m))^k}. */
+    double expectedFalsePositiveRate() {
+        return Math.pow(1 - Math.exp(-hashCount * (double) insertions.get() / bitCount), hashCount);
+    }
+
+    // Snapshot format: k, n, createdAt, insertions, word count, words
+
+    void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(hashCount);
+        out.writeLong(expectedInsertions);
+        out.writeLong(createdAt);
+        out.writeLong(insertions.get());
+        out.writeInt(words.length());
+        for (int i = 0; i < words.length(); i++) {
+            out.writeLong(words.get(i));
+        }
+    }
+
+    static BloomFilter readFrom(DataInputStream in) throws IOException {
+        int hashCount = in.readInt();
+        long expectedInsertions = in.readLong();
+        long createdAt = in.readLong();
+        long insertions = in.readLong();
+        AtomicLongArray words = new AtomicLongArray(in.readInt());
+        for (int i = 0; i < words.length(); i++) {
+            words.set(i, in.readLong());
+        }
+        return new BloomFilter(words, hashCount, expectedInsertions, createdAt, insertions);
+    }
+
+    /** Second, independent-looking hash from the MurmurHash3 finaliser; never zero. */
+    private static long secondHash(long hash) {
+        long h = hash ^ 0x9e3779b97f4a7c15L;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return h | 1;
+    }
+}
@@ -0,0 +1,105 @@
+package com.aruba.zeta.pecintegration.poller;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import com.aruba.zeta.pecintegration.sync.MailboxKey;
+
+/**
+ * Immutable consistent-hash ring assigning mailboxes to poller pods.
+ *
+ * <p>Each member is placed at {@code virtualNodes} pseudo-random tokens; a mailbox belongs
+ * to the member owning the first token at or after the mailbox token, wrapping around.
+ * Adding or removing a member therefore only moves the mailboxes on the arcs next to its
+ * tokens (about {@code 1/n} of them), and every pod computes the same assignment from
+ * the same member list without talking to the others.
+ */
+public final class HashRing {
+
+    private static final HashRing EMPTY = new HashRing(new TreeSet<>(), 1);
+
+    private final SortedSet<String> members;
+    private final NavigableMap<Long, String> tokens = new TreeMap<>();
+
+    public HashRing(SortedSet<String> members, int virtualNodes) {
+        this.members = Collections.unmodifiableSortedSet(new TreeSet<>(members));
+        for (String member : this.members) {
+            for (int i = 0; i < virtualNodes; i++) {
+                // Ties are astronomically unlikely, but must resolve the same way on every pod
+                tokens.merge(hash64(member + '#' + i), member, (a, b) -> a.compareTo(b) <= 0 ? a : b);
+            }
+        }
+    }
+
+    public static HashRing empty() {
+        return EMPTY;
+    }
+
+    public SortedSet<String> members() {
+        return members;
+    }
+
+    public boolean isEmpty() {
+        return tokens.isEmpty();
+    }
+
+    /** Owner of a ring position, or {@code null} when the ring has no members. */
+    public String ownerOf(long token) {
+        Map.Entry<Long, String> entry = tokens.ceilingEntry(token);
+        if (entry == null) {
+            entry = tokens.firstEntry();
+        }
+        return entry == null ? null : entry.getValue();
+    }
+
+    public String ownerOf(MailboxKey key) {
+        return ownerOf(token(key));
+    }
+
+    /** Arcs owned by {@code member}, empty when it is not on the ring. */
+    public List<TokenRange> rangesOwnedBy(String member) {
+        List<TokenRange> ranges = new ArrayList<>();
+        long previous = tokens.isEmpty() ? 0 : tokens.lastKey();
+        for (Map.Entry<Long, String> entry : tokens.entrySet()) {
+            if (entry.getValue().equals(member)) {
+                ranges.add(new TokenRange(previous, entry.getKey()));
+            }
+            previous = entry.getKey();
+        }
+        return ranges;
+    }
+
+    /** Fraction of the ring owned by {@code member}. */
+    public double shareOf(String member) {
+        return rangesOwnedBy(member).stream().mapToDouble(TokenRange::share).sum();
+    }
+
+    // Hashing
+
+    /** Ring position of a mailbox; stable across pods and restarts. */
+    public static long token(MailboxKey key) {
+        return hash64(key.userId() + '\u0000' + key.mailboxId());
+    }
+
+    /** FNV-1a over the UTF-8 bytes, finished with the MurmurHash3 mixer for avalanche. */
+    static long hash64(String value) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b & 0xff;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,87 @@
+package com.aruba.zeta.pecintegration.poller;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import org.springframework.stereotype.Component;
+
+import com.aruba.zeta.pecintegration.sync.MailboxKey;
+
+/**
+ * Single-JVM {@link PollerClusterStore}: the pod only ever sees itself as a member, so it
+ * owns the whole ring. Suitable for one replica and for tests.
+ */
+@Component
+public class InMemoryPollerClusterStore implements PollerClusterStore {
+
+    private final ConcurrentMap<String, Instant> leases = new ConcurrentHashMap<>();
+    private final ConcurrentNavigableMap<Long, Set<MailboxKey>> mailboxesByToken = new ConcurrentSkipListMap<>();
+    private final ConcurrentMap<MailboxKey, Instant> watermarks = new ConcurrentHashMap<>();
+
+    @Override
+    public void renewLease(String podId, Instant expiresAt) {
+        leases.put(podId, expiresAt);
+    }
+
+    @Override
+    public void releaseLease(String podId) {
+        leases.remove(podId);
+    }
+
+    @Override
+    public SortedSet<String> liveMembers(Instant now) {
+        SortedSet<String> live = new TreeSet<>();
+        leases.forEach((podId, expiresAt) -> {
+            if (expiresAt.isAfter(now)) {
+                live.add(podId);
+            }
+        });
+        return live;
+    }
+
+    @Override
+    public void registerMailboxes(Collection<MailboxKey> keys, Instant initialWatermark) {
+        for (MailboxKey key : keys) {
+            if (mailboxesByToken.computeIfAbsent(HashRing.token(key), t -> ConcurrentHashMap.newKeySet()).add(key)) {
+                watermarks.putIfAbsent(key, initialWatermark);
+            }
+        }
+    }
+
+    @Override
+    public List<MailboxKey> mailboxesIn(TokenRange range) {
+        List<MailboxKey> keys = new ArrayList<>();
+        if (range.wraps()) {
+            collect(mailboxesByToken.tailMap(range.startExclusive(), false), keys);
+            collect(mailboxesByToken.headMap(range.endInclusive(), true), keys);
+        } else {
+            collect(mailboxesByToken.subMap(range.startExclusive(), false, range.endInclusive(), true), keys);
+        }
+        return keys;
+    }
+
+    @Override
+    public Optional<Instant> watermark(MailboxKey key) {
+        return Optional.ofNullable(watermarks.get(key));
+    }
+
+    @Override
+    public void saveWatermark(MailboxKey key, Instant watermark) {
+        watermarks.merge(key, watermark, (a, b) -> a.isAfter(b) ? a : b);
+    }
+
+    private static void collect(Map<Long, Set<MailboxKey>> slice, List<MailboxKey> into) {
+        slice.values().forEach(into::addAll);
+    }
+}
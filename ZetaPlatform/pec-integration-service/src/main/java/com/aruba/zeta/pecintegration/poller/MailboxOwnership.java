@@ -0,0 +1,123 @@
+package com.aruba.zeta.pecintegration.poller;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.UUID;
+
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.aruba.zeta.pecintegration.config.PecPollerProperties;
+import com.aruba.zeta.pecintegration.sync.MailboxKey;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Decides which mailboxes this pod polls.
+ *
+ * <p>Every pod renews a lease in the {@link PollerClusterStore} and rebuilds the
+ * {@link HashRing} from the live leases; there is no leader, each pod derives the same
+ * assignment independently. When the member list changes the pod loads the registered
+ * mailboxes on its new arcs and publishes a {@link MailboxOwnershipChangedEvent}. A pod
+ * that dies without releasing its lease is dropped once the lease expires, so its
+ * mailboxes are unpolled for at most {@code pec.poller.lease-ttl-ms}.
+ *
+ * <p>A mailbox registered through another pod is not seen by its owner until the owner
+ * reads the registry again, so the owned arcs are also re-read every
+ * {@code pec.poller.rescan-interval-ms} and published as an
+ * {@link OwnedMailboxesRescannedEvent}.
+ */
+@Slf4j
+@Component
+public class MailboxOwnership {
+
+    private final PollerClusterStore store;
+    private final ApplicationEventPublisher eventPublisher;
+    private final PecPollerProperties props;
+    private final String podId;
+
+    private volatile HashRing ring = HashRing.empty();
+    private long lastScanAt;
+
+    private final Counter rebalances;
+
+    public MailboxOwnership(
+            PollerClusterStore store,
+            ApplicationEventPublisher eventPublisher,
+            PecPollerProperties props,
+            MeterRegistry meterRegistry) {
+        this.store = store;
+        this.eventPublisher = eventPublisher;
+        this.props = props;
+        this.podId = props.getPodId().isBlank() ? UUID.randomUUID().toString() : props.getPodId();
+
+        this.rebalances = Counter.builder("pec.poller.rebalances")
+                .description("Ring changes observed by this pod")
+                .register(meterRegistry);
+        Gauge.builder("pec.poller.cluster.members", this, o -> o.ring.members().size())
+                .description("Poller pods holding a live lease")
+                .register(meterRegistry);
+        Gauge.builder("pec.poller.ring.share", this, o -> o.ring.shareOf(o.podId))
+                .description("Fraction of the mailbox hash ring owned by this pod")
+                .register(meterRegistry);
+    }
+
+    public String podId() {
+        return podId;
+    }
+
+    /** Whether this pod currently polls the mailbox; false until the first heartbeat. */
+    public boolean owns(MailboxKey key) {
+        return podId.equals(ring.ownerOf(key));
+    }
+
+    /**
+     * Renews this pod's lease and rebalances if the live membership changed, or rescans the
+     * owned arcs once the rescan interval has passed. Runs well within the lease TTL so a
+     * healthy pod never drops out between two heartbeats.
+     */
+    @Scheduled(fixedDelayString = "${pec.poller.heartbeat-interval-ms:10000}")
+    void heartbeat() {
+        if (!props.isEnabled()) {
+            return;
+        }
+        Instant now = Instant.now();
+        store.renewLease(podId, now.plusMillis(props.getLeaseTtlMs()));
+        SortedSet<String> members = store.liveMembers(now);
+        if (members.equals(ring.members())) {
+            if (now.toEpochMilli() - lastScanAt >= props.getRescanIntervalMs()) {
+                lastScanAt = now.toEpochMilli();
+                eventPublisher.publishEvent(new OwnedMailboxesRescannedEvent(ownedMailboxes(ring)));
+            }
+            return;
+        }
+
+        HashRing next = new HashRing(members, props.getVirtualNodes());
+        List<MailboxKey> owned = ownedMailboxes(next);
+        lastScanAt = now.toEpochMilli();
+        ring = next;
+        rebalances.increment();
+        log.info("Poller ring changed: {} members, pod {} owns {} of the ring ({} registered mailboxes)",
+                members.size(), podId, String.format("%.3f", next.shareOf(podId)), owned.size());
+        eventPublisher.publishEvent(new MailboxOwnershipChangedEvent(next, owned));
+    }
+
+    private List<MailboxKey> ownedMailboxes(HashRing ring) {
+        return ring.rangesOwnedBy(podId).stream()
+                .flatMap(range -> store.mailboxesIn(range).stream())
+                .toList();
+    }
+
+    @PreDestroy
+    void leave() {
+        if (props.isEnabled()) {
+            store.releaseLease(podId);
+        }
+    }
+}
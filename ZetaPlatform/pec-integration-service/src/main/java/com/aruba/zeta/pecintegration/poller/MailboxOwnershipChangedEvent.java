@@ -0,0 +1,13 @@
+package com.aruba.zeta.pecintegration.poller;
+
+import java.util.List;
+
+import com.aruba.zeta.pecintegration.sync.MailboxKey;
+
+/**
+ * Published by {@link MailboxOwnership} whenever the ring changes.
+ *
+ * @param ring           the new ring
+ * @param ownedMailboxes registered mailboxes this pod now owns
+ */
+public record MailboxOwnershipChangedEvent(HashRing ring, List<MailboxKey> ownedMailboxes) {}
@@ -0,0 +1,329 @@
+package com.aruba.zeta.pecintegration.poller;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.aruba.zeta.pec.grpc.PecMessage;
+import com.aruba.zeta.pecintegration.client.resilience.ArubaCallDispatcher;
+import com.aruba.zeta.pecintegration.client.resilience.ArubaCallPriority;
+import com.aruba.zeta.pecintegration.client.rest.ArubaPecApiClient;
+import com.aruba.zeta.pecintegration.config.PecPollerProperties;
+import com.aruba.zeta.pecintegration.dto.DecodedMessagePage;
+import com.aruba.zeta.pecintegration.mapper.PecProtoMapper;
+import com.aruba.zeta.pecintegration.messaging.PecEventPublisher;
+import com.aruba.zeta.pecintegration.service.PecAccessTokenService;
+import com.aruba.zeta.pecintegration.sync.MailboxKey;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Background poller that discovers new messages in registered mailboxes and announces them
+ * through {@link PecEventPublisher}, since Aruba offers no push notifications.
+ *
+ * <p>Each mailbox is polled at its own adaptive interval (see {@link PollScheduleStore}):
+ * busy mailboxes approach {@code pec.poller.min-interval-ms}, quiet ones drift towards
+ * {@code pec.poller.max-interval-ms}. A dispatcher tick hands due mailboxes to the
+ * application task executor (virtual threads) while honouring a global and a per-user cap
+ * on polls in flight; mailboxes that cannot start are kept due for the next tick.
+ *
+ * <p>Mailboxes are registered in the {@link PollerClusterStore} when their owner lists
+ * them through GetMailboxes, on whichever pod serves the call; each pod only schedules
+ * the mailboxes {@link MailboxOwnership} assigns to it, follows ring changes and picks up
+ * mailboxes registered through other pods on its periodic rescans. The
+ * announced watermark is saved to the store, so a mailbox moving to another pod resumes
+ * where its previous owner stopped.
+ */
+@Slf4j
+@Component
+public class MailboxPoller {
+
+    private static final int INITIAL_CAPACITY = 1 << 14;
+
+    private final ArubaPecApiClient arubaPecApiClient;
+    private final ArubaCallDispatcher arubaCallDispatcher;
+    private final PecAccessTokenService pecAccessTokenService;
+    private final PecEventPublisher pecEventPublisher;
+    private final PollerClusterStore clusterStore;
+    private final MailboxOwnership ownership;
+    private final SeenMessageFilter seenMessageFilter;
+    private final AsyncTaskExecutor taskExecutor;
+    private final PecPollerProperties props;
+
+    private final PollScheduleStore schedules = new PollScheduleStore(INITIAL_CAPACITY);
+    private final ConcurrentMap<String, Integer> inFlightPerUser = new ConcurrentHashMap<>();
+    private final Semaphore globalPermits;
+
+    private final Counter succeededPolls;
+    private final Counter failedPolls;
+    private final Counter newMessages;
+    private final Counter suppressedDuplicates;
+    private final Counter unchangedProbes;
+    private final Counter changedProbes;
+    private final Counter fetchedMessages;
+    private final Timer pollTimer;
+
+    public MailboxPoller(
+            ArubaPecApiClient arubaPecApiClient,
+            ArubaCallDispatcher arubaCallDispatcher,
+            PecAccessTokenService pecAccessTokenService,
+            PecEventPublisher pecEventPublisher,
+            PollerClusterStore clusterStore,
+            MailboxOwnership ownership,
+            SeenMessageFilter seenMessageFilter,
+            @Qualifier("applicationTaskExecutor") AsyncTaskExecutor taskExecutor,
+            PecPollerProperties props,
+            MeterRegistry meterRegistry) {
+        this.arubaPecApiClient = arubaPecApiClient;
+        this.arubaCallDispatcher = arubaCallDispatcher;
+        this.pecAccessTokenService = pecAccessTokenService;
+        this.pecEventPublisher = pecEventPublisher;
+        this.clusterStore = clusterStore;
+        this.ownership = ownership;
+        this.seenMessageFilter = seenMessageFilter;
+        this.taskExecutor = taskExecutor;
+        this.props = props;
+        this.globalPermits = new Semaphore(props.getMaxConcurrentPolls());
+
+        this.succeededPolls = Counter.builder("pec.poller.polls")
+                .description("Background mailbox polls by outcome")
+                .tag("result", "success")
+                .register(meterRegistry);
+        this.failedPolls = Counter.builder("pec.poller.polls")
+                .description("Background mailbox polls by outcome")
+                .tag("result", "failure")
+                .register(meterRegistry);
+        this.newMessages = Counter.builder("pec.poller.new.messages")
+                .description("New messages discovered by the background poller")
+                .register(meterRegistry);
+        this.suppressedDuplicates = Counter.builder("pec.poller.duplicates.suppressed")
+                .description("Polled messages not announced because they were announced before")
+                .register(meterRegistry);
+        this.unchangedProbes = Counter.builder("pec.poller.probes")
+                .description("Change probes by outcome; unchanged probes skip the full fetch")
+                .tag("result", "unchanged")
+                .register(meterRegistry);
+        this.changedProbes = Counter.builder("pec.poller.probes")
+                .description("Change probes by outcome; unchanged probes skip the full fetch")
+                .tag("result", "changed")
+                .register(meterRegistry);
+        this.fetchedMessages = Counter.builder("pec.poller.fetched.messages")
+                .description("Messages downloaded by full poll fetches")
+                .register(meterRegistry);
+        this.pollTimer = Timer.builder("pec.poller.duration")
+                .description("Duration of a single background mailbox poll")
+                .register(meterRegistry);
+        Gauge.builder("pec.poller.mailboxes", schedules, PollScheduleStore::size)
+                .description("Mailboxes owned and scheduled by this pod")
+                .register(meterRegistry);
+        Gauge.builder("pec.poller.lag", this, MailboxPoller::lagSeconds)
+                .description("How far behind schedule the most overdue owned mailbox is")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        Gauge.builder("pec.poller.in.flight", globalPermits,
+                        s -> props.getMaxConcurrentPolls() - s.availablePermits())
+                .description("Background mailbox polls currently running")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Registers mailboxes for background polling and schedules the ones this pod owns.
+     * Already registered mailboxes keep their schedule; only messages received after the
+     * first registration are announced.
+     */
+    public void register(String userId, Collection<String> mailboxIds) {
+        if (!props.isEnabled()) {
+            return;
+        }
+        List<MailboxKey> keys = mailboxIds.stream().map(id -> new MailboxKey(userId, id)).toList();
+        clusterStore.registerMailboxes(keys, Instant.now());
+        keys.stream().filter(ownership::owns).forEach(this::adopt);
+    }
+
+    /** Drops mailboxes that moved to other pods and schedules the ones that moved here. */
+    @EventListener
+    void onOwnershipChanged(MailboxOwnershipChangedEvent event) {
+        int released = schedules.removeIf(key -> !ownership.owns(key));
+        event.ownedMailboxes().forEach(this::adopt);
+        log.info("Poller rebalanced: released {} mailboxes, now scheduling {}", released, schedules.size());
+    }
+
+    /** Schedules owned mailboxes that were registered through other pods. */
+    @EventListener
+    void onOwnedMailboxesRescanned(OwnedMailboxesRescannedEvent event) {
+        int before = schedules.size();
+        event.ownedMailboxes().forEach(this::adopt);
+        if (schedules.size() > before) {
+            log.debug("Poller rescan adopted {} mailboxes registered elsewhere", schedules.size() - before);
+        }
+    }
+
+    /**
+     * Starts every due poll the concurrency caps allow. Runs on the scheduler thread and
+     * only hands work off, so a slow Aruba call never delays the next tick.
+     */
+    @Scheduled(fixedDelayString = "${pec.poller.dispatch-interval-ms:1000}")
+    void dispatchDuePolls() {
+        if (!props.isEnabled()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        List<PollTicket> throttled = new ArrayList<>();
+        while (globalPermits.tryAcquire()) {
+            PollTicket ticket = schedules.pollDue(now);
+            if (ticket == null) {
+                globalPermits.release();
+                break;
+            }
+            if (!tryAcquireUserSlot(ticket.getKey().userId())) {
+                globalPermits.release();
+                throttled.add(ticket);
+                continue;
+            }
+            taskExecutor.execute(() -> runPoll(ticket));
+        }
+        // Still due: picked up again on the next tick once the user has a free slot
+        throttled.forEach(schedules::requeue);
+    }
+
+    private void runPoll(PollTicket ticket) {
+        MailboxKey key = ticket.getKey();
+        Instant watermarkBefore = ticket.getWatermark();
+        try {
+            int found = pollTimer.record(() -> poll(ticket));
+            if (!ticket.getWatermark().equals(watermarkBefore)) {
+                clusterStore.saveWatermark(key, ticket.getWatermark());
+            }
+            schedules.recordSuccess(ticket, found, System.currentTimeMillis(), props);
+            succeededPolls.increment();
+        } catch (Exception e) {
+            int failures = schedules.recordFailure(ticket, System.currentTimeMillis(), props);
+            failedPolls.increment();
+            log.warn("Background poll of mailbox {} for user {} failed ({} in a row): {}",
+                    key.mailboxId(), key.userId(), failures, e.getMessage());
+        } finally {
+            releaseUserSlot(key.userId());
+            globalPermits.release();
+        }
+    }
+
+    /**
+     * Fetches everything received since the ticket's watermark and publishes the messages
+     * not announced yet, oldest first. The watermark only advances past a message once its
+     * event is published, so a broker outage delays events instead of losing them; messages
+     * the {@link SeenMessageFilter} knows were announced before are skipped.
+     *
+     * @return number of new messages announced
+     */
+    private int poll(PollTicket ticket) {
+        MailboxKey key = ticket.getKey();
+        Instant since = ticket.getWatermark();
+        if (props.isProbeEnabled() && !hasNewMessages(ticket)) {
+            return 0;
+        }
+        List<PecMessage> fresh = new ArrayList<>();
+
+        int page = 0;
+        int totalPages;
+        do {
+            String accessToken = pecAccessTokenService.getValidAccessToken(key.userId());
+            int pageIndex = page;
+            DecodedMessagePage messagePage = arubaCallDispatcher.call(ArubaCallPriority.BACKGROUND, key.userId(),
+                    () -> arubaPecApiClient.getMessagePage(
+                            accessToken, key.mailboxId(), since, null, pageIndex, props.getPageSize()));
+            fetchedMessages.increment(messagePage.getMessages().size());
+            for (PecMessage message : messagePage.getMessages()) {
+                if (message.hasMessageTimestamp()
+                        && ticket.isNew(PecProtoMapper.toInstant(message.getMessageTimestamp()), message.getId())) {
+                    fresh.add(message.toBuilder().setMailboxId(key.mailboxId()).build());
+                }
+            }
+            totalPages = messagePage.getTotalPages();
+            page++;
+        } while (page < totalPages);
+
+        fresh.sort(Comparator.comparing((PecMessage m) -> PecProtoMapper.toInstant(m.getMessageTimestamp()))
+                .thenComparing(PecMessage::getId));
+        Instant detectedAt = Instant.now();
+        int announced = 0;
+        for (PecMessage message : fresh) {
+            if (seenMessageFilter.isDuplicate(key, message.getId())) {
+                suppressedDuplicates.increment();
+            } else {
+                pecEventPublisher.publishNewMessage(key.userId(), message, detectedAt);
+                seenMessageFilter.markSeen(key, message.getId());
+                newMessages.increment();
+                announced++;
+            }
+            ticket.advanceWatermark(PecProtoMapper.toInstant(message.getMessageTimestamp()), message.getId());
+        }
+        return announced;
+    }
+
+    /**
+     * Probes the mailbox with a one-message page filtered from the watermark. The filter is
+     * inclusive, so the messages already announced at the watermark instant are the only
+     * matches expected when nothing arrived; anything beyond them needs a full fetch.
+     */
+    private boolean hasNewMessages(PollTicket ticket) {
+        MailboxKey key = ticket.getKey();
+        String accessToken = pecAccessTokenService.getValidAccessToken(key.userId());
+        DecodedMessagePage probe = arubaCallDispatcher.call(ArubaCallPriority.BACKGROUND, key.userId(),
+                () -> arubaPecApiClient.probeMessages(accessToken, key.mailboxId(), ticket.getWatermark()));
+        if (probe.getTotalElements() <= ticket.announcedAtWatermark()) {
+            unchangedProbes.increment();
+            return false;
+        }
+        changedProbes.increment();
+        return true;
+    }
+
+    // Helpers
+
+    private void adopt(MailboxKey key) {
+        if (schedules.contains(key)) {
+            return;
+        }
+        Instant now = Instant.now();
+        Instant baseline = clusterStore.watermark(key).orElse(now);
+        schedules.add(key, baseline, now.toEpochMilli());
+    }
+
+    private double lagSeconds() {
+        long nextDueAt = schedules.nextDueAt();
+        return nextDueAt == Long.MAX_VALUE ? 0 : Math.max(0, System.currentTimeMillis() - nextDueAt) / 1000.0;
+    }
+
+    private boolean tryAcquireUserSlot(String userId) {
+        boolean[] acquired = {false};
+        inFlightPerUser.compute(userId, (id, inFlight) -> {
+            int current = inFlight == null ? 0 : inFlight;
+            if (current >= props.getMaxConcurrentPollsPerUser()) {
+                return inFlight;
+            }
+            acquired[0] = true;
+            return current + 1;
+        });
+        return acquired[0];
+    }
+
+    private void releaseUserSlot(String userId) {
+        // Drop idle entries so the map only holds users with polls in flight
+        inFlightPerUser.computeIfPresent(userId, (id, inFlight) -> inFlight > 1 ? inFlight - 1 : null);
+    }
+}
@@ -0,0 +1,299 @@
+package com.aruba.zeta.pecintegration.poller;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.springframework.stereotype.Component;
+
+import com.aruba.zeta.pecintegration.config.PecDedupProperties;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Disk-backed {@link SeenMessageLedger}: one open-addressing table of id hashes per filter
+ * generation, each in its own memory-mapped file. The ids live in the page cache rather
+ * than on the heap, and the tables are only read on filter hits, so the kernel can keep
+ * the pages of a quiet generation on disk.
+ *
+ * <p>The files sit next to {@code pec.dedup.snapshot-path} as
+ * {@code <snapshot-path>.ledger.<generation>} and survive restarts on their own; without a
+ * snapshot path they go to a temporary directory removed on shutdown. A table has twice
+ * as many slots as {@code pec.dedup.expected-messages-per-generation} (16 bytes of file
+ * per expected id) and stops recording at three quarters full: the filter normally rotates
+ * before that, and an id left out is only announced again on a later filter hit, never lost.
+ */
+@Slf4j
+@Component
+public class MappedSeenMessageLedger implements SeenMessageLedger {
+
+    private static final String SUFFIX = ".ledger.";
+
+    private final Path directory;
+    private final String prefix;
+    private final boolean temporary;
+    private final int capacity;
+
+    private Table current;
+    private Table previous;
+
+    private final Counter dropped;
+
+    public MappedSeenMessageLedger(PecDedupProperties props, MeterRegistry meterRegistry) throws IOException {
+        long slots = Long.highestOneBit(Math.max(2 * props.getExpectedMessagesPerGeneration(), 16) - 1) << 1;
+        if (Table.HEADER_BYTES + slots * Long.BYTES > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("pec.dedup.expected-messages-per-generation is too large for "
+                    + "the seen-message ledger: " + props.getExpectedMessagesPerGeneration());
+        }
+        this.capacity = (int) slots;
+        this.temporary = props.getSnapshotPath().isBlank();
+        if (temporary) {
+            this.directory = Files.createTempDirectory("pec-seen-ledger");
+            this.prefix = "seen";
+        } else {
+            Path snapshot = Path.of(props.getSnapshotPath()).toAbsolutePath();
+            this.directory = snapshot.getParent();
+            this.prefix = snapshot.getFileName().toString();
+            Files.createDirectories(directory);
+        }
+        this.dropped = Counter.builder("pec.dedup.ledger.dropped")
+                .description("Announced ids not recorded because the ledger generation was full")
+                .register(meterRegistry);
+        open();
+    }
+
+    @Override
+    public synchronized boolean contains(long idHash) {
+        return current.contains(idHash) || (previous != null && previous.contains(idHash));
+    }
+
+    @Override
+    public synchronized void record(long idHash) {
+        if (!current.add(idHash) && current.isFull()) {
+            dropped.increment();
+        }
+    }
+
+    @Override
+    public synchronized void rotate() {
+        Table next;
+        try {
+            next = Table.create(file(current.generation + 1), current.generation + 1, capacity);
+        } catch (IOException e) {
+            // Keep recording into the current generation: ids are then remembered longer, not lost
+            log.warn("Could not start a new seen-message ledger generation in {}: {}", directory, e.getMessage());
+            return;
+        }
+        Table expired = previous;
+        previous = current;
+        current = next;
+        if (expired != null) {
+            delete(expired.path);
+        }
+    }
+
+    @Override
+    public synchronized void flush() {
+        if (temporary) {
+            return;
+        }
+        current.buffer.force();
+        if (previous != null) {
+            previous.buffer.force();
+        }
+    }
+
+    @PreDestroy
+    void close() {
+        if (temporary) {
+            try (Stream<Path> files = Files.list(directory)) {
+                files.forEach(MappedSeenMessageLedger::delete);
+            } catch (IOException e) {
+                log.debug("Could not list {}: {}", directory, e.getMessage());
+            }
+            delete(directory);
+        }
+    }
+
+    // Files
+
+    /** Opens the two newest generations on disk, or starts the first one. */
+    private void open() throws IOException {
+        List<Table> tables = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path path : files.filter(p -> generationOf(p) > 0).toList()) {
+                Table table = Table.open(path, generationOf(path), capacity);
+                if (table != null) {
+                    tables.add(table);
+                } else {
+                    log.info("Discarding seen-message ledger {}: written with different settings", path);
+                    delete(path);
+                }
+            }
+        }
+        tables.sort(Comparator.comparingLong((Table t) -> t.generation).reversed());
+        for (Table stale : tables.subList(Math.min(tables.size(), 2), tables.size())) {
+            delete(stale.path);
+        }
+        if (tables.isEmpty()) {
+            current = Table.create(file(1), 1, capacity);
+            return;
+        }
+        current = tables.get(0);
+        previous = tables.size() > 1 && tables.get(1).generation == current.generation - 1 ? tables.get(1) : null;
+        if (tables.size() > 1 && previous == null) {
+            delete(tables.get(1).path);
+        }
+        log.info("Reopened seen-message ledger generation {} in {} ({} ids)", current.generation, directory, current.size);
+    }
+
+    private Path file(long generation) {
+        return directory.resolve(prefix + SUFFIX + generation);
+    }
+
+    private long generationOf(Path path) {
+        String name = path.getFileName().toString();
+        if (!name.startsWith(prefix + SUFFIX)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(name.substring(prefix.length() + SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static void delete(Path path) {
+        try {
+            // A mapping still in use stays valid; the space is freed once it is unmapped
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Could not delete {}: {}", path, e.getMessage());
+        }
+    }
+
+    /**
+     * One generation: a header followed by {@code capacity} slots of 8 bytes, linear
+     * probing, 0 marking a free slot (the id hash 0 itself is kept as a header flag). New
+     * files are sparse, so an unused table costs neither memory nor disk.
+     */
+    private static final class Table {
+
+        static final int HEADER_BYTES = 32;
+        private static final int MAGIC = 0x5045434c;
+        private static final int CAPACITY_OFFSET = 4;
+        private static final int GENERATION_OFFSET = 8;
+        private static final int SIZE_OFFSET = 16;
+        private static final int ZERO_OFFSET = 20;
+
+        final Path path;
+        final long generation;
+        final MappedByteBuffer buffer;
+        private final int mask;
+        private final int maxSize;
+        int size;
+        private boolean hasZero;
+
+        private Table(Path path, long generation, MappedByteBuffer buffer, int capacity) {
+            this.path = path;
+            this.generation = generation;
+            this.buffer = buffer;
+            this.mask = capacity - 1;
+            this.maxSize = capacity / 4 * 3;
+            this.size = buffer.getInt(SIZE_OFFSET);
+            this.hasZero = buffer.get(ZERO_OFFSET) != 0;
+        }
+
+        static Table create(Path path, long generation, int capacity) throws IOException {
+            Files.deleteIfExists(path);
+            MappedByteBuffer buffer = map(path, capacity);
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(CAPACITY_OFFSET, capacity);
+            buffer.putLong(GENERATION_OFFSET, generation);
+            return new Table(path, generation, buffer, capacity);
+        }
+
+        /** Maps an existing generation, or returns {@code null} if it was written for another capacity. */
+        static Table open(Path path, long generation, int capacity) throws IOException {
+            if (Files.size(path) != HEADER_BYTES + (long) capacity * Long.BYTES) {
+                return null;
+            }
+            MappedByteBuffer buffer = map(path, capacity);
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(CAPACITY_OFFSET) != capacity
+                    || buffer.getLong(GENERATION_OFFSET) != generation) {
+                return null;
+            }
+            return new Table(path, generation, buffer, capacity);
+        }
+
+        private static MappedByteBuffer map(Path path, int capacity) throws IOException {
+            try (FileChannel channel = FileChannel.open(path,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                return channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES + (long) capacity * Long.BYTES);
+            }
+        }
+
+        boolean contains(long idHash) {
+            if (idHash == 0) {
+                return hasZero;
+            }
+            for (int i = index(idHash); ; i = (i + 1) & mask) {
+                long slot = slot(i);
+                if (slot == 0) {
+                    return false;
+                }
+                if (slot == idHash) {
+                    return true;
+                }
+            }
+        }
+
+        /** Adds the id; false if it was already present or the table is full. */
+        boolean add(long idHash) {
+            if (idHash == 0) {
+                if (hasZero) {
+                    return false;
+                }
+                hasZero = true;
+                buffer.put(ZERO_OFFSET, (byte) 1);
+                return true;
+            }
+            if (isFull()) {
+                return false;
+            }
+            for (int i = index(idHash); ; i = (i + 1) & mask) {
+                long slot = slot(i);
+                if (slot == idHash) {
+                    return false;
+                }
+                if (slot == 0) {
+                    buffer.putLong(HEADER_BYTES + i * Long.BYTES, idHash);
+                    buffer.putInt(SIZE_OFFSET, ++size);
+                    return true;
+                }
+            }
+        }
+
+        boolean isFull() {
+            return size >= maxSize;
+        }
+
+        private long slot(int i) {
+            return buffer.getLong(HEADER_BYTES + i * Long.BYTES);
+        }
+
+        private int index(long idHash) {
+            return (int) (idHash ^ (idHash >>> 32)) & mask;
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.aruba.zeta.pecintegration.poller;
+
+import java.util.List;
+
+import com.aruba.zeta.pecintegration.sync.MailboxKey;
+
+/**
+ * Published by {@link MailboxOwnership} when it re-reads the registry on an unchanged ring,
+ * so mailboxes registered through other pods reach their owner.
+ *
+ * @param ownedMailboxes registered mailboxes this pod owns
+ */
+public record OwnedMailboxesRescannedEvent(List<MailboxKey> ownedMailboxes) {}
@@ -0,0 +1,424 @@
+package com.aruba.zeta.pecintegration.poller;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+
+import com.aruba.zeta.pecintegration.config.PecPollerProperties;
+import com.aruba.zeta.pecintegration.sync.MailboxKey;
+
+/**
+ * Poll schedules of every mailbox owned by this pod, in struct-of-arrays form.
+ *
+ * <p>Each mailbox is interned to an {@code int} ordinal that indexes parallel primitive
+ * arrays (next due time, last poll, arrival-rate EWMA, failure count, watermark). "Next
+ * due" is a binary min-heap of ordinals with a position index, so popping, rescheduling
+ * and removing are all O(log n), and lookups go through an open-addressing table of
+ * ordinals. Compared with a schedule object per mailbox in a hash map and priority queue
+ * this drops the object headers, boxed entries and pointer chasing that dominate at
+ * millions of mailboxes: apart from its two id strings a mailbox costs under 100 bytes
+ * (see {@code PollScheduleStoreBenchmark}).
+ *
+ * <p>The ids of messages received exactly at a watermark are kept as 64-bit hashes; the
+ * rare mailboxes with several messages at the same instant spill into a side map.
+ * Ordinals are recycled after removal and a per-ordinal generation lets the store ignore
+ * {@link PollTicket}s issued before the removal.
+ *
+ * <p>All methods synchronise on the store and are O(log n) at most, except
+ * {@link #removeIf}, which scans and is meant for rebalances.
+ */
+public final class PollScheduleStore {
+
+    private static final int NONE = -1;
+
+    // Per-ordinal columns
+    private String[] userIds;
+    private String[] mailboxIds;
+    private long[] tokens;
+    private long[] nextPollAt;
+    private long[] lastPollAt;
+    private float[] arrivalRate;
+    private short[] failures;
+    private long[] watermarkNanos;
+    private long[] watermarkIdHash;
+    private int[] generation;
+    private int[] heapPos;
+
+    /** Ids at the watermark for the few mailboxes with more than one. */
+    private final Map<Integer, long[]> tiedIdHashes = new HashMap<>();
+
+    // Ordinal allocation
+    private int highWater;
+    private int size;
+    private int[] freeOrdinals = new int[16];
+    private int freeCount;
+
+    // Due-time heap of ordinals
+    private int[] heap;
+    private int heapSize;
+
+    // Open-addressing index: ordinal + 1 per slot, 0 when empty
+    private int[] index;
+
+    public PollScheduleStore(int initialCapacity) {
+        int capacity = Math.max(initialCapacity, 16);
+        userIds = new String[capacity];
+        mailboxIds = new String[capacity];
+        tokens = new long[capacity];
+        nextPollAt = new long[capacity];
+        lastPollAt = new long[capacity];
+        arrivalRate = new float[capacity];
+        failures = new short[capacity];
+        watermarkNanos = new long[capacity];
+        watermarkIdHash = new long[capacity];
+        generation = new int[capacity];
+        heapPos = new int[capacity];
+        heap = new int[capacity];
+        index = new int[Integer.highestOneBit(capacity * 2 - 1) << 1];
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized boolean contains(MailboxKey key) {
+        return find(key.userId(), key.mailboxId(), HashRing.token(key)) != NONE;
+    }
+
+    /** Epoch millis at which the earliest queued mailbox is due, or {@link Long#MAX_VALUE}. */
+    public synchronized long nextDueAt() {
+        return heapSize == 0 ? Long.MAX_VALUE : nextPollAt[heap[0]];
+    }
+
+    /**
+     * Adds a mailbox, queued for {@code firstPollAt}.
+     *
+     * @return {@code false} if the mailbox was already present
+     */
+    public synchronized boolean add(MailboxKey key, Instant watermark, long firstPollAt) {
+        long token = HashRing.token(key);
+        if (find(key.userId(), key.mailboxId(), token) != NONE) {
+            return false;
+        }
+        int ordinal = allocate();
+        userIds[ordinal] = key.userId();
+        mailboxIds[ordinal] = key.mailboxId();
+        tokens[ordinal] = token;
+        nextPollAt[ordinal] = firstPollAt;
+        lastPollAt[ordinal] = 0;
+        arrivalRate[ordinal] = 0;
+        failures[ordinal] = 0;
+        watermarkNanos[ordinal] = toNanos(watermark);
+        watermarkIdHash[ordinal] = 0;
+        indexInsert(ordinal);
+        heapPush(ordinal);
+        size++;
+        return true;
+    }
+
+    public synchronized boolean remove(MailboxKey key) {
+        int ordinal = find(key.userId(), key.mailboxId(), HashRing.token(key));
+        if (ordinal == NONE) {
+            return false;
+        }
+        release(ordinal);
+        return true;
+    }
+
+    /** Removes every mailbox matching {@code filter}; returns how many were removed. */
+    public synchronized int removeIf(Predicate<MailboxKey> filter) {
+        int removed = 0;
+        for (int ordinal = 0; ordinal < highWater; ordinal++) {
+            if (userIds[ordinal] != null && filter.test(keyOf(ordinal))) {
+                release(ordinal);
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Takes the earliest mailbox off the heap if it is due at {@code nowMs}. The mailbox
+     * stays registered but is not queued again until the ticket is handed back.
+     *
+     * @return the ticket, or {@code null} when nothing is due
+     */
+    public synchronized PollTicket pollDue(long nowMs) {
+        if (heapSize == 0 || nextPollAt[heap[0]] > nowMs) {
+            return null;
+        }
+        int ordinal = heapPop();
+        return new PollTicket(ordinal, generation[ordinal], keyOf(ordinal),
+                toInstant(watermarkNanos[ordinal]), watermarkIds(ordinal));
+    }
+
+    /** Queues a ticket again with its due time unchanged, e.g. when it could not start. */
+    public synchronized void requeue(PollTicket ticket) {
+        if (isCurrent(ticket)) {
+            heapPush(ticket.ordinal);
+        }
+    }
+
+    /**
+     * Takes back a successful poll: folds it into the arrival-rate EWMA and queues the
+     * next poll {@code target / rate} seconds out, clamped to the configured bounds.
+     */
+    public synchronized void recordSuccess(PollTicket ticket, int newMessages, long nowMs, PecPollerProperties props) {
+        if (!isCurrent(ticket)) {
+            return;
+        }
+        int ordinal = ticket.ordinal;
+        storeWatermark(ordinal, ticket);
+        if (lastPollAt[ordinal] > 0) {
+            double elapsedSeconds = Math.max((nowMs - lastPollAt[ordinal]) / 1000.0, 1.0);
+            double observedRate = newMessages / elapsedSeconds;
+            arrivalRate[ordinal] = (float) (props.getEwmaAlpha() * observedRate
+                    + (1 - props.getEwmaAlpha()) * arrivalRate[ordinal]);
+        }
+        lastPollAt[ordinal] = nowMs;
+        failures[ordinal] = 0;
+        nextPollAt[ordinal] = nowMs + intervalMs(arrivalRate[ordinal], props);
+        heapPush(ordinal);
+    }
+
+    /**
+     * Takes back a failed poll, keeping any watermark progress it made, and queues a retry
+     * after an exponential backoff from the minimum interval, capped at the maximum.
+     *
+     * @return consecutive failures of the mailbox, or 0 if it was removed meanwhile
+     */
+    public synchronized int recordFailure(PollTicket ticket, long nowMs, PecPollerProperties props) {
+        if (!isCurrent(ticket)) {
+            return 0;
+        }
+        int ordinal = ticket.ordinal;
+        storeWatermark(ordinal, ticket);
+        if (failures[ordinal] < Short.MAX_VALUE) {
+            failures[ordinal]++;
+        }
+        long backoff = props.getMinIntervalMs() << Math.min(failures[ordinal], 16);
+        nextPollAt[ordinal] = nowMs + Math.min(backoff, props.getMaxIntervalMs());
+        heapPush(ordinal);
+        return failures[ordinal];
+    }
+
+    static long intervalMs(double arrivalRate, PecPollerProperties props) {
+        if (arrivalRate <= 0) {
+            return props.getMaxIntervalMs();
+        }
+        long interval = (long) (props.getTargetMessagesPerPoll() / arrivalRate * 1000);
+        return Math.clamp(interval, props.getMinIntervalMs(), props.getMaxIntervalMs());
+    }
+
+    // Ordinals
+
+    private int allocate() {
+        if (freeCount > 0) {
+            return freeOrdinals[--freeCount];
+        }
+        if (highWater == userIds.length) {
+            grow();
+        }
+        return highWater++;
+    }
+
+    private void release(int ordinal) {
+        if (heapPos[ordinal] != NONE) {
+            heapRemove(ordinal);
+        }
+        indexDelete(ordinal);
+        tiedIdHashes.remove(ordinal);
+        userIds[ordinal] = null;
+        mailboxIds[ordinal] = null;
+        generation[ordinal]++;
+        if (freeCount == freeOrdinals.length) {
+            freeOrdinals = Arrays.copyOf(freeOrdinals, freeCount * 2);
+        }
+        freeOrdinals[freeCount++] = ordinal;
+        size--;
+    }
+
+    private boolean isCurrent(PollTicket ticket) {
+        return generation[ticket.ordinal] == ticket.generation && userIds[ticket.ordinal] != null;
+    }
+
+    private MailboxKey keyOf(int ordinal) {
+        return new MailboxKey(userIds[ordinal], mailboxIds[ordinal]);
+    }
+
+    private void grow() {
+        int capacity = userIds.length + (userIds.length >> 1);
+        userIds = Arrays.copyOf(userIds, capacity);
+        mailboxIds = Arrays.copyOf(mailboxIds, capacity);
+        tokens = Arrays.copyOf(tokens, capacity);
+        nextPollAt = Arrays.copyOf(nextPollAt, capacity);
+        lastPollAt = Arrays.copyOf(lastPollAt, capacity);
+        arrivalRate = Arrays.copyOf(arrivalRate, capacity);
+        failures = Arrays.copyOf(failures, capacity);
+        watermarkNanos = Arrays.copyOf(watermarkNanos, capacity);
+        watermarkIdHash = Arrays.copyOf(watermarkIdHash, capacity);
+        generation = Arrays.copyOf(generation, capacity);
+        heapPos = Arrays.copyOf(heapPos, capacity);
+        heap = Arrays.copyOf(heap, capacity);
+    }
+
+    // Watermarks
+
+    private long[] watermarkIds(int ordinal) {
+        long[] tied = tiedIdHashes.get(ordinal);
+        if (tied != null) {
+            return tied.clone();
+        }
+        return watermarkIdHash[ordinal] == 0 ? new long[0] : new long[] {watermarkIdHash[ordinal]};
+    }
+
+    private void storeWatermark(int ordinal, PollTicket ticket) {
+        watermarkNanos[ordinal] = toNanos(ticket.getWatermark());
+        long[] ids = ticket.watermarkIdHashes;
+        watermarkIdHash[ordinal] = ids.length == 0 ? 0 : ids[0];
+        if (ids.length > 1) {
+            tiedIdHashes.put(ordinal, ids.clone());
+        } else {
+            tiedIdHashes.remove(ordinal);
+        }
+    }
+
+    /** Nanosecond precision keeps Aruba timestamps exact; the range ends in 2262. */
+    private static long toNanos(Instant instant) {
+        return Math.addExact(Math.multiplyExact(instant.getEpochSecond(), 1_000_000_000L), instant.getNano());
+    }
+
+    private static Instant toInstant(long nanos) {
+        return Instant.ofEpochSecond(Math.floorDiv(nanos, 1_000_000_000L), Math.floorMod(nanos, 1_000_000_000L));
+    }
+
+    // Heap
+
+    private void heapPush(int ordinal) {
+        heap[heapSize] = ordinal;
+        heapPos[ordinal] = heapSize;
+        siftUp(heapSize++);
+    }
+
+    private int heapPop() {
+        int ordinal = heap[0];
+        heapRemove(ordinal);
+        return ordinal;
+    }
+
+    private void heapRemove(int ordinal) {
+        int pos = heapPos[ordinal];
+        heapPos[ordinal] = NONE;
+        int last = heap[--heapSize];
+        if (pos == heapSize) {
+            return;
+        }
+        heap[pos] = last;
+        heapPos[last] = pos;
+        siftDown(pos);
+        siftUp(heapPos[last]);
+    }
+
+    private void siftUp(int pos) {
+        int ordinal = heap[pos];
+        long due = nextPollAt[ordinal];
+        while (pos > 0) {
+            int parent = (pos - 1) >>> 1;
+            int parentOrdinal = heap[parent];
+            if (nextPollAt[parentOrdinal] <= due) {
+                break;
+            }
+            heap[pos] = parentOrdinal;
+            heapPos[parentOrdinal] = pos;
+            pos = parent;
+        }
+        heap[pos] = ordinal;
+        heapPos[ordinal] = pos;
+    }
+
+    private void siftDown(int pos) {
+        int ordinal = heap[pos];
+        long due = nextPollAt[ordinal];
+        int half = heapSize >>> 1;
+        while (pos < half) {
+            int child = 2 * pos + 1;
+            int right = child + 1;
+            if (right < heapSize && nextPollAt[heap[right]] < nextPollAt[heap[child]]) {
+                child = right;
+            }
+            if (due <= nextPollAt[heap[child]]) {
+                break;
+            }
+            heap[pos] = heap[child];
+            heapPos[heap[pos]] = pos;
+            pos = child;
+        }
+        heap[pos] = ordinal;
+        heapPos[ordinal] = pos;
+    }
+
+    // Index (linear probing, backward-shift deletion)
+
+    private int home(long token) {
+        return (int) (token ^ (token >>> 32)) & (index.length - 1);
+    }
+
+    private int find(String userId, String mailboxId, long token) {
+        int mask = index.length - 1;
+        for (int slot = home(token); index[slot] != 0; slot = (slot + 1) & mask) {
+            int ordinal = index[slot] - 1;
+            if (tokens[ordinal] == token && userIds[ordinal].equals(userId) && mailboxIds[ordinal].equals(mailboxId)) {
+                return ordinal;
+            }
+        }
+        return NONE;
+    }
+
+    private void indexInsert(int ordinal) {
+        // Keep the load factor at or below 1/2
+        if ((size + 1) * 2 > index.length) {
+            rehash(index.length * 2);
+        }
+        int mask = index.length - 1;
+        int slot = home(tokens[ordinal]);
+        while (index[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        index[slot] = ordinal + 1;
+    }
+
+    private void indexDelete(int ordinal) {
+        int mask = index.length - 1;
+        int hole = home(tokens[ordinal]);
+        while (index[hole] != ordinal + 1) {
+            hole = (hole + 1) & mask;
+        }
+        index[hole] = 0;
+        for (int slot = (hole + 1) & mask; index[slot] != 0; slot = (slot + 1) & mask) {
+            int entryHome = home(tokens[index[slot] - 1]);
+            // Move the entry back unless its home lies cyclically after the hole
+            if (((slot - entryHome) & mask) >= ((slot - hole) & mask)) {
+                index[hole] = index[slot];
+                index[slot] = 0;
+                hole = slot;
+            }
+        }
+    }
+
+    private void rehash(int length) {
+        int[] old = index;
+        index = new int[length];
+        int mask = length - 1;
+        for (int entry : old) {
+            if (entry != 0) {
+                int slot = home(tokens[entry - 1]);
+                while (index[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                index[slot] = entry;
+            }
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.aruba.zeta.pecintegration.poller;
+
+import java.time.Instant;
+import java.util.Arrays;
+
+import com.aruba.zeta.pecintegration.sync.MailboxKey;
+
+import lombok.Getter;
+
+/**
+ * A mailbox handed out for polling by {@link PollScheduleStore#pollDue}. Carries a private
+ * copy of the watermark that the poll advances as it announces messages; the store takes
+ * it back through {@code recordSuccess}/{@code recordFailure}.
+ *
+ * <p>Confined to the polling thread.
+ */
+public final class PollTicket {
+
+    final int ordinal;
+    final int generation;
+
+    @Getter
+    private final MailboxKey key;
+
+    @Getter
+    private Instant watermark;
+
+    /** Hashes of the ids received exactly at the watermark. */
+    long[] watermarkIdHashes;
+
+    PollTicket(int ordinal, int generation, MailboxKey key, Instant watermark, long[] watermarkIdHashes) {
+        this.ordinal = ordinal;
+        this.generation = generation;
+        this.key = key;
+        this.watermark = watermark;
+        this.watermarkIdHashes = watermarkIdHashes;
+    }
+
+    /** Whether a message received at {@code at} is newer than what was already announced. */
+    public boolean isNew(Instant at, String messageId) {
+        if (at.isAfter(watermark)) {
+            return true;
+        }
+        return at.equals(watermark) && !containsId(HashRing.hash64(messageId));
+    }
+
+    /** Messages already announced at exactly the watermark instant. */
+    public int announcedAtWatermark() {
+        return watermarkIdHashes.length;
+    }
+
+    /** Records an announced message; messages must be announced oldest first. */
+    public void advanceWatermark(Instant at, String messageId) {
+        long idHash = HashRing.hash64(messageId);
+        if (at.isAfter(watermark)) {
+            watermark = at;
+            watermarkIdHashes = new long[] {idHash};
+        } else if (at.equals(watermark) && !containsId(idHash)) {
+            long[] grown = Arrays.copyOf(watermarkIdHashes, watermarkIdHashes.length + 1);
+            grown[watermarkIdHashes.length] = idHash;
+            watermarkIdHashes = grown;
+        }
+    }
+
+    private boolean containsId(long idHash) {
+        for (long known : watermarkIdHashes) {
+            if (known == idHash) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,46 @@
+package com.aruba.zeta.pecintegration.poller;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.SortedSet;
+
+import com.aruba.zeta.pecintegration.sync.MailboxKey;
+
+/**
+ * State shared by the poller pods of a deployment: membership leases, the registry of
+ * mailboxes to poll (indexed by {@link HashRing#token ring token} so a pod can load just
+ * its own arcs) and the last announced watermark of each mailbox, so ownership can move
+ * between pods without re-announcing or skipping messages.
+ *
+ * <p>A shared implementation (e.g. a table keyed by token) makes the pods cooperate; the
+ * in-memory one only spans a single JVM and suits single-replica deployments and tests.
+ */
+public interface PollerClusterStore {
+
+    /** Creates or extends the lease of {@code podId} until {@code expiresAt}. */
+    void renewLease(String podId, Instant expiresAt);
+
+    /** Drops the lease of {@code podId} so peers take over its mailboxes right away. */
+    void releaseLease(String podId);
+
+    /** Pods holding a lease that has not expired at {@code now}. */
+    SortedSet<String> liveMembers(Instant now);
+
+    /**
+     * Adds mailboxes to the registry; already registered ones are left untouched.
+     *
+     * @param initialWatermark watermark of newly registered mailboxes: whichever pod owns
+     *                         them announces messages received after it
+     */
+    void registerMailboxes(Collection<MailboxKey> keys, Instant initialWatermark);
+
+    /** Registered mailboxes whose ring token falls in {@code range}. */
+    List<MailboxKey> mailboxesIn(TokenRange range);
+
+    /** Newest {@code received_at} announced for the mailbox, if it was ever polled. */
+    Optional<Instant> watermark(MailboxKey key);
+
+    void saveWatermark(MailboxKey key, Instant watermark);
+}
@@ -0,0 +1,209 @@
+package com.aruba.zeta.pecintegration.poller;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.aruba.zeta.pecintegration.config.PecDedupProperties;
+import com.aruba.zeta.pecintegration.sync.MailboxKey;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Suppresses new-message events for messages that were already announced, e.g. when a poll
+ * is retried after a timeout or a mailbox changes owner between a publish and the
+ * watermark save.
+ *
+ * <p>Every announced id goes into a time-rotated Bloom filter: two generations of
+ * {@code pec.dedup.generation-period-ms} each, so an id is remembered for one to two
+ * periods in a fixed amount of memory. A negative answer (the common case for genuinely
+ * new mail) is final and costs {@code k} bit reads; only possible hits are confirmed
+ * against the exact {@link SeenMessageLedger}, which rotates with the filter and keeps
+ * false positives from ever suppressing a real message.
+ *
+ * <p>The filter is snapshotted to {@code pec.dedup.snapshot-path} periodically and on
+ * shutdown, when the ledger is also flushed, and restored on startup when the sizing
+ * parameters still match.
+ */
+@Slf4j
+@Component
+public class SeenMessageFilter {
+
+    private static final int SNAPSHOT_MAGIC = 0x50454346;
+    private static final int SNAPSHOT_VERSION = 3;
+
+    private final SeenMessageLedger ledger;
+    private final PecDedupProperties props;
+
+    private volatile BloomFilter current;
+    private volatile BloomFilter previous;
+
+    private final Counter negatives;
+    private final Counter confirmed;
+    private final Counter unconfirmed;
+
+    public SeenMessageFilter(SeenMessageLedger ledger, PecDedupProperties props, MeterRegistry meterRegistry) {
+        this.ledger = ledger;
+        this.props = props;
+        this.current = newGeneration(System.currentTimeMillis());
+
+        this.negatives = lookupCounter(meterRegistry, "negative");
+        this.confirmed = lookupCounter(meterRegistry, "confirmed");
+        this.unconfirmed = lookupCounter(meterRegistry, "unconfirmed");
+        Gauge.builder("pec.dedup.false.positive.rate", this, f -> f.current.expectedFalsePositiveRate())
+                .description("Expected false-positive rate of the current filter generation at its fill")
+                .register(meterRegistry);
+        Gauge.builder("pec.dedup.generation.fill", this,
+                        f -> (double) f.current.insertions() / f.current.expectedInsertions())
+                .description("Insertions into the current filter generation relative to its sizing")
+                .register(meterRegistry);
+    }
+
+    /** Ledger key of a message: mailbox and message id hashed together. */
+    public static long idHash(MailboxKey key, String messageId) {
+        return HashRing.hash64(key.mailboxId() + '\u0000' + messageId);
+    }
+
+    /** Whether the message was announced before; false positives of the filter never leak out. */
+    public boolean isDuplicate(MailboxKey key, String messageId) {
+        if (!props.isEnabled()) {
+            return false;
+        }
+        long hash = idHash(key, messageId);
+        BloomFilter older = previous;
+        if (!current.mightContain(hash) && (older == null || !older.mightContain(hash))) {
+            negatives.increment();
+            return false;
+        }
+        if (ledger.contains(hash)) {
+            confirmed.increment();
+            return true;
+        }
+        // Filter false positive, or an id the ledger has forgotten: announce again
+        unconfirmed.increment();
+        return false;
+    }
+
+    /** Records an announced message. */
+    public void markSeen(MailboxKey key, String messageId) {
+        if (!props.isEnabled()) {
+            return;
+        }
+        long hash = idHash(key, messageId);
+        rotateIfDue(System.currentTimeMillis());
+        current.put(hash);
+        ledger.record(hash);
+    }
+
+    private void rotateIfDue(long nowMs) {
+        BloomFilter active = current;
+        boolean expired = nowMs - active.createdAt() >= props.getGenerationPeriodMs();
+        if (!expired && active.insertions() < active.expectedInsertions()) {
+            return;
+        }
+        synchronized (this) {
+            if (current == active) {
+                previous = active;
+                current = newGeneration(nowMs);
+                ledger.rotate();
+                log.info("Rotated seen-message filter generation after {} ids ({})",
+                        active.insertions(), expired ? "period elapsed" : "generation full");
+            }
+        }
+    }
+
+    private BloomFilter newGeneration(long nowMs) {
+        return new BloomFilter(props.getExpectedMessagesPerGeneration(), props.getFalsePositiveRate(), nowMs);
+    }
+
+    private static Counter lookupCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("pec.dedup.lookups")
+                .description("Seen-message filter lookups by outcome")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    // Snapshot persistence
+
+    @PostConstruct
+    void restore() {
+        Path path = snapshotPath();
+        if (!props.isEnabled() || path == null || !Files.exists(path)) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_VERSION
+                    || in.readLong() != props.getExpectedMessagesPerGeneration()
+                    || in.readDouble() != props.getFalsePositiveRate()) {
+                log.info("Ignoring seen-message filter snapshot {}: written with different settings", path);
+                return;
+            }
+            BloomFilter restoredCurrent = BloomFilter.readFrom(in);
+            BloomFilter restoredPrevious = in.readBoolean() ? BloomFilter.readFrom(in) : null;
+
+            long age = System.currentTimeMillis() - restoredCurrent.createdAt();
+            if (age >= 2 * props.getGenerationPeriodMs()) {
+                log.info("Ignoring seen-message filter snapshot {}: older than two generations", path);
+                return;
+            }
+            current = restoredCurrent;
+            previous = restoredPrevious;
+            rotateIfDue(System.currentTimeMillis());
+            log.info("Restored seen-message filter from {} ({} ids in the current generation)",
+                    path, restoredCurrent.insertions());
+        } catch (IOException e) {
+            log.warn("Failed to restore seen-message filter from {}: {}", path, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    @Scheduled(fixedDelayString = "${pec.dedup.snapshot-interval-ms:300000}",
+            initialDelayString = "${pec.dedup.snapshot-interval-ms:300000}")
+    void snapshot() {
+        Path path = snapshotPath();
+        if (!props.isEnabled() || path == null) {
+            return;
+        }
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try {
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            BloomFilter active = current;
+            BloomFilter older = previous;
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                out.writeInt(SNAPSHOT_MAGIC);
+                out.writeInt(SNAPSHOT_VERSION);
+                out.writeLong(props.getExpectedMessagesPerGeneration());
+                out.writeDouble(props.getFalsePositiveRate());
+                active.writeTo(out);
+                out.writeBoolean(older != null);
+                if (older != null) {
+                    older.writeTo(out);
+                }
+            }
+            ledger.flush();
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.debug("Wrote seen-message filter snapshot to {}", path);
+        } catch (IOException e) {
+            log.warn("Failed to write seen-message filter snapshot to {}: {}", path, e.getMessage());
+        }
+    }
+
+    private Path snapshotPath() {
+        return props.getSnapshotPath().isBlank() ? null : Path.of(props.getSnapshotPath());
+    }
+}
@@ -0,0 +1,27 @@
+package com.aruba.zeta.pecintegration.poller;
+
+/**
+ * Exact record of announced messages, consulted only when the {@link SeenMessageFilter}
+ * Bloom filter reports a possible hit. It is kept off the heap (see
+ * {@link MappedSeenMessageLedger}): held in memory, it would answer every query on its own
+ * and leave the filter pure overhead. Entries are 64-bit hashes of mailbox and message
+ * id, see {@link SeenMessageFilter#idHash}.
+ *
+ * <p>An implementation should remember an id for as long as the filter does, i.e. until
+ * two {@link #rotate() rotations} after it was recorded: a filter hit on a forgotten id is
+ * announced again, never lost, but is a duplicate event.
+ */
+public interface SeenMessageLedger {
+
+    boolean contains(long idHash);
+
+    void record(long idHash);
+
+    /** Called when the filter starts a new generation; ids recorded before the previous rotation may be dropped. */
+    default void rotate() {
+    }
+
+    /** Makes the recorded ids durable, if the ledger persists them; called with each filter snapshot. */
+    default void flush() {
+    }
+}
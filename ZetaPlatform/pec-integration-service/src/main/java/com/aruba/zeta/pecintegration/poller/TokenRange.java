@@ -0,0 +1,32 @@
+package com.aruba.zeta.pecintegration.poller;
+
+/**
+ * Arc of the 64-bit hash ring, {@code (startExclusive, endInclusive]} in signed order,
+ * wrapping past {@link Long#MAX_VALUE} when {@code startExclusive >= endInclusive}.
+ * A range whose bounds are equal covers the whole ring.
+ */
+public record TokenRange(long startExclusive, long endInclusive) {
+
+    public boolean contains(long token) {
+        if (startExclusive < endInclusive) {
+            return token > startExclusive && token <= endInclusive;
+        }
+        return token > startExclusive || token <= endInclusive;
+    }
+
+    /** Whether the range wraps past {@link Long#MAX_VALUE} (or covers the whole ring). */
+    public boolean wraps() {
+        return startExclusive >= endInclusive;
+    }
+
+    /** Fraction of the ring covered, in {@code (0, 1]}. */
+    public double share() {
+        long width = endInclusive - startExclusive;
+        if (width == 0) {
+            return 1.0;
+        }
+        // Unsigned width: subtraction wraps naturally on the 2^64 ring
+        double unsigned = width > 0 ? width : width + 0x1p64;
+        return unsigned / 0x1p64;
+    }
+}
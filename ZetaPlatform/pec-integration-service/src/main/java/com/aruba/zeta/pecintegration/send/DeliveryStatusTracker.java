@@ -0,0 +1,397 @@
+package com.aruba.zeta.pecintegration.send;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+import org.springframework.amqp.AmqpException;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.aruba.zeta.pec.grpc.MessageStatus;
+import com.aruba.zeta.pec.grpc.MessageStatusUpdate;
+import com.aruba.zeta.pec.grpc.PecMessage;
+import com.aruba.zeta.pecintegration.client.resilience.ArubaCallDispatcher;
+import com.aruba.zeta.pecintegration.client.resilience.ArubaCallPriority;
+import com.aruba.zeta.pecintegration.client.rest.ArubaPecApiClient;
+import com.aruba.zeta.pecintegration.config.PecStatusTrackingProperties;
+import com.aruba.zeta.pecintegration.dto.DecodedMessagePage;
+import com.aruba.zeta.pecintegration.mapper.PecProtoMapper;
+import com.aruba.zeta.pecintegration.messaging.PecEventPublisher;
+import com.aruba.zeta.pecintegration.service.PecAccessTokenService;
+import com.aruba.zeta.pecintegration.sync.MailboxKey;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Follows sent PEC messages until Aruba reports them {@code DELIVERED} or {@code FAILED}.
+ *
+ * <p>Pending message ids are grouped per mailbox, and a mailbox is refreshed with a single
+ * listing walk from its oldest pending submission onwards, however many of its messages
+ * are pending; sends made while a check is scheduled simply join it. The check interval
+ * starts at {@code pec.status.initial-delay-ms} and doubles after every check without
+ * changes, up to {@code pec.status.max-delay-ms}, so quiet mailboxes cost little.
+ *
+ * <p>Every change is published as an event on RabbitMQ and handed to local subscribers. A
+ * change is only applied once its event was published, so a broker outage delays events
+ * instead of losing them. Tracking state is held by the replica that performed the send;
+ * with {@code pec.status.event-feed-enabled}, the changes detected by other replicas reach
+ * this one's subscribers through {@link #acceptRemote}.
+ */
+@Slf4j
+@Component
+public class DeliveryStatusTracker {
+
+    private final ArubaPecApiClient arubaPecApiClient;
+    private final ArubaCallDispatcher arubaCallDispatcher;
+    private final PecAccessTokenService pecAccessTokenService;
+    private final PecEventPublisher eventPublisher;
+    private final PecStatusTrackingProperties props;
+    private final AsyncTaskExecutor taskExecutor;
+
+    private final ConcurrentMap<MailboxKey, TrackedMailbox> mailboxes = new ConcurrentHashMap<>();
+    /** Mailbox of every pending message, by {@link #messageKey}. */
+    private final ConcurrentMap<String, MailboxKey> pendingIndex = new ConcurrentHashMap<>();
+    private final Cache<String, MessageStatusUpdate> recentFinal;
+    private final CopyOnWriteArrayList<BiConsumer<String, MessageStatusUpdate>> listeners = new CopyOnWriteArrayList<>();
+    private final Semaphore refreshPermits;
+    private final AtomicInteger tracked = new AtomicInteger();
+
+    private final MeterRegistry meterRegistry;
+    private final Counter expired;
+
+    public DeliveryStatusTracker(
+            ArubaPecApiClient arubaPecApiClient,
+            ArubaCallDispatcher arubaCallDispatcher,
+            PecAccessTokenService pecAccessTokenService,
+            PecEventPublisher eventPublisher,
+            PecStatusTrackingProperties props,
+            @Qualifier("applicationTaskExecutor") AsyncTaskExecutor taskExecutor,
+            MeterRegistry meterRegistry) {
+        this.arubaPecApiClient = arubaPecApiClient;
+        this.arubaCallDispatcher = arubaCallDispatcher;
+        this.pecAccessTokenService = pecAccessTokenService;
+        this.eventPublisher = eventPublisher;
+        this.props = props;
+        this.taskExecutor = taskExecutor;
+        this.refreshPermits = new Semaphore(props.getMaxConcurrentRefreshes());
+        this.recentFinal = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMillis(props.getRecentFinalRetentionMs()))
+                .maximumSize(100_000)
+                .build();
+        this.meterRegistry = meterRegistry;
+        this.expired = Counter.builder("pec.status.expired")
+                .description("Sent messages dropped from tracking without a final status")
+                .register(meterRegistry);
+        Gauge.builder("pec.status.tracked", tracked, AtomicInteger::get)
+                .description("Sent messages awaiting a final delivery status")
+                .register(meterRegistry);
+        Gauge.builder("pec.status.listeners", listeners, CopyOnWriteArrayList::size)
+                .description("Local status subscribers")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Starts tracking a message accepted by Aruba. Messages already in a final status are
+     * only remembered for subscribers.
+     */
+    public void track(String userId, String mailboxId, String messageId, String trackingId, MessageStatus status) {
+        if (!props.isEnabled() || messageId.isEmpty()) {
+            return;
+        }
+        Instant now = Instant.now();
+        if (isFinal(status)) {
+            recentFinal.put(messageKey(userId, messageId),
+                    statusUpdate(mailboxId, messageId, trackingId, status, status, now));
+            return;
+        }
+        MailboxKey key = new MailboxKey(userId, mailboxId);
+        mailboxes.compute(key, (k, mailbox) -> {
+            TrackedMailbox target = mailbox != null ? mailbox : new TrackedMailbox(k);
+            if (target.add(new Pending(messageId, trackingId, status, now), now.toEpochMilli() + props.getInitialDelayMs())) {
+                pendingIndex.put(messageKey(userId, messageId), k);
+                tracked.incrementAndGet();
+            }
+            return target;
+        });
+    }
+
+    /** Last known status of a message tracked by this replica or recently finished. */
+    public Optional<MessageStatusUpdate> currentStatus(String userId, String messageId) {
+        String messageKey = messageKey(userId, messageId);
+        MessageStatusUpdate done = recentFinal.getIfPresent(messageKey);
+        if (done != null) {
+            return Optional.of(done);
+        }
+        MailboxKey mailboxKey = pendingIndex.get(messageKey);
+        TrackedMailbox mailbox = mailboxKey != null ? mailboxes.get(mailboxKey) : null;
+        return mailbox != null ? mailbox.statusOf(messageId) : Optional.empty();
+    }
+
+    /**
+     * Hands a change detected by another replica to the local subscribers, and remembers
+     * final statuses for late ones like local changes.
+     */
+    public void acceptRemote(String userId, MessageStatusUpdate update) {
+        if (isFinal(update.getCurrentStatus())) {
+            recentFinal.put(messageKey(userId, update.getMessageId()), update);
+        }
+        notifyListeners(userId, update);
+    }
+
+    /**
+     * Registers a listener for the status changes of every user, called with the user id
+     * and the change. It runs on refresh threads and must not block.
+     *
+     * @return handle removing the listener
+     */
+    public Runnable addListener(BiConsumer<String, MessageStatusUpdate> listener) {
+        listeners.add(listener);
+        return () -> listeners.remove(listener);
+    }
+
+    @Scheduled(fixedDelayString = "${pec.status.dispatch-interval-ms:1000}")
+    void dispatch() {
+        if (!props.isEnabled()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        for (TrackedMailbox mailbox : mailboxes.values()) {
+            if (!mailbox.claimIfDue(now)) {
+                continue;
+            }
+            if (!refreshPermits.tryAcquire()) {
+                mailbox.release();
+                return;
+            }
+            taskExecutor.execute(() -> {
+                try {
+                    refresh(mailbox);
+                } finally {
+                    refreshPermits.release();
+                }
+            });
+        }
+    }
+
+    private void refresh(TrackedMailbox mailbox) {
+        MailboxKey key = mailbox.key;
+        boolean changed = false;
+        String result = "unchanged";
+        try {
+            expireOld(mailbox);
+            Map<String, Pending> pending = mailbox.snapshot();
+            if (pending.isEmpty()) {
+                return;
+            }
+            Instant since = pending.values().stream()
+                    .map(Pending::submittedAt)
+                    .min(Instant::compareTo)
+                    .orElseThrow()
+                    .minusMillis(props.getLookbackSlackMs());
+
+            int remaining = pending.size();
+            int page = 0;
+            int totalPages;
+            do {
+                String accessToken = pecAccessTokenService.getValidAccessToken(key.userId());
+                int pageIndex = page;
+                DecodedMessagePage messagePage = arubaCallDispatcher.call(ArubaCallPriority.BACKGROUND, key.userId(),
+                        () -> arubaPecApiClient.getMessagePage(
+                                accessToken, key.mailboxId(), since, null, pageIndex, props.getPageSize()));
+                for (PecMessage message : messagePage.getMessages()) {
+                    Pending known = pending.get(message.getId());
+                    if (known == null) {
+                        continue;
+                    }
+                    remaining--;
+                    if (message.getStatus() != known.status()
+                            && message.getStatus() != MessageStatus.MESSAGE_STATUS_UNSPECIFIED) {
+                        changed |= apply(mailbox, known, message.getStatus());
+                    }
+                }
+                totalPages = messagePage.getTotalPages();
+                page++;
+            } while (remaining > 0 && page < totalPages && page < props.getMaxPagesPerRefresh());
+            result = changed ? "changed" : "unchanged";
+        } catch (Exception e) {
+            result = "error";
+            log.warn("Status refresh of mailbox {} for user {} failed: {}", key.mailboxId(), key.userId(), e.getMessage());
+        } finally {
+            countRefresh(result);
+            mailbox.reschedule(changed, System.currentTimeMillis(), props);
+            mailboxes.computeIfPresent(key, (k, m) -> m.isEmpty() ? null : m);
+        }
+    }
+
+    /** Publishes the change, then records it; returns whether it was applied. */
+    private boolean apply(TrackedMailbox mailbox, Pending known, MessageStatus status) {
+        MessageStatusUpdate update = statusUpdate(
+                mailbox.key.mailboxId(), known.messageId(), known.trackingId(), known.status(), status, Instant.now());
+        try {
+            eventPublisher.publishStatusChanged(mailbox.key.userId(), update);
+        } catch (AmqpException e) {
+            log.warn("Failed to publish status change of message {}: {}", known.messageId(), e.getMessage());
+            return false;
+        }
+        if (isFinal(status)) {
+            String messageKey = messageKey(mailbox.key.userId(), known.messageId());
+            recentFinal.put(messageKey, update);
+            if (mailbox.remove(known.messageId())) {
+                pendingIndex.remove(messageKey, mailbox.key);
+                tracked.decrementAndGet();
+            }
+        } else {
+            mailbox.update(known.withStatus(status));
+        }
+        Counter.builder("pec.status.changes")
+                .description("Delivery-status changes detected for sent messages")
+                .tag("status", status.name())
+                .register(meterRegistry)
+                .increment();
+        notifyListeners(mailbox.key.userId(), update);
+        return true;
+    }
+
+    private void notifyListeners(String userId, MessageStatusUpdate update) {
+        for (BiConsumer<String, MessageStatusUpdate> listener : listeners) {
+            listener.accept(userId, update);
+        }
+    }
+
+    private void expireOld(TrackedMailbox mailbox) {
+        Instant cutoff = Instant.now().minusMillis(props.getMaxTrackingAgeMs());
+        List<String> dropped = mailbox.removeSubmittedBefore(cutoff);
+        if (!dropped.isEmpty()) {
+            dropped.forEach(messageId -> pendingIndex.remove(messageKey(mailbox.key.userId(), messageId), mailbox.key));
+            tracked.addAndGet(-dropped.size());
+            expired.increment(dropped.size());
+            log.info("Stopped tracking {} messages of mailbox {} still pending after {}",
+                    dropped.size(), mailbox.key.mailboxId(), Duration.ofMillis(props.getMaxTrackingAgeMs()));
+        }
+    }
+
+    private void countRefresh(String result) {
+        Counter.builder("pec.status.refreshes")
+                .description("Mailbox status refreshes by outcome")
+                .tag("result", result)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private static String messageKey(String userId, String messageId) {
+        return userId + '\u0000' + messageId;
+    }
+
+    public static boolean isFinal(MessageStatus status) {
+        return status == MessageStatus.MESSAGE_STATUS_DELIVERED || status == MessageStatus.MESSAGE_STATUS_FAILED;
+    }
+
+    private static MessageStatusUpdate statusUpdate(String mailboxId, String messageId, String trackingId,
+                                                    MessageStatus previous, MessageStatus current, Instant at) {
+        return MessageStatusUpdate.newBuilder()
+                .setMessageId(messageId)
+                .setMailboxId(mailboxId)
+                .setTrackingId(trackingId)
+                .setPreviousStatus(previous)
+                .setCurrentStatus(current)
+                .setChangedAt(PecProtoMapper.toTimestamp(at))
+                .build();
+    }
+
+    record Pending(String messageId, String trackingId, MessageStatus status, Instant submittedAt) {
+        Pending withStatus(MessageStatus newStatus) {
+            return new Pending(messageId, trackingId, newStatus, submittedAt);
+        }
+    }
+
+    /** Pending messages and check schedule of one mailbox; all state is guarded by the instance. */
+    private static final class TrackedMailbox {
+
+        final MailboxKey key;
+        private final Map<String, Pending> pending = new HashMap<>();
+        private long nextCheckAt = Long.MAX_VALUE;
+        private int unchangedChecks;
+        private boolean refreshing;
+
+        TrackedMailbox(MailboxKey key) {
+            this.key = key;
+        }
+
+        /** Adds a message and pulls the next check to {@code checkAt} at the latest. */
+        synchronized boolean add(Pending message, long checkAt) {
+            boolean added = pending.putIfAbsent(message.messageId(), message) == null;
+            if (checkAt < nextCheckAt) {
+                nextCheckAt = checkAt;
+            }
+            unchangedChecks = 0;
+            return added;
+        }
+
+        synchronized boolean claimIfDue(long now) {
+            if (refreshing || pending.isEmpty() || now < nextCheckAt) {
+                return false;
+            }
+            refreshing = true;
+            return true;
+        }
+
+        synchronized void release() {
+            refreshing = false;
+        }
+
+        synchronized void reschedule(boolean changed, long now, PecStatusTrackingProperties props) {
+            unchangedChecks = changed ? 0 : Math.min(unchangedChecks + 1, 30);
+            long delay = Math.min(props.getInitialDelayMs() << Math.min(unchangedChecks, 20), props.getMaxDelayMs());
+            nextCheckAt = now + delay;
+            refreshing = false;
+        }
+
+        synchronized Map<String, Pending> snapshot() {
+            return new HashMap<>(pending);
+        }
+
+        synchronized Optional<MessageStatusUpdate> statusOf(String messageId) {
+            Pending message = pending.get(messageId);
+            return Optional.ofNullable(message).map(m -> statusUpdate(
+                    key.mailboxId(), m.messageId(), m.trackingId(), m.status(), m.status(), m.submittedAt()));
+        }
+
+        synchronized void update(Pending message) {
+            pending.replace(message.messageId(), message);
+        }
+
+        synchronized boolean remove(String messageId) {
+            return pending.remove(messageId) != null;
+        }
+
+        synchronized List<String> removeSubmittedBefore(Instant cutoff) {
+            List<String> removed = pending.values().stream()
+                    .filter(m -> m.submittedAt().isBefore(cutoff))
+                    .map(Pending::messageId)
+                    .toList();
+            removed.forEach(pending::remove);
+            return removed;
+        }
+
+        synchronized boolean isEmpty() {
+            return pending.isEmpty() && !refreshing;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.aruba.zeta.pecintegration.send;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentMap;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.aruba.zeta.pecintegration.config.PecSendProperties;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * Embedded {@link SendRecordStore}: size- and time-bounded in-memory maps of records by
+ * tracking id and of tracking ids by idempotency scope, kept for {@code pec.send.retention-ms}.
+ *
+ * <p>Only suitable for a single replica: with several, a resubmission or a redelivered
+ * send landing on another pod is not recognised.
+ */
+@Component
+public class InMemorySendRecordStore implements SendRecordStore {
+
+    private final ConcurrentMap<String, SendRecord> records;
+    private final ConcurrentMap<String, String> trackingIdsByScope;
+
+    @Autowired
+    public InMemorySendRecordStore(PecSendProperties props, MeterRegistry meterRegistry) {
+        Duration retention = Duration.ofMillis(props.getRetentionMs());
+        Cache<String, SendRecord> recordCache = Caffeine.newBuilder()
+                .maximumSize(props.getMaxRecords())
+                .expireAfterWrite(retention)
+                .recordStats()
+                .build();
+        Cache<String, String> scopeCache = Caffeine.newBuilder()
+                .maximumSize(props.getMaxRecords())
+                .expireAfterWrite(retention)
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, recordCache, "pec.send.records");
+        this.records = recordCache.asMap();
+        this.trackingIdsByScope = scopeCache.asMap();
+    }
+
+    InMemorySendRecordStore(ConcurrentMap<String, SendRecord> records, ConcurrentMap<String, String> trackingIdsByScope) {
+        this.records = records;
+        this.trackingIdsByScope = trackingIdsByScope;
+    }
+
+    @Override
+    public Optional<SendRecord> registerIfAbsent(SendRecord record) {
+        while (true) {
+            // The record goes in first, so whoever sees the scope taken also finds its record
+            records.put(record.trackingId(), record);
+            String existing = trackingIdsByScope.putIfAbsent(record.idempotencyScope(), record.trackingId());
+            if (existing == null) {
+                return Optional.empty();
+            }
+            records.remove(record.trackingId(), record);
+            SendRecord known = records.get(existing);
+            if (known != null) {
+                return Optional.of(known);
+            }
+            // Record evicted before its scope entry: the scope is free again
+            if (trackingIdsByScope.replace(record.idempotencyScope(), existing, record.trackingId())) {
+                records.put(record.trackingId(), record);
+                return Optional.empty();
+            }
+            // Lost the scope to a concurrent registration: look again
+        }
+    }
+
+    @Override
+    public Optional<SendRecord> get(String trackingId) {
+        return Optional.ofNullable(records.get(trackingId));
+    }
+
+    @Override
+    public boolean compareAndSet(SendRecord expected, SendRecord updated) {
+        return records.replace(expected.trackingId(), expected, updated);
+    }
+
+    @Override
+    public void remove(SendRecord record) {
+        if (records.remove(record.trackingId(), record)) {
+            trackingIdsByScope.remove(record.idempotencyScope(), record.trackingId());
+        }
+    }
+}
@@ -0,0 +1,308 @@
+package com.aruba.zeta.pecintegration.send;
+
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.UnknownHostException;
+import java.net.http.HttpConnectTimeoutException;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+
+import org.apache.hc.client5.http.ConnectTimeoutException;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import com.aruba.zeta.pec.grpc.SendMessageRequest;
+import com.aruba.zeta.pec.grpc.SendMessageResponse;
+import com.aruba.zeta.pecintegration.client.resilience.ArubaCallDispatcher;
+import com.aruba.zeta.pecintegration.client.resilience.ArubaCallPriority;
+import com.aruba.zeta.pecintegration.client.rest.ArubaPecApiClient;
+import com.aruba.zeta.pecintegration.config.PecSendProperties;
+import com.aruba.zeta.pecintegration.dto.ArubaSendMessageRequest;
+import com.aruba.zeta.pecintegration.dto.ArubaSendMessageResponse;
+import com.aruba.zeta.pecintegration.dto.PecSendCommand;
+import com.aruba.zeta.pecintegration.mapper.PecProtoMapper;
+import com.aruba.zeta.pecintegration.service.PecAccessTokenService;
+
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * SendMessage, synchronous or through the RabbitMQ send pipeline.
+ *
+ * <p>An async send is validated, registered in the {@link SendRecordStore}, durably
+ * enqueued on {@code pec.send.queue} (the broker confirms the write before the call
+ * returns) and answered {@code MESSAGE_STATUS_ACCEPTED} with a tracking id;
+ * {@link PecSendWorker} performs it later. Sends carrying an idempotency key are tracked
+ * the same way in both modes, so a resubmission is answered from the original record.
+ *
+ * <p>A certified email must never go out twice, so a send is only retried when it
+ * provably never reached Aruba (rejected locally, connection refused, 429). When the
+ * request may have reached Aruba and the outcome is unknown (timeouts, 5xx), the send is
+ * failed instead; the idempotency key is also forwarded to Aruba as
+ * {@code Idempotency-Key}.
+ */
+@Slf4j
+@Service
+public class PecSendService {
+
+    private static final int MAX_IDEMPOTENCY_KEY_LENGTH = 200;
+
+    private final ArubaPecApiClient arubaPecApiClient;
+    private final ArubaCallDispatcher arubaCallDispatcher;
+    private final PecAccessTokenService pecAccessTokenService;
+    private final SendRecordStore store;
+    private final RabbitTemplate rabbitTemplate;
+    private final PecSendProperties props;
+    private final DeliveryStatusTracker deliveryStatusTracker;
+
+    private final MeterRegistry meterRegistry;
+    private final Counter duplicates;
+
+    public PecSendService(
+            ArubaPecApiClient arubaPecApiClient,
+            ArubaCallDispatcher arubaCallDispatcher,
+            PecAccessTokenService pecAccessTokenService,
+            SendRecordStore store,
+            RabbitTemplate rabbitTemplate,
+            PecSendProperties props,
+            DeliveryStatusTracker deliveryStatusTracker,
+            MeterRegistry meterRegistry) {
+        this.arubaPecApiClient = arubaPecApiClient;
+        this.arubaCallDispatcher = arubaCallDispatcher;
+        this.pecAccessTokenService = pecAccessTokenService;
+        this.store = store;
+        this.rabbitTemplate = rabbitTemplate;
+        this.props = props;
+        this.deliveryStatusTracker = deliveryStatusTracker;
+        this.meterRegistry = meterRegistry;
+        this.duplicates = Counter.builder("pec.send.duplicates")
+                .description("SendMessage resubmissions answered from the original submission")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Handles a SendMessage request.
+     *
+     * @throws StatusRuntimeException {@code INVALID_ARGUMENT} for a malformed request,
+     *                                {@code UNAVAILABLE} if an async send could not be enqueued
+     */
+    public SendMessageResponse send(SendMessageRequest request) {
+        validate(request);
+        boolean async = request.getAsync() && props.isAsyncEnabled();
+        if (request.getAsync() && !async) {
+            log.debug("Async send requested by user {} but the send pipeline is disabled: sending synchronously",
+                    request.getUserId());
+        }
+        countRequest(async ? "async" : "sync");
+
+        if (!async && request.getIdempotencyKey().isEmpty()) {
+            String accessToken = pecAccessTokenService.getValidAccessToken(request.getUserId());
+            ArubaSendMessageResponse result = arubaCallDispatcher.call(ArubaCallPriority.INTERACTIVE, request.getUserId(),
+                    () -> arubaPecApiClient.sendMessage(accessToken, request.getMailboxId(), toArubaRequest(request)));
+            SendMessageResponse response = PecProtoMapper.toProto(result);
+            deliveryStatusTracker.track(request.getUserId(), request.getMailboxId(), response.getMessageId(), "",
+                    response.getCurrentStatus());
+            return response;
+        }
+
+        String trackingId = UUID.randomUUID().toString();
+        String idempotencyKey = request.getIdempotencyKey().isEmpty() ? trackingId : request.getIdempotencyKey();
+        SendRecord record = SendRecord.queued(
+                trackingId, request.getUserId(), request.getMailboxId(), idempotencyKey, Instant.now());
+        Optional<SendRecord> existing = store.registerIfAbsent(record);
+        if (existing.isPresent()) {
+            duplicates.increment();
+            log.info("Send with idempotency key {} of user {} already submitted as {}: not sending again",
+                    idempotencyKey, request.getUserId(), existing.get().trackingId());
+            return PecProtoMapper.toProto(existing.get());
+        }
+        return async ? enqueue(record, request) : sendNow(record, request);
+    }
+
+    private SendMessageResponse enqueue(SendRecord record, SendMessageRequest request) {
+        try {
+            // Fails fast for users without a linked account instead of failing in the worker
+            pecAccessTokenService.getValidAccessToken(request.getUserId());
+            PecSendCommand command = toCommand(record, request);
+            rabbitTemplate.invoke(operations -> {
+                operations.convertAndSend("", props.getQueue(), command);
+                operations.waitForConfirmsOrDie(props.getConfirmTimeoutMs());
+                return null;
+            });
+        } catch (AmqpException e) {
+            store.remove(record);
+            log.warn("Failed to enqueue send {} for user {}: {}", record.trackingId(), record.userId(), e.getMessage());
+            throw Status.UNAVAILABLE.withDescription("Send queue unavailable, retry later").withCause(e).asRuntimeException();
+        } catch (RuntimeException e) {
+            store.remove(record);
+            throw e;
+        }
+        log.debug("Queued send {} for user {} from mailbox {}", record.trackingId(), record.userId(), record.mailboxId());
+        return PecProtoMapper.toProto(record);
+    }
+
+    private SendMessageResponse sendNow(SendRecord record, SendMessageRequest request) {
+        Attempt result = perform(record, toArubaRequest(request), ArubaCallPriority.INTERACTIVE);
+        if (result.state() == SendState.QUEUED) {
+            // Never reached Aruba: forget the key so the caller's retry is a fresh send
+            store.remove(result.record());
+        }
+        if (result.state() != SendState.SENT && result.failure() != null) {
+            throw result.failure();
+        }
+        return PecProtoMapper.toProto(result.record());
+    }
+
+    /**
+     * Performs a queued send once.
+     *
+     * @return the outcome; its record is {@link SendState#SENT}, {@link SendState#FAILED},
+     *         or {@link SendState#QUEUED} again when the send never reached Aruba and may be
+     *         retried
+     */
+    Attempt perform(SendRecord queued, ArubaSendMessageRequest request, ArubaCallPriority priority) {
+        SendRecord sending = queued.sending(Instant.now());
+        if (!store.compareAndSet(queued, sending)) {
+            SendRecord current = store.get(queued.trackingId()).orElse(queued);
+            return new Attempt(current, null);
+        }
+        try {
+            String accessToken = pecAccessTokenService.getValidAccessToken(queued.userId());
+            ArubaSendMessageResponse response = arubaCallDispatcher.call(priority, queued.userId(),
+                    () -> arubaPecApiClient.sendMessage(accessToken, queued.mailboxId(), request, queued.idempotencyKey()));
+            SendRecord sent = sending.sent(nullSafe(response.getMessageId()), nullSafe(response.getStatus()), Instant.now());
+            store.compareAndSet(sending, sent);
+            countOutcome("sent");
+            deliveryStatusTracker.track(sent.userId(), sent.mailboxId(), sent.messageId(), sent.trackingId(),
+                    PecProtoMapper.toProto(sent).getCurrentStatus());
+            return new Attempt(sent, null);
+        } catch (RuntimeException e) {
+            SendRecord next;
+            if (neverReachedAruba(e)) {
+                next = sending.requeued(e.getMessage(), Instant.now());
+                countOutcome("not_sent");
+            } else if (e instanceof HttpClientErrorException) {
+                next = sending.failed("Rejected by Aruba: " + e.getMessage(), Instant.now());
+                countOutcome("rejected");
+            } else {
+                next = sending.failed("Outcome unknown, not retried: " + e.getMessage(), Instant.now());
+                countOutcome("unknown");
+            }
+            store.compareAndSet(sending, next);
+            log.warn("Send {} for user {} attempt {} {}: {}", queued.trackingId(), queued.userId(), sending.attempts(),
+                    next.state() == SendState.QUEUED ? "did not reach Aruba" : "failed", e.getMessage());
+            return new Attempt(next, e);
+        }
+    }
+
+    /** Outcome of {@link #perform}, with the error when the send did not succeed. */
+    record Attempt(SendRecord record, RuntimeException failure) {
+        SendState state() {
+            return record.state();
+        }
+    }
+
+    // Helpers
+
+    /** Whether the request certainly was not processed by Aruba, so sending again is safe. */
+    static boolean neverReachedAruba(RuntimeException e) {
+        if (e instanceof StatusRuntimeException) {
+            // Local guards: dispatcher, rate limiter, circuit breaker, token lookup
+            return true;
+        }
+        if (e instanceof HttpClientErrorException clientError) {
+            int status = clientError.getStatusCode().value();
+            return status == 408 || status == 429;
+        }
+        if (e instanceof ResourceAccessException) {
+            for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+                if (cause instanceof ConnectException || cause instanceof NoRouteToHostException
+                        || cause instanceof UnknownHostException || cause instanceof ConnectTimeoutException
+                        || cause instanceof HttpConnectTimeoutException) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks the fields every send needs.
+     *
+     * @throws StatusRuntimeException {@code INVALID_ARGUMENT} naming the first problem found
+     */
+    public static void validate(SendMessageRequest request) {
+        String problem = null;
+        if (request.getUserId().isBlank()) {
+            problem = "user_id is required";
+        } else if (request.getMailboxId().isBlank()) {
+            problem = "mailbox_id is required";
+        } else if (request.getRecipientAddress().isBlank() || request.getRecipientAddress().indexOf('@') < 1) {
+            problem = "recipient_address must be a PEC address";
+        } else if (request.getIdempotencyKey().length() > MAX_IDEMPOTENCY_KEY_LENGTH) {
+            problem = "idempotency_key must be at most " + MAX_IDEMPOTENCY_KEY_LENGTH + " characters";
+        }
+        if (problem != null) {
+            throw Status.INVALID_ARGUMENT.withDescription(problem).asRuntimeException();
+        }
+    }
+
+    static ArubaSendMessageRequest toArubaRequest(SendMessageRequest request) {
+        return ArubaSendMessageRequest.builder()
+                .to(request.getRecipientAddress())
+                .subject(request.getSubject())
+                .body(request.getBodyText())
+                .documentIds(request.getDocumentIdsList())
+                .build();
+    }
+
+    static ArubaSendMessageRequest toArubaRequest(PecSendCommand command) {
+        return ArubaSendMessageRequest.builder()
+                .to(command.getRecipientAddress())
+                .subject(command.getSubject())
+                .body(command.getBodyText())
+                .documentIds(command.getDocumentIds())
+                .build();
+    }
+
+    private static PecSendCommand toCommand(SendRecord record, SendMessageRequest request) {
+        return PecSendCommand.builder()
+                .trackingId(record.trackingId())
+                .idempotencyKey(record.idempotencyKey())
+                .userId(record.userId())
+                .mailboxId(record.mailboxId())
+                .recipientAddress(request.getRecipientAddress())
+                .subject(request.getSubject())
+                .bodyText(request.getBodyText())
+                .documentIds(request.getDocumentIdsList())
+                .acceptedAt(record.acceptedAt().toString())
+                .build();
+    }
+
+    private void countRequest(String mode) {
+        Counter.builder("pec.send.requests")
+                .description("SendMessage requests by mode")
+                .tag("mode", mode)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private void countOutcome(String outcome) {
+        Counter.builder("pec.send.attempts")
+                .description("Aruba send attempts by outcome")
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private static String nullSafe(String value) {
+        return value != null ? value : "";
+    }
+}
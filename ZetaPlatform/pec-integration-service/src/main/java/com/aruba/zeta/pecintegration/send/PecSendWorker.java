@@ -0,0 +1,160 @@
+package com.aruba.zeta.pecintegration.send;
+
+import java.time.Instant;
+import java.util.Optional;
+
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.support.AmqpHeaders;
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.stereotype.Component;
+
+import com.aruba.zeta.pecintegration.client.resilience.ArubaCallPriority;
+import com.aruba.zeta.pecintegration.config.PecSendProperties;
+import com.aruba.zeta.pecintegration.dto.PecSendCommand;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Consumes {@code pec.send.queue} and performs queued sends, at most
+ * {@code pec.send.consumers} at a time with {@code pec.send.prefetch} unacknowledged
+ * deliveries each. A delivery is acknowledged once its send reached a final state or its
+ * retry was confirmed by the broker; if the retry cannot be published, the delivery is
+ * rejected back onto the queue instead.
+ *
+ * <p>Redelivered and duplicate messages are checked against the {@link SendRecordStore}
+ * first: sends already sent or failed are dropped, and a redelivered send found in flight
+ * belonged to a worker that died mid-request, so its outcome is unknown and it is failed
+ * rather than sent a second time. The same holds for a redelivered send the store has never
+ * seen: with the in-memory store that is what a replica restarted mid-request finds, so it is
+ * registered as failed instead of being sent. Sends that never reached Aruba are re-published to a
+ * {@link SendRetryBackoff} delay queue, which returns them to the send queue after an
+ * exponential backoff, up to {@code pec.send.max-attempts}; the worker never sleeps on a
+ * delivery.
+ */
+@Slf4j
+@Component
+public class PecSendWorker {
+
+    private final PecSendService sendService;
+    private final SendRecordStore store;
+    private final RabbitTemplate rabbitTemplate;
+    private final PecSendProperties props;
+
+    private final Counter redeliveriesDropped;
+    private final Counter retries;
+    private final Counter exhausted;
+
+    public PecSendWorker(
+            PecSendService sendService,
+            SendRecordStore store,
+            RabbitTemplate rabbitTemplate,
+            PecSendProperties props,
+            MeterRegistry meterRegistry) {
+        this.sendService = sendService;
+        this.store = store;
+        this.rabbitTemplate = rabbitTemplate;
+        this.props = props;
+        this.redeliveriesDropped = Counter.builder("pec.send.redeliveries.dropped")
+                .description("Queued sends dropped because they were already sent, failed or in flight")
+                .register(meterRegistry);
+        this.retries = Counter.builder("pec.send.retries")
+                .description("Queued sends re-published after never reaching Aruba")
+                .register(meterRegistry);
+        this.exhausted = Counter.builder("pec.send.exhausted")
+                .description("Queued sends failed after running out of attempts")
+                .register(meterRegistry);
+    }
+
+    @RabbitListener(
+            queues = "${pec.send.queue:pec.send.requests}",
+            containerFactory = "pecSendListenerContainerFactory",
+            autoStartup = "${pec.send.async-enabled:false}")
+    public void onSend(PecSendCommand command, @Header(AmqpHeaders.REDELIVERED) boolean redelivered) {
+        SendRecord record = recordOf(command, redelivered);
+        if (record == null) {
+            redeliveriesDropped.increment();
+            return;
+        }
+        switch (record.state()) {
+            case SENT, FAILED -> {
+                redeliveriesDropped.increment();
+                log.debug("Dropping delivery of send {}: already {}", record.trackingId(), record.state());
+                return;
+            }
+            case SENDING -> {
+                redeliveriesDropped.increment();
+                if (redelivered && store.compareAndSet(record, record.failed(
+                        "Outcome unknown: the worker stopped while sending, not retried", Instant.now()))) {
+                    log.warn("Send {} for user {} was interrupted mid-request: marked failed, not resent",
+                            record.trackingId(), record.userId());
+                }
+                return;
+            }
+            case QUEUED -> {
+                // Perform below
+            }
+        }
+
+        PecSendService.Attempt attempt = sendService.perform(
+                record, PecSendService.toArubaRequest(command), ArubaCallPriority.BACKGROUND);
+        if (attempt.state() != SendState.QUEUED) {
+            return;
+        }
+        SendRecord queued = attempt.record();
+        if (queued.attempts() >= props.getMaxAttempts()) {
+            store.compareAndSet(queued, queued.failed(
+                    "Gave up after " + queued.attempts() + " attempts: " + queued.error(), Instant.now()));
+            exhausted.increment();
+            log.warn("Send {} for user {} never reached Aruba in {} attempts: marked failed",
+                    queued.trackingId(), queued.userId(), queued.attempts());
+            return;
+        }
+        String retryQueue = SendRetryBackoff.queue(props, SendRetryBackoff.delayMs(props, queued.attempts()));
+        try {
+            // Confirmed like the first enqueue: this delivery is only acknowledged once the retry is on the broker
+            rabbitTemplate.invoke(operations -> {
+                operations.convertAndSend("", retryQueue, command);
+                operations.waitForConfirmsOrDie(props.getConfirmTimeoutMs());
+                return null;
+            });
+        } catch (AmqpException e) {
+            log.warn("Could not schedule retry of send {} for user {}, returning it to the queue: {}",
+                    queued.trackingId(), queued.userId(), e.getMessage());
+            throw e;
+        }
+        retries.increment();
+    }
+
+    // Helpers
+
+    /**
+     * The stored record of {@code command}, registering it if this replica has never seen
+     * it, or {@code null} if another submission owns its idempotency key. An unknown
+     * redelivered command may already have been sent before a restart, so it is registered
+     * as failed.
+     */
+    private SendRecord recordOf(PecSendCommand command, boolean redelivered) {
+        Optional<SendRecord> known = store.get(command.getTrackingId());
+        if (known.isPresent()) {
+            return known.get();
+        }
+        SendRecord record = SendRecord.queued(command.getTrackingId(), command.getUserId(), command.getMailboxId(),
+                command.getIdempotencyKey(), Instant.parse(command.getAcceptedAt()));
+        if (redelivered) {
+            record = record.failed("Outcome unknown: redelivered after its record was lost, not retried", Instant.now());
+        }
+        Optional<SendRecord> owner = store.registerIfAbsent(record);
+        if (owner.isEmpty()) {
+            if (redelivered) {
+                log.warn("Send {} for user {} was redelivered with no record of its outcome: marked failed, not resent",
+                        record.trackingId(), record.userId());
+            }
+            return record;
+        }
+        return owner.get().trackingId().equals(command.getTrackingId()) ? owner.get() : null;
+    }
+}
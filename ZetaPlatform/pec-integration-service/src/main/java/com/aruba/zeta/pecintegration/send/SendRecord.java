@@ -0,0 +1,65 @@
+package com.aruba.zeta.pecintegration.send;
+
+import java.time.Instant;
+
+/**
+ * Immutable state of one PEC send submission, keyed by its tracking id.
+ *
+ * @param trackingId     identifier returned to the caller
+ * @param userId         Zeta user who submitted the send
+ * @param mailboxId      sender mailbox
+ * @param idempotencyKey caller's key, or the tracking id when the caller gave none
+ * @param state          lifecycle state
+ * @param attempts       send attempts started so far
+ * @param messageId      Aruba message id once sent, otherwise empty
+ * @param arubaStatus    status reported by Aruba once sent, otherwise empty
+ * @param error          reason of a failure, otherwise empty
+ * @param acceptedAt     when the submission was accepted
+ * @param updatedAt      when the state last changed
+ */
+public record SendRecord(
+        String trackingId,
+        String userId,
+        String mailboxId,
+        String idempotencyKey,
+        SendState state,
+        int attempts,
+        String messageId,
+        String arubaStatus,
+        String error,
+        Instant acceptedAt,
+        Instant updatedAt) {
+
+    public static SendRecord queued(String trackingId, String userId, String mailboxId, String idempotencyKey, Instant now) {
+        return new SendRecord(trackingId, userId, mailboxId, idempotencyKey, SendState.QUEUED, 0, "", "", "", now, now);
+    }
+
+    /** Scope of an idempotency key: keys are unique per user. */
+    public static String idempotencyScope(String userId, String idempotencyKey) {
+        return userId + '\u0000' + idempotencyKey;
+    }
+
+    public String idempotencyScope() {
+        return idempotencyScope(userId, idempotencyKey);
+    }
+
+    public SendRecord sending(Instant now) {
+        return new SendRecord(trackingId, userId, mailboxId, idempotencyKey, SendState.SENDING, attempts + 1,
+                messageId, arubaStatus, error, acceptedAt, now);
+    }
+
+    public SendRecord requeued(String reason, Instant now) {
+        return new SendRecord(trackingId, userId, mailboxId, idempotencyKey, SendState.QUEUED, attempts,
+                messageId, arubaStatus, reason, acceptedAt, now);
+    }
+
+    public SendRecord sent(String messageId, String arubaStatus, Instant now) {
+        return new SendRecord(trackingId, userId, mailboxId, idempotencyKey, SendState.SENT, attempts,
+                messageId, arubaStatus, "", acceptedAt, now);
+    }
+
+    public SendRecord failed(String reason, Instant now) {
+        return new SendRecord(trackingId, userId, mailboxId, idempotencyKey, SendState.FAILED, attempts,
+                messageId, arubaStatus, reason, acceptedAt, now);
+    }
+}
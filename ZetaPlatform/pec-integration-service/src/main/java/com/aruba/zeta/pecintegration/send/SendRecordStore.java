@@ -0,0 +1,31 @@
+package com.aruba.zeta.pecintegration.send;
+
+import java.util.Optional;
+
+/**
+ * Store of send submissions backing idempotency and tracking. Implementations must be
+ * thread-safe, and must be shared by all replicas for the no-double-send guarantee to
+ * hold across pods; records are immutable and replaced with compare-and-set.
+ */
+public interface SendRecordStore {
+
+    /**
+     * Registers {@code record} unless its idempotency scope is already taken.
+     *
+     * @return the record already registered for the scope, or empty if {@code record} was stored
+     */
+    Optional<SendRecord> registerIfAbsent(SendRecord record);
+
+    Optional<SendRecord> get(String trackingId);
+
+    /**
+     * Replaces {@code expected} with {@code updated} (same tracking id) if the stored
+     * record is still {@code expected}.
+     *
+     * @return whether the record was replaced
+     */
+    boolean compareAndSet(SendRecord expected, SendRecord updated);
+
+    /** Forgets {@code record} and frees its idempotency scope, if it is still the stored record. */
+    void remove(SendRecord record);
+}
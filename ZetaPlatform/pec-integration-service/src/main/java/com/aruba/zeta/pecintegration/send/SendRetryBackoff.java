@@ -0,0 +1,38 @@
+package com.aruba.zeta.pecintegration.send;
+
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import com.aruba.zeta.pecintegration.config.PecSendProperties;
+
+/**
+ * Retry delays of queued sends that never reached Aruba, and the delay queues that hold
+ * them. A send retried after {@code d} milliseconds waits in
+ * {@code <pec.send.queue>.retry.<d>}, whose message TTL dead-letters it back onto the send
+ * queue. Every message in a delay queue has the same TTL, so none is held up behind a
+ * message due later.
+ */
+public final class SendRetryBackoff {
+
+    private SendRetryBackoff() {
+    }
+
+    /** Delay before the retry following attempt number {@code attempts}: exponential, capped. */
+    public static long delayMs(PecSendProperties props, int attempts) {
+        long delay = props.getRetryBaseDelayMs() << Math.min(Math.max(attempts - 1, 0), 20);
+        return Math.min(delay, props.getMaxRetryDelayMs());
+    }
+
+    /** Every delay a send can be retried after, one delay queue each. */
+    public static SortedSet<Long> delaysMs(PecSendProperties props) {
+        SortedSet<Long> delays = new TreeSet<>();
+        for (int attempts = 1; attempts < props.getMaxAttempts(); attempts++) {
+            delays.add(delayMs(props, attempts));
+        }
+        return delays;
+    }
+
+    public static String queue(PecSendProperties props, long delayMs) {
+        return props.getQueue() + ".retry." + delayMs;
+    }
+}
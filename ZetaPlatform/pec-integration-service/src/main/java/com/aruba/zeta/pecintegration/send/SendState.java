@@ -0,0 +1,20 @@
+package com.aruba.zeta.pecintegration.send;
+
+/**
+ * Lifecycle of a submitted PEC send.
+ */
+public enum SendState {
+
+    /** Accepted and waiting for a worker (or for a retry after a send that never reached Aruba). */
+    QUEUED,
+    /** A worker is posting it to Aruba. */
+    SENDING,
+    /** Aruba accepted it; the Aruba message id is known. */
+    SENT,
+    /** Given up: rejected by Aruba, out of attempts, or outcome unknown. Never sent again. */
+    FAILED;
+
+    public boolean isFinal() {
+        return this == SENT || this == FAILED;
+    }
+}
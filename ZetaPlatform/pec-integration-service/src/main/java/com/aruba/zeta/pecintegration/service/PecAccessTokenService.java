@@ -0,0 +1,253 @@
+package com.aruba.zeta.pecintegration.service;
+
+import java.time.Instant;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
+
+import com.aruba.zeta.integrtoken.grpc.IntegrationServiceType;
+import com.aruba.zeta.pecintegration.cache.PecTokenCache;
+import com.aruba.zeta.pecintegration.client.IntegrationTokenClient;
+import com.aruba.zeta.pecintegration.client.rest.ArubaPecOAuth2Client;
+import com.aruba.zeta.pecintegration.dto.ArubaTokenResponse;
+import com.aruba.zeta.pecintegration.dto.ServiceTokenDto;
+import com.aruba.zeta.pecintegration.grpc.CallerContexts;
+import com.aruba.zeta.pecintegration.messaging.PecTokenInvalidationBus;
+
+import io.grpc.Context;
+import io.grpc.StatusRuntimeException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Resolves valid Aruba PEC access tokens for platform users.
+ *
+ * <p>Tokens are served from {@link PecTokenCache} when possible. Expired tokens are
+ * refreshed at most once per (user, service type) at a time: concurrent callers that
+ * find the same token expired wait on the in-flight refresh instead of issuing their own.
+ */
+@Slf4j
+@Service
+public class PecAccessTokenService {
+
+    private static final IntegrationServiceType SERVICE_TYPE = IntegrationServiceType.SERVICE_TYPE_PEC;
+
+    private final IntegrationTokenClient integrationTokenClient;
+    private final ArubaPecOAuth2Client arubaPecOAuth2Client;
+    private final PecTokenCache pecTokenCache;
+    private final PecTokenInvalidationBus tokenInvalidationBus;
+
+    private final ConcurrentMap<RefreshKey, CompletableFuture<String>> inFlightRefreshes = new ConcurrentHashMap<>();
+
+    private final Counter refreshedCounter;
+    private final Counter coalescedCounter;
+    private final Counter rotationRecoveredCounter;
+    private final Counter lookupSkippedCounter;
+    private final Counter refreshSkippedCounter;
+
+    public PecAccessTokenService(
+            IntegrationTokenClient integrationTokenClient,
+            ArubaPecOAuth2Client arubaPecOAuth2Client,
+            PecTokenCache pecTokenCache,
+            PecTokenInvalidationBus tokenInvalidationBus,
+            MeterRegistry meterRegistry) {
+        this.integrationTokenClient = integrationTokenClient;
+        this.arubaPecOAuth2Client = arubaPecOAuth2Client;
+        this.pecTokenCache = pecTokenCache;
+        this.tokenInvalidationBus = tokenInvalidationBus;
+        this.refreshedCounter = refreshCounter(meterRegistry, "refreshed");
+        this.coalescedCounter = refreshCounter(meterRegistry, "coalesced");
+        this.rotationRecoveredCounter = refreshCounter(meterRegistry, "rotation_recovered");
+        this.lookupSkippedCounter = skippedCounter(meterRegistry, "token_lookup");
+        this.refreshSkippedCounter = skippedCounter(meterRegistry, "token_refresh");
+    }
+
+    /**
+     * Retrieves a valid access token for the user, refreshing it automatically if expired.
+     * Served from {@link PecTokenCache} when possible; user-auth-service is only queried on a miss.
+     *
+     * <p>Bounded by the current gRPC call: no lookup or refresh is started once its caller
+     * is gone, the user-auth-service call inherits its deadline, and waiting on another
+     * caller's refresh stops when it is cancelled (the refresh itself runs to completion).
+     *
+     * @param userId the platform user UUID
+     * @return a valid plaintext access token
+     * @throws RuntimeException if the account is not linked or refresh fails
+     * @throws StatusRuntimeException {@code CANCELLED}/{@code DEADLINE_EXCEEDED} if the caller went away
+     */
+    public String getValidAccessToken(String userId) {
+        log.debug("Resolving valid PEC access token for user {}", userId);
+
+        Optional<ServiceTokenDto> cached = pecTokenCache.get(userId);
+        if (cached.isPresent()) {
+            return cached.get().getAccessToken();
+        }
+
+        checkCallerWaiting(lookupSkippedCounter);
+        ServiceTokenDto stored = loadStoredToken(userId);
+
+        if (PecTokenCache.isExpired(stored.getExpiresAt())) {
+            log.info("PEC access token expired for user {}; refreshing", userId);
+            checkCallerWaiting(refreshSkippedCounter);
+            return refreshCoalesced(userId, stored.getRefreshToken());
+        }
+
+        pecTokenCache.put(userId, stored);
+        return stored.getAccessToken();
+    }
+
+    /**
+     * Persists a freshly issued token pair via user-auth-service, writes it through to the
+     * cache and tells the other pods to drop their copy of the previous one.
+     *
+     * @param userId        the platform user UUID
+     * @param tokenResponse token pair returned by the Aruba OAuth2 endpoint
+     */
+    public void persistTokens(String userId, ArubaTokenResponse tokenResponse) {
+        long expiresAt = Instant.now().getEpochSecond() + tokenResponse.getExpiresIn();
+        integrationTokenClient.saveServiceToken(
+                userId,
+                tokenResponse.getAccessToken(),
+                tokenResponse.getRefreshToken(),
+                expiresAt);
+
+        // Write-through so the next request does not round-trip to user-auth-service
+        ServiceTokenDto token = new ServiceTokenDto();
+        token.setFound(true);
+        token.setAccessToken(tokenResponse.getAccessToken());
+        token.setRefreshToken(tokenResponse.getRefreshToken());
+        token.setExpiresAt(expiresAt);
+        pecTokenCache.put(userId, token);
+        tokenInvalidationBus.publish(userId, SERVICE_TYPE, expiresAt);
+    }
+
+    // Refresh coalescing
+
+    /**
+     * Runs a single refresh per (user, service type); concurrent callers share its outcome.
+     */
+    private String refreshCoalesced(String userId, String refreshToken) {
+        RefreshKey key = new RefreshKey(userId, SERVICE_TYPE);
+        CompletableFuture<String> ours = new CompletableFuture<>();
+        CompletableFuture<String> inFlight = inFlightRefreshes.putIfAbsent(key, ours);
+
+        if (inFlight != null) {
+            log.debug("Joining in-flight PEC token refresh for user {}", userId);
+            coalescedCounter.increment();
+            return await(inFlight);
+        }
+
+        try {
+            // A refresh may have completed between our stale read and winning the slot
+            String token = pecTokenCache.get(userId)
+                    .map(ServiceTokenDto::getAccessToken)
+                    .orElseGet(() -> refreshAndPersist(userId, refreshToken));
+            ours.complete(token);
+            return token;
+        } catch (RuntimeException e) {
+            ours.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlightRefreshes.remove(key, ours);
+        }
+    }
+
+    private String refreshAndPersist(String userId, String refreshToken) {
+        ArubaTokenResponse refreshed;
+        try {
+            refreshed = arubaPecOAuth2Client.refreshAccessToken(refreshToken);
+        } catch (HttpClientErrorException e) {
+            return recoverFromRotation(userId, refreshToken, e);
+        }
+        persistTokens(userId, refreshed);
+        refreshedCounter.increment();
+        log.info("PEC access token refreshed and stored for user {}", userId);
+        return refreshed.getAccessToken();
+    }
+
+    /**
+     * Handles a rejected refresh token. Aruba rotates refresh tokens, so a rejection usually
+     * means another pod already refreshed and stored a new pair: re-read it and either use the
+     * new access token or retry once with the rotated refresh token.
+     */
+    private String recoverFromRotation(String userId, String usedRefreshToken, HttpClientErrorException cause) {
+        ServiceTokenDto stored = loadStoredToken(userId);
+        if (Objects.equals(stored.getRefreshToken(), usedRefreshToken)) {
+            throw cause;
+        }
+
+        rotationRecoveredCounter.increment();
+        if (!PecTokenCache.isExpired(stored.getExpiresAt())) {
+            log.info("PEC token for user {} was rotated by a concurrent refresh; reusing it", userId);
+            pecTokenCache.put(userId, stored);
+            return stored.getAccessToken();
+        }
+
+        log.info("PEC refresh token for user {} was rotated; retrying with the stored one", userId);
+        ArubaTokenResponse refreshed = arubaPecOAuth2Client.refreshAccessToken(stored.getRefreshToken());
+        persistTokens(userId, refreshed);
+        refreshedCounter.increment();
+        return refreshed.getAccessToken();
+    }
+
+    // Helpers
+
+    private ServiceTokenDto loadStoredToken(String userId) {
+        ServiceTokenDto stored = integrationTokenClient.getServiceToken(userId);
+        if (!stored.isFound()) {
+            throw new RuntimeException(
+                    "No PEC token found for user " + userId + ". Account not linked.");
+        }
+        return stored;
+    }
+
+    private static void checkCallerWaiting(Counter skippedCounter) {
+        Context context = Context.current();
+        if (context.isCancelled()) {
+            skippedCounter.increment();
+            throw CallerContexts.cancelled(context);
+        }
+    }
+
+    /** Waits for another caller's refresh, giving up (but leaving it running) if our caller goes away. */
+    private static String await(CompletableFuture<String> refresh) {
+        Context context = Context.current();
+        CompletableFuture<String> abandoned = new CompletableFuture<>();
+        Context.CancellationListener listener = cancelled ->
+                abandoned.completeExceptionally(CallerContexts.cancelled(cancelled));
+        context.addListener(listener, Runnable::run);
+        try {
+            return refresh.applyToEither(abandoned, token -> token).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        } finally {
+            context.removeListener(listener);
+        }
+    }
+
+    private static Counter refreshCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("pec.token.refreshes")
+                .description("PEC access token refresh attempts by outcome")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private static Counter skippedCounter(MeterRegistry meterRegistry, String stage) {
+        return Counter.builder("pec.cancellation.skipped")
+                .description("Work not started because the gRPC caller had already cancelled or timed out")
+                .tag("stage", stage)
+                .register(meterRegistry);
+    }
+
+    private record RefreshKey(String userId, IntegrationServiceType serviceType) {}
+}
@@ -0,0 +1,170 @@
+package com.aruba.zeta.pecintegration.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
+
+import com.aruba.zeta.pec.grpc.AttachmentChunk;
+import com.aruba.zeta.pec.grpc.DownloadAttachmentRequest;
+import com.aruba.zeta.pecintegration.client.resilience.ArubaCallDispatcher;
+import com.aruba.zeta.pecintegration.client.resilience.ArubaCallPriority;
+import com.aruba.zeta.pecintegration.client.resilience.ArubaStreamingGuard.BodyAbortedException;
+import com.aruba.zeta.pecintegration.client.rest.ArubaPecApiClient;
+import com.aruba.zeta.pecintegration.config.PecAttachmentProperties;
+import com.aruba.zeta.pecintegration.grpc.FlowControlledStream;
+import com.google.protobuf.UnsafeByteOperations;
+
+import io.grpc.Context;
+import io.grpc.Status;
+import io.grpc.stub.StreamObserver;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Streams an attachment from Aruba to a gRPC client in {@code pec.attachments.chunk-size-bytes}
+ * chunks.
+ *
+ * <p>The Aruba response body is read straight into a fresh buffer per chunk, which is
+ * wrapped into the chunk's {@code ByteString} without copying, and the next chunk is only
+ * read once the transport is ready for it. A download therefore holds about one chunk in
+ * heap whatever the attachment size, and a slow client slows down the read from Aruba
+ * instead of piling up memory.
+ *
+ * <p>A download holds a {@code BULK} dispatch slot only until Aruba answered with the
+ * headers: the body is paced by the client, and streaming it must not starve interactive
+ * calls. Transfers in progress are bounded by the ATTACHMENTS bulkhead instead, whose
+ * permit is held for the whole body.
+ */
+@Slf4j
+@Service
+public class PecAttachmentService {
+
+    private final ArubaPecApiClient arubaPecApiClient;
+    private final ArubaCallDispatcher arubaCallDispatcher;
+    private final PecAccessTokenService pecAccessTokenService;
+    private final PecAttachmentProperties props;
+    private final AsyncTaskExecutor taskExecutor;
+
+    private final Counter bytesSent;
+
+    public PecAttachmentService(
+            ArubaPecApiClient arubaPecApiClient,
+            ArubaCallDispatcher arubaCallDispatcher,
+            PecAccessTokenService pecAccessTokenService,
+            PecAttachmentProperties props,
+            @Qualifier("applicationTaskExecutor") AsyncTaskExecutor taskExecutor,
+            MeterRegistry meterRegistry) {
+        this.arubaPecApiClient = arubaPecApiClient;
+        this.arubaCallDispatcher = arubaCallDispatcher;
+        this.pecAccessTokenService = pecAccessTokenService;
+        this.props = props;
+        this.taskExecutor = taskExecutor;
+        this.bytesSent = Counter.builder("pec.attachments.bytes")
+                .description("Attachment bytes streamed to clients")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Starts the download. Must be called from the gRPC handler thread; the transfer runs
+     * on the application task executor, under the call's {@link Context}, so the Aruba read
+     * is aborted when the client goes away.
+     *
+     * @param request          attachment to download
+     * @param responseObserver server-streaming response observer
+     */
+    public void download(DownloadAttachmentRequest request, StreamObserver<AttachmentChunk> responseObserver) {
+        if (request.getUserId().isBlank() || request.getMailboxId().isBlank()
+                || request.getMessageId().isBlank() || request.getDocumentId().isBlank()) {
+            responseObserver.onError(Status.INVALID_ARGUMENT
+                    .withDescription("user_id, mailbox_id, message_id and document_id are required")
+                    .asRuntimeException());
+            return;
+        }
+        FlowControlledStream<AttachmentChunk> stream = new FlowControlledStream<>(responseObserver);
+        taskExecutor.execute(Context.current().wrap(() -> transfer(request, stream)));
+    }
+
+    private void transfer(DownloadAttachmentRequest request, FlowControlledStream<AttachmentChunk> stream) {
+        String userId = request.getUserId();
+        String documentId = request.getDocumentId();
+        try {
+            String accessToken = pecAccessTokenService.getValidAccessToken(userId);
+            long sent;
+            try (ArubaCallDispatcher.Slot slot = arubaCallDispatcher.acquire(ArubaCallPriority.BULK, userId)) {
+                sent = arubaPecApiClient.downloadAttachment(accessToken, request.getMailboxId(),
+                        request.getMessageId(), documentId, (contentType, contentLength, body) -> {
+                            slot.release();
+                            return streamBody(stream, contentType, contentLength, body);
+                        });
+            }
+            if (sent < 0) {
+                log.info("DownloadAttachment {} cancelled by client", documentId);
+                return;
+            }
+            log.debug("DownloadAttachment {} completed: {} bytes", documentId, sent);
+            stream.complete();
+        } catch (HttpClientErrorException.NotFound e) {
+            stream.fail(Status.NOT_FOUND.withDescription("Attachment " + documentId + " not found").asRuntimeException());
+        } catch (Exception e) {
+            if (stream.isCancelled()) {
+                log.info("DownloadAttachment {} cancelled by client", documentId);
+                return;
+            }
+            log.error("Failed to download attachment {} for user {}: {}", documentId, userId, e.getMessage());
+            stream.fail(e);
+        }
+    }
+
+    /**
+     * Emits the body chunk by chunk as the transport becomes ready.
+     *
+     * @return bytes sent, or {@code -1} if the client cancelled
+     */
+    private long streamBody(FlowControlledStream<AttachmentChunk> stream, MediaType contentType, long contentLength,
+                            InputStream body) throws IOException {
+        int chunkSize = props.getChunkSizeBytes();
+        long offset = 0;
+        try {
+            while (true) {
+                byte[] buffer = new byte[chunkSize];
+                int read = body.readNBytes(buffer, 0, chunkSize);
+                if (read == 0 && offset > 0) {
+                    return offset;
+                }
+                AttachmentChunk.Builder chunk = AttachmentChunk.newBuilder()
+                        // The buffer is never touched again, so it can back the ByteString directly
+                        .setData(UnsafeByteOperations.unsafeWrap(buffer, 0, read))
+                        .setOffset(offset);
+                if (offset == 0) {
+                    chunk.setContentType(contentType != null ? contentType.toString() : "")
+                            .setTotalSize(contentLength);
+                }
+                if (!stream.send(chunk.build())) {
+                    return -1;
+                }
+                offset += read;
+                bytesSent.increment(read);
+                if (read < chunkSize) {
+                    return offset;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Attachment download interrupted");
+        } catch (IOException e) {
+            if (stream.isCancelled()) {
+                // The read was aborted because the client went away, not because Aruba failed
+                throw new BodyAbortedException("Client cancelled the download: " + e.getMessage());
+            }
+            throw e;
+        }
+    }
+}
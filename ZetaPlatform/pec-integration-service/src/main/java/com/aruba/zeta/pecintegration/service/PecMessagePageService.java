@@ -0,0 +1,167 @@
+package com.aruba.zeta.pecintegration.service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.stereotype.Service;
+
+import com.aruba.zeta.pec.grpc.GetMessagesRequest;
+import com.aruba.zeta.pec.grpc.GetMessagesResponse;
+import com.aruba.zeta.pec.grpc.PecMessage;
+import com.aruba.zeta.pecintegration.cache.MessagePageCache;
+import com.aruba.zeta.pecintegration.cache.MessagePageKey;
+import com.aruba.zeta.pecintegration.client.resilience.ArubaCallDispatcher;
+import com.aruba.zeta.pecintegration.client.resilience.ArubaCallPriority;
+import com.aruba.zeta.pecintegration.client.rest.ArubaPecApiClient;
+import com.aruba.zeta.pecintegration.config.PecMessagesProperties;
+import com.aruba.zeta.pecintegration.dto.DecodedMessagePage;
+import com.aruba.zeta.pecintegration.mapper.PecMessageProjection;
+import com.aruba.zeta.pecintegration.mapper.PecProtoMapper;
+import com.aruba.zeta.pecintegration.sync.MailboxKey;
+import com.aruba.zeta.pecintegration.sync.MailboxSyncEngine;
+
+import io.grpc.Status;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Serves paginated GetMessages requests, passing {@code page_size} (clamped to
+ * {@code pec.messages.max-page-size}) and {@code page_token} through to Aruba, or answering
+ * from {@link MailboxSyncEngine}'s local store in sync mode.
+ *
+ * <p>When prefetching is enabled, page N+1 is loaded in the background as soon as page N
+ * is served, so clients scrolling through a mailbox find the next page already warm in
+ * {@link MessagePageCache}.
+ *
+ * <p>A {@code read_mask} limits the message fields built, whether decoded from Aruba or
+ * sliced from the sync store; prefetched pages keep the mask of the page that triggered them.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PecMessagePageService {
+
+    private final ArubaPecApiClient arubaPecApiClient;
+    private final ArubaCallDispatcher arubaCallDispatcher;
+    private final PecAccessTokenService pecAccessTokenService;
+    private final MessagePageCache messagePageCache;
+    private final MailboxSyncEngine mailboxSyncEngine;
+    private final PecMessagesProperties messagesProperties;
+
+    /**
+     * Returns the requested page of messages, from the prefetch cache when warm.
+     *
+     * @param request the GetMessages request
+     * @return the page, with {@code next_page_token} set when more pages exist
+     */
+    public GetMessagesResponse getMessages(GetMessagesRequest request) {
+        MessagePageKey key = new MessagePageKey(
+                request.getUserId(),
+                request.getMailboxId(),
+                request.hasStartDate() ? PecProtoMapper.toInstant(request.getStartDate()) : null,
+                request.hasEndDate() ? PecProtoMapper.toInstant(request.getEndDate()) : null,
+                parsePageToken(request.getPageToken()),
+                request.getPageSize() > 0 ? Math.min(request.getPageSize(), messagesProperties.getMaxPageSize()) : null,
+                parseReadMask(request));
+
+        if (mailboxSyncEngine.isEnabled()) {
+            Optional<GetMessagesResponse> synced = listFromSyncStore(request, key);
+            if (synced.isPresent()) {
+                return synced.get();
+            }
+        }
+
+        Optional<GetMessagesResponse> prefetched = messagePageCache.get(key);
+        if (prefetched.isPresent()) {
+            log.debug("Serving prefetched page {} of mailbox {}", key.page(), key.mailboxId());
+            schedulePrefetch(key, prefetched.get());
+            return prefetched.get();
+        }
+
+        GetMessagesResponse response = fetchPage(key, ArubaCallPriority.INTERACTIVE);
+        schedulePrefetch(key, response);
+        return response;
+    }
+
+    /**
+     * Answers from the local sync store when it covers the requested range within the
+     * request's freshness bound; pages are sliced locally, newest first.
+     */
+    private Optional<GetMessagesResponse> listFromSyncStore(GetMessagesRequest request, MessagePageKey key) {
+        Duration maxStaleness = request.hasMaxStaleness()
+                ? Duration.ofSeconds(request.getMaxStaleness().getSeconds(), request.getMaxStaleness().getNanos())
+                : mailboxSyncEngine.defaultMaxStaleness();
+        Optional<List<PecMessage>> messages = mailboxSyncEngine.listMessages(
+                new MailboxKey(key.userId(), key.mailboxId()), key.startDate(), key.endDate(), maxStaleness);
+        if (messages.isEmpty()) {
+            return Optional.empty();
+        }
+
+        List<PecMessage> all = messages.get();
+        int pageSize = key.pageSize() != null ? key.pageSize() : mailboxSyncEngine.defaultPageSize();
+        int from = (int) Math.min((long) key.page() * pageSize, all.size());
+        int to = Math.min(from + pageSize, all.size());
+        log.debug("Serving page {} of mailbox {} from sync store", key.page(), key.mailboxId());
+        List<PecMessage> page = all.subList(from, to);
+        if (!key.projection().isAll()) {
+            page = page.stream().map(key.projection()::apply).toList();
+        }
+        return Optional.of(GetMessagesResponse.newBuilder()
+                .addAllMessages(page)
+                .setNextPageToken(to < all.size() ? String.valueOf(key.page() + 1) : "")
+                .build());
+    }
+
+    private GetMessagesResponse fetchPage(MessagePageKey key, ArubaCallPriority priority) {
+        log.debug("Proxying message request for mailbox {} page {}", key.mailboxId(), key.page());
+        String accessToken = pecAccessTokenService.getValidAccessToken(key.userId());
+        DecodedMessagePage messagePage = arubaCallDispatcher.call(priority, key.userId(),
+                () -> arubaPecApiClient.getMessagePage(
+                        accessToken, key.mailboxId(), key.startDate(), key.endDate(), key.page(), key.pageSize(),
+                        key.projection()));
+
+        String nextPageToken = (messagePage.getPage() + 1 < messagePage.getTotalPages())
+                ? String.valueOf(messagePage.getPage() + 1) : "";
+        return GetMessagesResponse.newBuilder()
+                .addAllMessages(messagePage.getMessages())
+                .setNextPageToken(nextPageToken)
+                .build();
+    }
+
+    private void schedulePrefetch(MessagePageKey key, GetMessagesResponse served) {
+        if (!messagePageCache.isEnabled() || served.getNextPageToken().isEmpty()) {
+            return;
+        }
+        MessagePageKey next = key.nextPage();
+        messagePageCache.prefetch(next, () -> fetchPage(next, ArubaCallPriority.BACKGROUND));
+    }
+
+    private static PecMessageProjection parseReadMask(GetMessagesRequest request) {
+        if (!request.hasReadMask()) {
+            return PecMessageProjection.ALL;
+        }
+        try {
+            return PecMessageProjection.of(request.getReadMask());
+        } catch (IllegalArgumentException e) {
+            throw Status.INVALID_ARGUMENT.withDescription(e.getMessage()).asRuntimeException();
+        }
+    }
+
+    private static int parsePageToken(String pageToken) {
+        if (pageToken.isEmpty()) {
+            return 0;
+        }
+        try {
+            int page = Integer.parseInt(pageToken);
+            if (page < 0) {
+                throw new NumberFormatException("negative page index");
+            }
+            return page;
+        } catch (NumberFormatException e) {
+            throw Status.INVALID_ARGUMENT
+                    .withDescription("Invalid page_token: " + pageToken)
+                    .asRuntimeException();
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.aruba.zeta.pecintegration.service;
+
+import java.time.Instant;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import com.aruba.zeta.pec.grpc.PecMessage;
+import com.aruba.zeta.pec.grpc.StreamMessagesRequest;
+import com.aruba.zeta.pecintegration.client.resilience.ArubaCallDispatcher;
+import com.aruba.zeta.pecintegration.client.resilience.ArubaCallPriority;
+import com.aruba.zeta.pecintegration.client.rest.ArubaPecApiClient;
+import com.aruba.zeta.pecintegration.dto.DecodedMessagePage;
+import com.aruba.zeta.pecintegration.grpc.FlowControlledStream;
+import com.aruba.zeta.pecintegration.mapper.PecProtoMapper;
+
+import io.grpc.Context;
+import io.grpc.stub.StreamObserver;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Walks every Aruba page of a mailbox and streams the messages to a gRPC client.
+ *
+ * <p>Only one Aruba page is held in memory at a time and each message is emitted as soon
+ * as the transport is ready, so memory stays flat regardless of mailbox size and clients
+ * receive the first results after a single Aruba round-trip.
+ */
+@Slf4j
+@Service
+public class PecMessageStreamService {
+
+    private final ArubaPecApiClient arubaPecApiClient;
+    private final ArubaCallDispatcher arubaCallDispatcher;
+    private final PecAccessTokenService pecAccessTokenService;
+    private final AsyncTaskExecutor taskExecutor;
+
+    public PecMessageStreamService(
+            ArubaPecApiClient arubaPecApiClient,
+            ArubaCallDispatcher arubaCallDispatcher,
+            PecAccessTokenService pecAccessTokenService,
+            @Qualifier("applicationTaskExecutor") AsyncTaskExecutor taskExecutor) {
+        this.arubaPecApiClient = arubaPecApiClient;
+        this.arubaCallDispatcher = arubaCallDispatcher;
+        this.pecAccessTokenService = pecAccessTokenService;
+        this.taskExecutor = taskExecutor;
+    }
+
+    /**
+     * Starts streaming the mailbox to the given observer. Must be called from the gRPC
+     * handler thread; the page walk itself runs on the application task executor, under
+     * the call's {@link Context} so that its Aruba reads honour the caller's deadline and
+     * cancellation.
+     *
+     * @param request          mailbox, date range and page size to walk
+     * @param responseObserver server-streaming response observer
+     */
+    public void streamMessages(StreamMessagesRequest request, StreamObserver<PecMessage> responseObserver) {
+        FlowControlledStream<PecMessage> stream = new FlowControlledStream<>(responseObserver);
+        taskExecutor.execute(Context.current().wrap(() -> walkPages(request, stream)));
+    }
+
+    private void walkPages(StreamMessagesRequest request, FlowControlledStream<PecMessage> stream) {
+        String userId = request.getUserId();
+        String mailboxId = request.getMailboxId();
+        Instant startDate = request.hasStartDate() ? PecProtoMapper.toInstant(request.getStartDate()) : null;
+        Instant endDate = request.hasEndDate() ? PecProtoMapper.toInstant(request.getEndDate()) : null;
+        Integer pageSize = request.getPageSize() > 0 ? request.getPageSize() : null;
+
+        int page = 0;
+        long emitted = 0;
+        try {
+            int totalPages;
+            do {
+                // Resolved per page: long scans may outlive the access token
+                String accessToken = pecAccessTokenService.getValidAccessToken(userId);
+                int pageIndex = page;
+                DecodedMessagePage messagePage = arubaCallDispatcher.call(ArubaCallPriority.BULK, userId,
+                        () -> arubaPecApiClient.getMessagePage(accessToken, mailboxId, startDate, endDate, pageIndex, pageSize));
+                for (PecMessage message : messagePage.getMessages()) {
+                    if (!stream.send(message)) {
+                        log.info("StreamMessages for mailbox {} cancelled by client after {} messages", mailboxId, emitted);
+                        return;
+                    }
+                    emitted++;
+                }
+                totalPages = messagePage.getTotalPages();
+                page++;
+            } while (page < totalPages && !stream.isCancelled());
+
+            log.debug("StreamMessages for mailbox {} completed: {} messages over {} pages", mailboxId, emitted, page);
+            stream.complete();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            stream.fail(e);
+        } catch (Exception e) {
+            log.error("Failed to stream messages for user {} mailbox {} at page {}: {}",
+                    userId, mailboxId, page, e.getMessage());
+            stream.fail(e);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.aruba.zeta.pecintegration.service;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import com.aruba.zeta.pec.grpc.MessageStatusUpdate;
+import com.aruba.zeta.pec.grpc.SubscribeMessageStatusRequest;
+import com.aruba.zeta.pecintegration.config.PecStatusTrackingProperties;
+import com.aruba.zeta.pecintegration.grpc.FlowControlledStream;
+import com.aruba.zeta.pecintegration.send.DeliveryStatusTracker;
+
+import io.grpc.Status;
+import io.grpc.stub.StreamObserver;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Streams delivery-status changes of a user's sent messages, so clients are pushed
+ * updates instead of polling GetMessages.
+ *
+ * <p>Changes are buffered per subscriber (up to {@code pec.status.subscriber-buffer-size})
+ * and emitted as the transport is ready; a subscriber that falls further behind is
+ * disconnected with {@code RESOURCE_EXHAUSTED} rather than slowing down the tracker. An
+ * update may be delivered twice when it races with the initial snapshot.
+ *
+ * <p>Without {@code pec.status.event-feed-enabled} a pod only sees the changes of sends it
+ * performed itself, so a subscription naming a message this pod does not track is failed
+ * with {@code FAILED_PRECONDITION} instead of waiting for updates that never come.
+ */
+@Slf4j
+@Service
+public class PecStatusSubscriptionService {
+
+    private static final long POLL_MS = 1_000;
+
+    private final DeliveryStatusTracker tracker;
+    private final PecStatusTrackingProperties props;
+    private final AsyncTaskExecutor taskExecutor;
+
+    public PecStatusSubscriptionService(
+            DeliveryStatusTracker tracker,
+            PecStatusTrackingProperties props,
+            @Qualifier("applicationTaskExecutor") AsyncTaskExecutor taskExecutor) {
+        this.tracker = tracker;
+        this.props = props;
+        this.taskExecutor = taskExecutor;
+    }
+
+    /**
+     * Starts the subscription. Must be called from the gRPC handler thread; updates are
+     * emitted from the application task executor.
+     */
+    public void subscribe(SubscribeMessageStatusRequest request, StreamObserver<MessageStatusUpdate> responseObserver) {
+        if (request.getUserId().isBlank()) {
+            responseObserver.onError(Status.INVALID_ARGUMENT.withDescription("user_id is required").asRuntimeException());
+            return;
+        }
+        Set<String> messageIds = Set.copyOf(request.getMessageIdsList());
+        if (!props.isEventFeedEnabled()) {
+            String unknown = messageIds.stream()
+                    .filter(messageId -> tracker.currentStatus(request.getUserId(), messageId).isEmpty())
+                    .findFirst()
+                    .orElse(null);
+            if (unknown != null) {
+                responseObserver.onError(Status.FAILED_PRECONDITION
+                        .withDescription("Message " + unknown + " is not tracked by this replica")
+                        .asRuntimeException());
+                return;
+            }
+        }
+        FlowControlledStream<MessageStatusUpdate> stream = new FlowControlledStream<>(responseObserver);
+        BlockingQueue<MessageStatusUpdate> buffer = new ArrayBlockingQueue<>(props.getSubscriberBufferSize());
+        AtomicBoolean overflowed = new AtomicBoolean();
+
+        Runnable unsubscribe = tracker.addListener((userId, update) -> {
+            if (userId.equals(request.getUserId())
+                    && (request.getMailboxId().isEmpty() || request.getMailboxId().equals(update.getMailboxId()))
+                    && (messageIds.isEmpty() || messageIds.contains(update.getMessageId()))
+                    && !buffer.offer(update)) {
+                overflowed.set(true);
+            }
+        });
+        taskExecutor.execute(() -> {
+            try {
+                pump(request, messageIds, stream, buffer, overflowed);
+            } finally {
+                unsubscribe.run();
+            }
+        });
+    }
+
+    private void pump(SubscribeMessageStatusRequest request, Set<String> messageIds,
+                      FlowControlledStream<MessageStatusUpdate> stream,
+                      BlockingQueue<MessageStatusUpdate> buffer, AtomicBoolean overflowed) {
+        Set<String> open = new HashSet<>(messageIds);
+        try {
+            // Taken after the listener was registered, so no change falls in between
+            for (String messageId : messageIds) {
+                MessageStatusUpdate known = tracker.currentStatus(request.getUserId(), messageId).orElse(null);
+                if (known != null && !emit(stream, known, open)) {
+                    return;
+                }
+            }
+            while (messageIds.isEmpty() || !open.isEmpty()) {
+                if (overflowed.get()) {
+                    log.info("Status subscriber of user {} fell behind: disconnecting", request.getUserId());
+                    stream.fail(Status.RESOURCE_EXHAUSTED
+                            .withDescription("Subscriber too slow: status updates were dropped, resubscribe")
+                            .asRuntimeException());
+                    return;
+                }
+                MessageStatusUpdate update = buffer.poll(POLL_MS, TimeUnit.MILLISECONDS);
+                if (stream.isCancelled()) {
+                    return;
+                }
+                if (update != null && !emit(stream, update, open)) {
+                    return;
+                }
+            }
+            stream.complete();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            stream.fail(Status.CANCELLED.withDescription("Subscription interrupted").asRuntimeException());
+        } catch (Exception e) {
+            log.error("Status subscription of user {} failed: {}", request.getUserId(), e.getMessage());
+            stream.fail(e);
+        }
+    }
+
+    private static boolean emit(FlowControlledStream<MessageStatusUpdate> stream, MessageStatusUpdate update,
+                                Set<String> open) throws InterruptedException {
+        if (!stream.send(update)) {
+            return false;
+        }
+        if (DeliveryStatusTracker.isFinal(update.getCurrentStatus())) {
+            open.remove(update.getMessageId());
+        }
+        return true;
+    }
+}
@@ -0,0 +1,277 @@
+package com.aruba.zeta.pecintegration.service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import com.aruba.zeta.pec.grpc.GetTimelineRequest;
+import com.aruba.zeta.pec.grpc.GetTimelineResponse;
+import com.aruba.zeta.pec.grpc.PecMessage;
+import com.aruba.zeta.pecintegration.cache.MailboxListCache;
+import com.aruba.zeta.pecintegration.client.resilience.ArubaCallDispatcher;
+import com.aruba.zeta.pecintegration.client.resilience.ArubaCallPriority;
+import com.aruba.zeta.pecintegration.client.rest.ArubaPecApiClient;
+import com.aruba.zeta.pecintegration.config.PecTimelineProperties;
+import com.aruba.zeta.pecintegration.dto.ArubaMailboxDto;
+import com.aruba.zeta.pecintegration.dto.DecodedMessagePage;
+import com.aruba.zeta.pecintegration.mapper.PecProtoMapper;
+import com.aruba.zeta.pecintegration.sync.MailboxKey;
+import com.aruba.zeta.pecintegration.sync.MailboxSyncEngine;
+import com.aruba.zeta.pecintegration.sync.MailboxSyncState;
+
+import io.grpc.Context;
+import io.grpc.Deadline;
+import io.grpc.Status;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Serves GetTimeline: the newest messages across several of a user's mailboxes as one
+ * list.
+ *
+ * <p>Mailboxes are read concurrently on the application task executor (virtual threads),
+ * at most {@code pec.timeline.max-concurrent-mailboxes} at a time, from the sync store when
+ * it covers the range and from Aruba otherwise. Each mailbox yields at most {@code limit}
+ * messages, newest first, and the sorted per-mailbox lists are combined with a k-way
+ * merge that stops after {@code limit} messages. All mailboxes share one
+ * {@code pec.timeline.timeout-ms} deadline, shortened to the caller's gRPC deadline when
+ * that comes first: mailboxes that miss it or fail are left out,
+ * reported in {@code incomplete_mailbox_ids}, and their reads are cancelled before the
+ * call returns.
+ */
+@Slf4j
+@Service
+public class PecTimelineService {
+
+    private final ArubaPecApiClient arubaPecApiClient;
+    private final ArubaCallDispatcher arubaCallDispatcher;
+    private final PecAccessTokenService pecAccessTokenService;
+    private final MailboxListCache mailboxListCache;
+    private final MailboxSyncEngine mailboxSyncEngine;
+    private final PecTimelineProperties props;
+    private final AsyncTaskExecutor taskExecutor;
+
+    private final MeterRegistry meterRegistry;
+
+    public PecTimelineService(
+            ArubaPecApiClient arubaPecApiClient,
+            ArubaCallDispatcher arubaCallDispatcher,
+            PecAccessTokenService pecAccessTokenService,
+            MailboxListCache mailboxListCache,
+            MailboxSyncEngine mailboxSyncEngine,
+            PecTimelineProperties props,
+            @Qualifier("applicationTaskExecutor") AsyncTaskExecutor taskExecutor,
+            MeterRegistry meterRegistry) {
+        this.arubaPecApiClient = arubaPecApiClient;
+        this.arubaCallDispatcher = arubaCallDispatcher;
+        this.pecAccessTokenService = pecAccessTokenService;
+        this.mailboxListCache = mailboxListCache;
+        this.mailboxSyncEngine = mailboxSyncEngine;
+        this.props = props;
+        this.taskExecutor = taskExecutor;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Builds the merged timeline.
+     *
+     * @param request user, mailboxes, date range and limit
+     * @return the newest messages first, with the mailboxes left out or cut short
+     * @throws io.grpc.StatusRuntimeException {@code INVALID_ARGUMENT} for a malformed request,
+     *                                        or the failure of the first mailbox when none answered
+     */
+    public GetTimelineResponse getTimeline(GetTimelineRequest request) {
+        String userId = request.getUserId();
+        if (userId.isBlank()) {
+            throw Status.INVALID_ARGUMENT.withDescription("user_id is required").asRuntimeException();
+        }
+        if (request.getLimit() < 0) {
+            throw Status.INVALID_ARGUMENT.withDescription("limit must not be negative").asRuntimeException();
+        }
+        int limit = request.getLimit() > 0 ? Math.min(request.getLimit(), props.getMaxLimit()) : props.getDefaultLimit();
+        Instant startDate = request.hasStartDate() ? PecProtoMapper.toInstant(request.getStartDate()) : null;
+        Instant endDate = request.hasEndDate() ? PecProtoMapper.toInstant(request.getEndDate()) : null;
+        List<String> mailboxIds = request.getMailboxIdsCount() > 0
+                ? request.getMailboxIdsList().stream().distinct().toList()
+                : mailboxListCache.get(userId).stream().map(ArubaMailboxDto::getId).toList();
+
+        long timeoutNanos = TimeUnit.MILLISECONDS.toNanos(props.getTimeoutMs());
+        Deadline callerDeadline = Context.current().getDeadline();
+        if (callerDeadline != null) {
+            timeoutNanos = Math.min(timeoutNanos, callerDeadline.timeRemaining(TimeUnit.NANOSECONDS));
+        }
+        long deadline = System.nanoTime() + timeoutNanos;
+        Semaphore permits = new Semaphore(props.getMaxConcurrentMailboxes());
+        Map<String, Future<MailboxSlice>> reads = new LinkedHashMap<>();
+        for (String mailboxId : mailboxIds) {
+            reads.put(mailboxId, taskExecutor.submit(Context.current().wrap(() -> {
+                permits.acquire();
+                try {
+                    return readMailbox(userId, mailboxId, startDate, endDate, limit);
+                } finally {
+                    permits.release();
+                }
+            })));
+        }
+
+        List<List<PecMessage>> sources = new ArrayList<>();
+        List<String> incomplete = new ArrayList<>();
+        RuntimeException firstFailure = null;
+        try {
+            for (Map.Entry<String, Future<MailboxSlice>> read : reads.entrySet()) {
+                String mailboxId = read.getKey();
+                try {
+                    MailboxSlice slice = read.getValue().get(Math.max(deadline - System.nanoTime(), 0), TimeUnit.NANOSECONDS);
+                    sources.add(slice.messages());
+                    if (slice.truncated()) {
+                        incomplete.add(mailboxId);
+                        countMailbox("truncated");
+                    } else {
+                        countMailbox("complete");
+                    }
+                } catch (TimeoutException e) {
+                    incomplete.add(mailboxId);
+                    countMailbox("timeout");
+                    if (firstFailure == null) {
+                        firstFailure = Status.DEADLINE_EXCEEDED
+                                .withDescription("Mailbox " + mailboxId + " did not answer in time")
+                                .asRuntimeException();
+                    }
+                } catch (ExecutionException e) {
+                    incomplete.add(mailboxId);
+                    countMailbox("error");
+                    log.warn("Timeline read of mailbox {} for user {} failed: {}",
+                            mailboxId, userId, e.getCause().getMessage());
+                    if (firstFailure == null) {
+                        firstFailure = e.getCause() instanceof RuntimeException cause
+                                ? cause
+                                : Status.UNAVAILABLE.withCause(e.getCause()).asRuntimeException();
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw Status.CANCELLED.withDescription("Timeline interrupted").withCause(e).asRuntimeException();
+        } finally {
+            // No read outlives the call
+            reads.values().forEach(read -> read.cancel(true));
+        }
+
+        if (sources.isEmpty() && firstFailure != null) {
+            throw firstFailure;
+        }
+        if (!incomplete.isEmpty()) {
+            log.info("Timeline for user {} is partial: {} of {} mailboxes incomplete",
+                    userId, incomplete.size(), mailboxIds.size());
+        }
+        return GetTimelineResponse.newBuilder()
+                .addAllMessages(mergeNewestFirst(sources, limit))
+                .addAllIncompleteMailboxIds(incomplete)
+                .build();
+    }
+
+    /**
+     * Reads up to {@code limit} of the newest messages of a mailbox in the range, from the
+     * sync store when it covers the range, otherwise by walking Aruba pages.
+     */
+    private MailboxSlice readMailbox(String userId, String mailboxId, Instant startDate, Instant endDate, int limit) {
+        if (mailboxSyncEngine.isEnabled()) {
+            Optional<List<PecMessage>> synced = mailboxSyncEngine.listMessages(
+                    new MailboxKey(userId, mailboxId), startDate, endDate, mailboxSyncEngine.defaultMaxStaleness());
+            if (synced.isPresent()) {
+                List<PecMessage> messages = synced.get();
+                return new MailboxSlice(messages.subList(0, Math.min(limit, messages.size())), false);
+            }
+        }
+
+        // Aruba does not promise an order, so the whole range is read before sorting
+        List<PecMessage> messages = new ArrayList<>();
+        int page = 0;
+        int totalPages;
+        do {
+            String accessToken = pecAccessTokenService.getValidAccessToken(userId);
+            int pageIndex = page;
+            DecodedMessagePage messagePage = arubaCallDispatcher.call(ArubaCallPriority.INTERACTIVE, userId,
+                    () -> arubaPecApiClient.getMessagePage(
+                            accessToken, mailboxId, startDate, endDate, pageIndex, props.getPageSize()));
+            messages.addAll(messagePage.getMessages());
+            totalPages = messagePage.getTotalPages();
+            page++;
+        } while (page < totalPages && page < props.getMaxPagesPerMailbox() && !Thread.currentThread().isInterrupted());
+
+        messages.sort(MailboxSyncState.NEWEST_FIRST);
+        // Aruba pages do not carry the mailbox; the sync store sets it the same way
+        List<PecMessage> newest = messages.subList(0, Math.min(limit, messages.size())).stream()
+                .map(m -> m.toBuilder().setMailboxId(mailboxId).build())
+                .toList();
+        return new MailboxSlice(newest, page < totalPages);
+    }
+
+    /**
+     * Merges lists sorted newest first into one list of at most {@code limit} messages,
+     * newest first, touching only the messages it returns.
+     */
+    static List<PecMessage> mergeNewestFirst(List<List<PecMessage>> sources, int limit) {
+        PriorityQueue<Cursor> heads = new PriorityQueue<>(Math.max(sources.size(), 1),
+                (a, b) -> MailboxSyncState.NEWEST_FIRST.compare(a.head(), b.head()));
+        for (List<PecMessage> source : sources) {
+            if (!source.isEmpty()) {
+                heads.add(new Cursor(source));
+            }
+        }
+        List<PecMessage> merged = new ArrayList<>(Math.min(limit, sources.stream().mapToInt(List::size).sum()));
+        while (merged.size() < limit && !heads.isEmpty()) {
+            Cursor cursor = heads.poll();
+            merged.add(cursor.head());
+            if (cursor.advance()) {
+                heads.add(cursor);
+            }
+        }
+        return merged;
+    }
+
+    private void countMailbox(String result) {
+        Counter.builder("pec.timeline.mailboxes")
+                .description("Mailbox reads of GetTimeline requests by outcome")
+                .tag("result", result)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    /** Newest messages of one mailbox; {@code truncated} when not all pages were read. */
+    private record MailboxSlice(List<PecMessage> messages, boolean truncated) {
+    }
+
+    /** Read position in one sorted source. */
+    private static final class Cursor {
+
+        private final List<PecMessage> source;
+        private int index;
+
+        Cursor(List<PecMessage> source) {
+            this.source = source;
+        }
+
+        PecMessage head() {
+            return source.get(index);
+        }
+
+        boolean advance() {
+            return ++index < source.size();
+        }
+    }
+}
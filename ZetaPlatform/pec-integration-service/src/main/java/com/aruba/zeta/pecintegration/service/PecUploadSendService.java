@@ -0,0 +1,445 @@
+package com.aruba.zeta.pecintegration.service;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.http.MediaType;
+import org.springframework.http.StreamingHttpOutputMessage;
+import org.springframework.stereotype.Service;
+import org.springframework.util.InvalidMimeTypeException;
+
+import com.aruba.zeta.pec.grpc.SendMessageRequest;
+import com.aruba.zeta.pec.grpc.SendMessageResponse;
+import com.aruba.zeta.pec.grpc.SendMessageUploadRequest;
+import com.aruba.zeta.pec.grpc.UploadDocumentHeader;
+import com.aruba.zeta.pecintegration.client.resilience.ArubaCallDispatcher;
+import com.aruba.zeta.pecintegration.client.resilience.ArubaCallPriority;
+import com.aruba.zeta.pecintegration.client.resilience.ArubaStreamingGuard;
+import com.aruba.zeta.pecintegration.client.rest.ArubaPecApiClient;
+import com.aruba.zeta.pecintegration.config.PecUploadProperties;
+import com.aruba.zeta.pecintegration.grpc.CallerContexts;
+import com.aruba.zeta.pecintegration.send.PecSendService;
+import com.google.protobuf.ByteString;
+
+import io.grpc.Context;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Serves SendMessageWithUploads: receives a send plus document chunks from the client,
+ * streams each document to Aruba storage as it arrives, then sends the message with the
+ * new document ids through {@link PecSendService}.
+ *
+ * <p>Inbound flow control is manual: at most {@code pec.upload.buffered-chunks} parts are
+ * requested ahead of the Aruba upload, and chunks are capped at
+ * {@code pec.upload.max-chunk-bytes}, so a stream never holds more than their product in
+ * memory, however large its documents are. Documents are uploaded one after the other on
+ * a single application task executor thread per stream.
+ *
+ * <p>An upload is paced by the client, so it holds a {@code BULK} dispatch slot only until
+ * its request starts; the UPLOADS bulkhead bounds the uploads in progress, and a user runs
+ * at most {@code pec.upload.max-concurrent-streams-per-user} streams at once. Documents
+ * already stored when a later one or the send fails are logged with their ids, since Aruba
+ * keeps them without a message referencing them.
+ */
+@Slf4j
+@Service
+public class PecUploadSendService {
+
+    private static final long POLL_MS = 1_000;
+
+    private final ArubaPecApiClient arubaPecApiClient;
+    private final ArubaCallDispatcher arubaCallDispatcher;
+    private final PecAccessTokenService pecAccessTokenService;
+    private final PecSendService pecSendService;
+    private final PecUploadProperties props;
+    private final AsyncTaskExecutor taskExecutor;
+
+    private final MeterRegistry meterRegistry;
+    private final ConcurrentMap<String, Integer> streamsPerUser = new ConcurrentHashMap<>();
+
+    private final Counter bytesUploaded;
+    private final Counter orphaned;
+    private final Timer documentDuration;
+    private final DistributionSummary documentThroughput;
+
+    public PecUploadSendService(
+            ArubaPecApiClient arubaPecApiClient,
+            ArubaCallDispatcher arubaCallDispatcher,
+            PecAccessTokenService pecAccessTokenService,
+            PecSendService pecSendService,
+            PecUploadProperties props,
+            @Qualifier("applicationTaskExecutor") AsyncTaskExecutor taskExecutor,
+            MeterRegistry meterRegistry) {
+        this.arubaPecApiClient = arubaPecApiClient;
+        this.arubaCallDispatcher = arubaCallDispatcher;
+        this.pecAccessTokenService = pecAccessTokenService;
+        this.pecSendService = pecSendService;
+        this.props = props;
+        this.taskExecutor = taskExecutor;
+        this.meterRegistry = meterRegistry;
+        this.bytesUploaded = Counter.builder("pec.upload.bytes")
+                .description("Document bytes streamed to Aruba")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        this.orphaned = Counter.builder("pec.upload.orphaned")
+                .description("Documents stored on Aruba for a send that was never attempted")
+                .register(meterRegistry);
+        this.documentDuration = Timer.builder("pec.upload.duration")
+                .description("Time to stream one document to Aruba")
+                .register(meterRegistry);
+        this.documentThroughput = DistributionSummary.builder("pec.upload.throughput")
+                .description("Upload rate of single documents")
+                .baseUnit("bytes/s")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Starts a stream. Must be called from the gRPC handler method, which returns the
+     * observer it gets back.
+     *
+     * @param responseObserver unary response observer of the call
+     * @return observer of the inbound parts
+     */
+    public StreamObserver<SendMessageUploadRequest> sendWithUploads(StreamObserver<SendMessageResponse> responseObserver) {
+        ServerCallStreamObserver<SendMessageResponse> call = (ServerCallStreamObserver<SendMessageResponse>) responseObserver;
+        call.disableAutoRequest();
+        UploadSession session = new UploadSession(call);
+        call.setOnCancelHandler(() -> session.abort(Status.CANCELLED.withDescription("Cancelled by client")));
+        call.request(1);
+        return session;
+    }
+
+    /** Counts a stream of {@code userId} in, unless the user already runs as many as allowed. */
+    private boolean startStream(String userId) {
+        AtomicBoolean started = new AtomicBoolean();
+        streamsPerUser.compute(userId, (id, running) -> {
+            int count = running != null ? running : 0;
+            if (count >= props.getMaxConcurrentStreamsPerUser()) {
+                return running;
+            }
+            started.set(true);
+            return count + 1;
+        });
+        return started.get();
+    }
+
+    private void endStream(String userId) {
+        streamsPerUser.computeIfPresent(userId, (id, running) -> running > 1 ? running - 1 : null);
+    }
+
+    private void countDocument(String result) {
+        Counter.builder("pec.upload.documents")
+                .description("Documents received for upload by outcome")
+                .tag("result", result)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    // Stream parts handed from the gRPC call to the uploading thread
+
+    private sealed interface Part permits Header, Chunk, End {
+    }
+
+    private record Header(UploadDocumentHeader header) implements Part {
+    }
+
+    private record Chunk(ByteString data) implements Part {
+    }
+
+    private enum End implements Part {
+        INSTANCE
+    }
+
+    /**
+     * One stream. {@code onNext}/{@code onCompleted}/{@code onError} run serialized on the
+     * call's executor, validate each part and queue it; {@link #upload()} consumes the
+     * queue on its own thread and requests one more part per part taken.
+     */
+    private final class UploadSession implements StreamObserver<SendMessageUploadRequest> {
+
+        private final ServerCallStreamObserver<SendMessageResponse> call;
+        private final BlockingQueue<Part> parts;
+        private final AtomicReference<Status> aborted = new AtomicReference<>();
+        private final AtomicBoolean responded = new AtomicBoolean();
+
+        // Touched by the call's executor only (message is published to the uploader by execute)
+        private SendMessageRequest message;
+        private int documents;
+        private long documentBytes;
+        private long declaredSize;
+
+        UploadSession(ServerCallStreamObserver<SendMessageResponse> call) {
+            this.call = call;
+            // Requested parts plus the end marker
+            this.parts = new ArrayBlockingQueue<>(props.getBufferedChunks() + 1);
+        }
+
+        @Override
+        public void onNext(SendMessageUploadRequest part) {
+            if (aborted.get() != null) {
+                return;
+            }
+            switch (part.getPartCase()) {
+                case MESSAGE -> {
+                    if (message != null) {
+                        fail(Status.INVALID_ARGUMENT.withDescription("message must be sent once"));
+                        return;
+                    }
+                    try {
+                        PecSendService.validate(part.getMessage());
+                    } catch (StatusRuntimeException e) {
+                        fail(e.getStatus());
+                        return;
+                    }
+                    if (Context.current().isCancelled()) {
+                        // Nothing is started for a caller that is already gone
+                        fail(CallerContexts.cancelled(Context.current()).getStatus());
+                        return;
+                    }
+                    if (!startStream(part.getMessage().getUserId())) {
+                        fail(Status.RESOURCE_EXHAUSTED.withDescription("At most "
+                                + props.getMaxConcurrentStreamsPerUser() + " concurrent upload streams per user"));
+                        return;
+                    }
+                    message = part.getMessage();
+                    // Under the call's context, so the Aruba calls of the upload see its cancellation and deadline
+                    taskExecutor.execute(Context.current().wrap(this::upload));
+                    call.request(props.getBufferedChunks());
+                }
+                case DOCUMENT -> {
+                    UploadDocumentHeader header = part.getDocument();
+                    if (message == null) {
+                        fail(Status.INVALID_ARGUMENT.withDescription("message must be the first part"));
+                    } else if (header.getFileName().isBlank()) {
+                        fail(Status.INVALID_ARGUMENT.withDescription("file_name is required"));
+                    } else if (++documents > props.getMaxDocuments()) {
+                        fail(Status.RESOURCE_EXHAUSTED.withDescription(
+                                "At most " + props.getMaxDocuments() + " documents per send"));
+                    } else if (header.getSize() > props.getMaxDocumentBytes()) {
+                        fail(tooLarge(header.getFileName()));
+                    } else {
+                        documentBytes = 0;
+                        declaredSize = header.getSize();
+                        enqueue(new Header(header));
+                    }
+                }
+                case CHUNK -> {
+                    ByteString data = part.getChunk();
+                    documentBytes += data.size();
+                    if (documents == 0) {
+                        fail(Status.INVALID_ARGUMENT.withDescription("chunk sent before any document header"));
+                    } else if (data.size() > props.getMaxChunkBytes()) {
+                        fail(Status.RESOURCE_EXHAUSTED.withDescription(
+                                "Chunks must be at most " + props.getMaxChunkBytes() + " bytes"));
+                    } else if (documentBytes > props.getMaxDocumentBytes()) {
+                        fail(tooLarge("Document " + documents));
+                    } else if (declaredSize > 0 && documentBytes > declaredSize) {
+                        fail(Status.INVALID_ARGUMENT.withDescription(
+                                "Document " + documents + " is larger than its declared size"));
+                    } else {
+                        enqueue(new Chunk(data));
+                    }
+                }
+                case PART_NOT_SET -> fail(Status.INVALID_ARGUMENT.withDescription("empty part"));
+            }
+        }
+
+        @Override
+        public void onCompleted() {
+            if (message == null) {
+                fail(Status.INVALID_ARGUMENT.withDescription("message must be the first part"));
+                return;
+            }
+            enqueue(End.INSTANCE);
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            abort(Status.fromThrowable(t));
+        }
+
+        void abort(Status status) {
+            aborted.compareAndSet(null, status);
+        }
+
+        private void enqueue(Part part) {
+            if (!parts.offer(part)) {
+                // Only possible if the client ignores flow control
+                fail(Status.RESOURCE_EXHAUSTED.withDescription("Upload buffer overflow"));
+            }
+        }
+
+        private void fail(Status status) {
+            abort(status);
+            if (responded.compareAndSet(false, true)) {
+                call.onError(status.asRuntimeException());
+            }
+        }
+
+        private Status tooLarge(String document) {
+            return Status.RESOURCE_EXHAUSTED.withDescription(
+                    document + " exceeds " + props.getMaxDocumentBytes() + " bytes");
+        }
+
+        // Uploading thread
+
+        private void upload() {
+            String userId = message.getUserId();
+            List<String> documentIds = new ArrayList<>();
+            boolean sendAttempted = false;
+            try {
+                Part part = next();
+                while (part instanceof Header header) {
+                    DocumentBody body = new DocumentBody();
+                    documentIds.add(uploadDocument(userId, header.header(), body));
+                    if (body.following == null) {
+                        throw Status.INTERNAL.withDescription("Document body was not written").asRuntimeException();
+                    }
+                    part = body.following;
+                }
+                sendAttempted = true;
+                SendMessageResponse response = pecSendService.send(message.toBuilder()
+                        .addAllDocumentIds(documentIds)
+                        .build());
+                if (responded.compareAndSet(false, true)) {
+                    call.onNext(response);
+                    call.onCompleted();
+                }
+            } catch (Exception e) {
+                reportUnsent(userId, documentIds, sendAttempted);
+                Status status = aborted.get();
+                if (status != null) {
+                    log.info("SendMessageWithUploads for user {} aborted after {} documents: {}",
+                            userId, documentIds.size(), status.getCode());
+                    return;
+                }
+                log.error("SendMessageWithUploads for user {} failed after {} documents: {}",
+                        userId, documentIds.size(), e.getMessage());
+                if (responded.compareAndSet(false, true)) {
+                    call.onError(e);
+                }
+            } finally {
+                endStream(userId);
+            }
+        }
+
+        /**
+         * Logs the documents stored for a stream that did not end in a send. Aruba has no
+         * delete for them; they are only certain orphans if the send was never attempted,
+         * since a failed send may still have gone out.
+         */
+        private void reportUnsent(String userId, List<String> documentIds, boolean sendAttempted) {
+            if (documentIds.isEmpty()) {
+                return;
+            }
+            if (sendAttempted) {
+                log.warn("Send with uploaded documents {} of user {} failed: they are unreferenced unless it went out",
+                        documentIds, userId);
+            } else {
+                orphaned.increment(documentIds.size());
+                log.warn("Uploaded documents {} of user {} are orphaned: the stream ended before the send",
+                        documentIds, userId);
+            }
+        }
+
+        private String uploadDocument(String userId, UploadDocumentHeader header, DocumentBody body) {
+            MediaType contentType;
+            try {
+                contentType = header.getContentType().isBlank() ? null : MediaType.parseMediaType(header.getContentType());
+            } catch (InvalidMimeTypeException e) {
+                throw Status.INVALID_ARGUMENT.withDescription("Invalid content_type: " + header.getContentType())
+                        .asRuntimeException();
+            }
+            long started = System.nanoTime();
+            String documentId;
+            try (ArubaCallDispatcher.Slot slot = arubaCallDispatcher.acquire(ArubaCallPriority.BULK, userId)) {
+                String accessToken = pecAccessTokenService.getValidAccessToken(userId);
+                body.onStart = slot::release;
+                documentId = arubaPecApiClient.uploadDocument(accessToken, header.getFileName(), contentType, body).getId();
+            } catch (RuntimeException e) {
+                countDocument(aborted.get() != null ? "aborted" : "failed");
+                throw e;
+            }
+            if (header.getSize() > 0 && body.written != header.getSize()) {
+                countDocument("size_mismatch");
+                throw Status.INVALID_ARGUMENT.withDescription("Document " + header.getFileName()
+                        + " has " + body.written + " bytes, declared " + header.getSize()).asRuntimeException();
+            }
+            long elapsed = System.nanoTime() - started;
+            documentDuration.record(elapsed, TimeUnit.NANOSECONDS);
+            documentThroughput.record(body.written * 1e9 / Math.max(elapsed, 1));
+            countDocument("uploaded");
+            log.debug("Uploaded document {} ({} bytes) for user {} as {}", header.getFileName(), body.written, userId, documentId);
+            return documentId;
+        }
+
+        /** Takes the next part, granting the client one more; fails the stream when it goes idle. */
+        private Part next() throws IOException {
+            long idleSince = System.nanoTime();
+            try {
+                while (true) {
+                    Status status = aborted.get();
+                    if (status != null) {
+                        throw new ArubaStreamingGuard.BodyAbortedException("Upload stream aborted: " + status.getCode());
+                    }
+                    Part part = parts.poll(POLL_MS, TimeUnit.MILLISECONDS);
+                    if (part != null) {
+                        if (part != End.INSTANCE) {
+                            call.request(1);
+                        }
+                        return part;
+                    }
+                    if (System.nanoTime() - idleSince > TimeUnit.MILLISECONDS.toNanos(props.getIdleTimeoutMs())) {
+                        fail(Status.DEADLINE_EXCEEDED.withDescription(
+                                "Nothing received for " + props.getIdleTimeoutMs() + " ms"));
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Upload interrupted");
+            }
+        }
+
+        /** Request body of one document: writes its chunks until the next part that is not one. */
+        private final class DocumentBody implements StreamingHttpOutputMessage.Body {
+
+            /** Run once the request is under way and the body is paced by the client. */
+            private Runnable onStart = () -> { };
+            private long written;
+            private Part following;
+
+            @Override
+            public void writeTo(OutputStream out) throws IOException {
+                onStart.run();
+                Part part = next();
+                while (part instanceof Chunk chunk) {
+                    chunk.data().writeTo(out);
+                    written += chunk.data().size();
+                    bytesUploaded.increment(chunk.data().size());
+                    part = next();
+                }
+                following = part;
+            }
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.aruba.zeta.pecintegration.sync;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.aruba.zeta.pec.sync.MailboxSyncSnapshot;
+import com.aruba.zeta.pecintegration.config.PecSyncProperties;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Embedded {@link MailboxSyncStore}: an in-memory map bounded by the serialized size of the
+ * retained messages ({@code pec.sync.max-bytes}), optionally persisted to
+ * {@code pec.sync.snapshot-path} as length-delimited {@link MailboxSyncSnapshot} records.
+ * The snapshot is restored on startup and rewritten periodically, when something changed,
+ * and on shutdown, so watermarks survive restarts and the first sync after a restart only
+ * fetches the delta.
+ */
+@Slf4j
+@Component
+public class InMemoryMailboxSyncStore implements MailboxSyncStore {
+
+    private final PecSyncProperties props;
+    private final Cache<MailboxKey, MailboxSyncState> states;
+    private final AtomicBoolean changed = new AtomicBoolean();
+
+    public InMemoryMailboxSyncStore(PecSyncProperties props, MeterRegistry meterRegistry) {
+        this.props = props;
+        this.states = Caffeine.newBuilder()
+                .maximumWeight(props.getMaxBytes())
+                .weigher((MailboxKey key, MailboxSyncState state) -> state.serializedSize())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, states, "pec.sync.mailboxes");
+    }
+
+    @Override
+    public Optional<MailboxSyncState> get(MailboxKey key) {
+        return Optional.ofNullable(states.getIfPresent(key));
+    }
+
+    @Override
+    public void put(MailboxSyncState state) {
+        states.put(state.key(), state);
+        changed.set(true);
+    }
+
+    // Snapshot persistence
+
+    @PostConstruct
+    void restore() {
+        Path path = snapshotPath();
+        if (path == null || !Files.exists(path)) {
+            return;
+        }
+        int restored = 0;
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(path))) {
+            MailboxSyncSnapshot snapshot;
+            while ((snapshot = MailboxSyncSnapshot.parseDelimitedFrom(in)) != null) {
+                put(MailboxSyncState.fromSnapshot(snapshot));
+                restored++;
+            }
+            // Already on disk as restored
+            changed.set(false);
+            log.info("Restored sync state for {} mailboxes from {}", restored, path);
+        } catch (IOException e) {
+            log.warn("Failed to restore sync snapshot from {} after {} mailboxes: {}", path, restored, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    @Scheduled(fixedDelayString = "${pec.sync.snapshot-interval-ms:300000}",
+            initialDelayString = "${pec.sync.snapshot-interval-ms:300000}")
+    void snapshot() {
+        Path path = snapshotPath();
+        if (!props.isEnabled() || path == null || !changed.getAndSet(false)) {
+            return;
+        }
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try {
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(tmp))) {
+                for (MailboxSyncState state : states.asMap().values()) {
+                    state.toSnapshot().writeDelimitedTo(out);
+                }
+            }
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.debug("Wrote sync snapshot of {} mailboxes to {}", states.estimatedSize(), path);
+        } catch (IOException e) {
+            changed.set(true);
+            log.warn("Failed to write sync snapshot to {}: {}", path, e.getMessage());
+        }
+    }
+
+    private Path snapshotPath() {
+        return props.getSnapshotPath().isBlank() ? null : Path.of(props.getSnapshotPath());
+    }
+}
@@ -0,0 +1,9 @@
+package com.aruba.zeta.pecintegration.sync;
+
+/**
+ * Identifies a mailbox as seen by a given platform user.
+ *
+ * @param userId    platform user UUID
+ * @param mailboxId Aruba mailbox identifier
+ */
+public record MailboxKey(String userId, String mailboxId) {}
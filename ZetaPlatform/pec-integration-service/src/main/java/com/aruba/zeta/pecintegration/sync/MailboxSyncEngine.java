@@ -0,0 +1,238 @@
+package com.aruba.zeta.pecintegration.sync;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.springframework.stereotype.Service;
+
+import com.aruba.zeta.pec.grpc.PecMessage;
+import com.aruba.zeta.pecintegration.client.resilience.ArubaCallDispatcher;
+import com.aruba.zeta.pecintegration.client.resilience.ArubaCallPriority;
+import com.aruba.zeta.pecintegration.client.rest.ArubaPecApiClient;
+import com.aruba.zeta.pecintegration.config.PecSyncProperties;
+import com.aruba.zeta.pecintegration.dto.DecodedMessagePage;
+import com.aruba.zeta.pecintegration.mapper.PecProtoMapper;
+import com.aruba.zeta.pecintegration.service.PecAccessTokenService;
+
+import io.grpc.Context;
+import io.grpc.Deadline;
+import io.grpc.Status;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Incremental per-mailbox sync against the Aruba messages endpoint.
+ *
+ * <p>Each mailbox keeps a high-water mark (newest {@code received_at} seen). A sync only
+ * asks Aruba for messages from the watermark onwards through the {@code startDate} filter
+ * and merges them into the {@link MailboxSyncStore}; listings are then answered locally as
+ * long as the data is within the caller's freshness bound. Concurrent syncs of the same
+ * mailbox are coalesced so a burst of stale reads triggers a single Aruba walk; callers
+ * joining it wait no longer than their own deadline, then proxy to Aruba instead.
+ *
+ * <p>Only new messages are picked up: status changes of already synced messages are not
+ * re-fetched by the delta.
+ */
+@Slf4j
+@Service
+public class MailboxSyncEngine {
+
+    private final ArubaPecApiClient arubaPecApiClient;
+    private final ArubaCallDispatcher arubaCallDispatcher;
+    private final PecAccessTokenService pecAccessTokenService;
+    private final MailboxSyncStore store;
+    private final PecSyncProperties props;
+
+    private final ConcurrentMap<MailboxKey, CompletableFuture<MailboxSyncState>> inFlightSyncs =
+            new ConcurrentHashMap<>();
+
+    private final Counter servedLocally;
+    private final Counter servedByProxy;
+    private final Counter fetchedMessages;
+    private final Counter coalescedSyncs;
+    private final Timer syncTimer;
+
+    public MailboxSyncEngine(
+            ArubaPecApiClient arubaPecApiClient,
+            ArubaCallDispatcher arubaCallDispatcher,
+            PecAccessTokenService pecAccessTokenService,
+            MailboxSyncStore store,
+            PecSyncProperties props,
+            MeterRegistry meterRegistry) {
+        this.arubaPecApiClient = arubaPecApiClient;
+        this.arubaCallDispatcher = arubaCallDispatcher;
+        this.pecAccessTokenService = pecAccessTokenService;
+        this.store = store;
+        this.props = props;
+        this.servedLocally = Counter.builder("pec.sync.listings")
+                .description("GetMessages listings by source in sync mode")
+                .tag("source", "local")
+                .register(meterRegistry);
+        this.servedByProxy = Counter.builder("pec.sync.listings")
+                .description("GetMessages listings by source in sync mode")
+                .tag("source", "proxy")
+                .register(meterRegistry);
+        this.fetchedMessages = Counter.builder("pec.sync.fetched.messages")
+                .description("Messages fetched from Aruba by delta syncs")
+                .register(meterRegistry);
+        this.coalescedSyncs = Counter.builder("pec.sync.coalesced")
+                .description("Delta syncs joined instead of started because one was in flight")
+                .register(meterRegistry);
+        this.syncTimer = Timer.builder("pec.sync.duration")
+                .description("Duration of a single mailbox delta sync")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return props.isEnabled();
+    }
+
+    public Duration defaultMaxStaleness() {
+        return Duration.ofMillis(props.getDefaultMaxStalenessMs());
+    }
+
+    public int defaultPageSize() {
+        return props.getDefaultPageSize();
+    }
+
+    /**
+     * Lists synced messages in {@code [startDate, endDate]}, newest first, syncing first if
+     * the local data is older than {@code maxStaleness}.
+     *
+     * @return the messages, or empty if the local store does not cover the requested range
+     *         and the caller must proxy to Aruba instead
+     */
+    public Optional<List<PecMessage>> listMessages(
+            MailboxKey key, Instant startDate, Instant endDate, Duration maxStaleness) {
+        MailboxSyncState known = store.get(key)
+                .orElseGet(() -> MailboxSyncState.initial(key, initialCoverageStart()));
+        if (!known.covers(startDate)) {
+            // No point syncing: the store could not answer this range anyway
+            servedByProxy.increment();
+            return Optional.empty();
+        }
+
+        MailboxSyncState state = known.isFresh(maxStaleness, Instant.now())
+                ? known
+                : syncIfStale(key, maxStaleness).orElse(null);
+        if (state == null || !state.covers(startDate)) {
+            servedByProxy.increment();
+            return Optional.empty();
+        }
+        servedLocally.increment();
+        return Optional.of(state.messages().stream()
+                .filter(m -> inRange(m, startDate, endDate))
+                .toList());
+    }
+
+    /**
+     * Runs a single sync per mailbox at a time; concurrent callers share its outcome.
+     *
+     * @return the synced state, or empty if this caller joined a sync that failed or did not
+     *         finish within its deadline
+     */
+    private Optional<MailboxSyncState> syncIfStale(MailboxKey key, Duration maxStaleness) {
+        CompletableFuture<MailboxSyncState> ours = new CompletableFuture<>();
+        CompletableFuture<MailboxSyncState> inFlight = inFlightSyncs.putIfAbsent(key, ours);
+        if (inFlight != null) {
+            coalescedSyncs.increment();
+            return await(key, inFlight);
+        }
+
+        try {
+            // A sync may have completed between our stale read and winning the slot
+            MailboxSyncState state = store.get(key)
+                    .filter(s -> s.isFresh(maxStaleness, Instant.now()))
+                    .orElseGet(() -> syncTimer.record(() -> doSync(key)));
+            ours.complete(state);
+            return Optional.of(state);
+        } catch (RuntimeException e) {
+            ours.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlightSyncs.remove(key, ours);
+        }
+    }
+
+    private static Optional<MailboxSyncState> await(MailboxKey key, CompletableFuture<MailboxSyncState> sync) {
+        Deadline deadline = Context.current().getDeadline();
+        try {
+            return Optional.of(deadline == null
+                    ? sync.get()
+                    : sync.get(deadline.timeRemaining(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS));
+        } catch (TimeoutException e) {
+            log.debug("Sync of mailbox {} still running at the caller's deadline", key.mailboxId());
+            return Optional.empty();
+        } catch (ExecutionException e) {
+            log.debug("Joined sync of mailbox {} failed: {}", key.mailboxId(), e.getCause().getMessage());
+            return Optional.empty();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw Status.CANCELLED.withDescription("Interrupted while waiting for a mailbox sync").asRuntimeException();
+        }
+    }
+
+    private MailboxSyncState doSync(MailboxKey key) {
+        MailboxSyncState state = store.get(key)
+                .orElseGet(() -> MailboxSyncState.initial(key, initialCoverageStart()));
+        Instant syncStartedAt = Instant.now();
+        Instant since = state.watermark() != null ? state.watermark() : state.coverageStart();
+
+        int page = 0;
+        int totalPages;
+        long fetched = 0;
+        do {
+            String accessToken = pecAccessTokenService.getValidAccessToken(key.userId());
+            int pageIndex = page;
+            DecodedMessagePage messagePage = arubaCallDispatcher.call(ArubaCallPriority.INTERACTIVE, key.userId(),
+                    () -> arubaPecApiClient.getMessagePage(
+                            accessToken, key.mailboxId(), since, null, pageIndex, props.getFetchPageSize()));
+            List<PecMessage> messages = messagePage.getMessages().stream()
+                    .map(m -> m.toBuilder().setMailboxId(key.mailboxId()).build())
+                    .toList();
+            // Merged page by page so an initial sync never holds more than one extra page
+            state = state.merge(messages, props.getMaxMessagesPerMailbox());
+            fetched += messages.size();
+            totalPages = messagePage.getTotalPages();
+            page++;
+        } while (page < totalPages);
+
+        state = state.syncedAt(syncStartedAt);
+        store.put(state);
+        fetchedMessages.increment(fetched);
+        log.debug("Synced mailbox {} for user {}: {} messages fetched since {}, watermark {}",
+                key.mailboxId(), key.userId(), fetched, since, state.watermark());
+        return state;
+    }
+
+    // Helpers
+
+    private Instant initialCoverageStart() {
+        return props.getInitialWindowDays() > 0
+                ? Instant.now().minus(props.getInitialWindowDays(), ChronoUnit.DAYS)
+                : null;
+    }
+
+    private static boolean inRange(PecMessage message, Instant startDate, Instant endDate) {
+        if (startDate == null && endDate == null) {
+            return true;
+        }
+        if (!message.hasMessageTimestamp()) {
+            return false;
+        }
+        Instant at = PecProtoMapper.toInstant(message.getMessageTimestamp());
+        return (startDate == null || !at.isBefore(startDate))
+                && (endDate == null || !at.isAfter(endDate));
+    }
+}
@@ -0,0 +1,140 @@
+package com.aruba.zeta.pecintegration.sync;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.aruba.zeta.pec.grpc.PecMessage;
+import com.aruba.zeta.pec.sync.MailboxSyncSnapshot;
+import com.aruba.zeta.pecintegration.mapper.PecProtoMapper;
+
+/**
+ * Immutable view of one synced mailbox: the retained message metadata, the high-water mark
+ * used to fetch deltas, and the time range the retained messages are known to cover.
+ *
+ * @param key                mailbox identity
+ * @param watermark          newest {@code received_at} seen, or {@code null} before the first sync
+ * @param watermarkMessageId id of the message at the watermark
+ * @param coverageStart      oldest instant for which the retained messages are complete,
+ *                           or {@code null} when they cover the full history
+ * @param lastSyncedAt       when Aruba was last queried, or {@code null} if never
+ * @param messages           retained messages, newest first
+ */
+public record MailboxSyncState(
+        MailboxKey key,
+        Instant watermark,
+        String watermarkMessageId,
+        Instant coverageStart,
+        Instant lastSyncedAt,
+        List<PecMessage> messages) {
+
+    /** Newest first; messages without a timestamp sort last, ties broken by id. */
+    public static final Comparator<PecMessage> NEWEST_FIRST = Comparator
+            .comparing((PecMessage m) -> m.hasMessageTimestamp() ? PecProtoMapper.toInstant(m.getMessageTimestamp()) : Instant.MIN)
+            .reversed()
+            .thenComparing(PecMessage::getId);
+
+    /**
+     * State of a mailbox that has never been synced.
+     *
+     * @param coverageStart lower bound of the first sync, or {@code null} for full history
+     */
+    public static MailboxSyncState initial(MailboxKey key, Instant coverageStart) {
+        return new MailboxSyncState(key, null, "", coverageStart, null, List.of());
+    }
+
+    public boolean isFresh(Duration maxStaleness, Instant now) {
+        return lastSyncedAt != null && !lastSyncedAt.plus(maxStaleness).isBefore(now);
+    }
+
+    /**
+     * Whether the retained messages are complete from {@code start} onwards.
+     *
+     * @param start requested lower bound, or {@code null} for the full history
+     */
+    public boolean covers(Instant start) {
+        if (coverageStart == null) {
+            return true;
+        }
+        return start != null && !start.isBefore(coverageStart);
+    }
+
+    /**
+     * Merges a batch of fetched messages, replacing same-id entries and dropping the
+     * oldest messages beyond {@code maxMessages}; coverage shrinks to the oldest retained
+     * message when anything is dropped.
+     */
+    public MailboxSyncState merge(Collection<PecMessage> fetched, int maxMessages) {
+        if (fetched.isEmpty()) {
+            return this;
+        }
+        Map<String, PecMessage> byId = new LinkedHashMap<>();
+        messages.forEach(m -> byId.put(m.getId(), m));
+        fetched.forEach(m -> byId.put(m.getId(), m));
+
+        List<PecMessage> merged = new ArrayList<>(byId.values());
+        merged.sort(NEWEST_FIRST);
+
+        Instant coverage = coverageStart;
+        if (merged.size() > maxMessages) {
+            merged = merged.subList(0, maxMessages);
+            PecMessage oldest = merged.get(merged.size() - 1);
+            Instant oldestAt = oldest.hasMessageTimestamp() ? PecProtoMapper.toInstant(oldest.getMessageTimestamp()) : Instant.MAX;
+            coverage = (coverage == null || oldestAt.isAfter(coverage)) ? oldestAt : coverage;
+        }
+
+        PecMessage newest = merged.get(0);
+        Instant newestAt = newest.hasMessageTimestamp() ? PecProtoMapper.toInstant(newest.getMessageTimestamp()) : null;
+        boolean advances = newestAt != null && (watermark == null || newestAt.isAfter(watermark));
+
+        return new MailboxSyncState(
+                key,
+                advances ? newestAt : watermark,
+                advances ? newest.getId() : watermarkMessageId,
+                coverage,
+                lastSyncedAt,
+                List.copyOf(merged));
+    }
+
+    /** Serialized size of the retained messages, the weight of this state in the store. */
+    public int serializedSize() {
+        long size = 0;
+        for (PecMessage message : messages) {
+            size += message.getSerializedSize();
+        }
+        return (int) Math.min(size, Integer.MAX_VALUE);
+    }
+
+    public MailboxSyncState syncedAt(Instant instant) {
+        return new MailboxSyncState(key, watermark, watermarkMessageId, coverageStart, instant, messages);
+    }
+
+    // Snapshot conversion
+
+    public MailboxSyncSnapshot toSnapshot() {
+        MailboxSyncSnapshot.Builder builder = MailboxSyncSnapshot.newBuilder()
+                .setUserId(key.userId())
+                .setMailboxId(key.mailboxId())
+                .setWatermarkMessageId(watermarkMessageId)
+                .addAllMessages(messages);
+        if (watermark != null) builder.setWatermark(PecProtoMapper.toTimestamp(watermark));
+        if (coverageStart != null) builder.setCoverageStart(PecProtoMapper.toTimestamp(coverageStart));
+        if (lastSyncedAt != null) builder.setLastSyncedAt(PecProtoMapper.toTimestamp(lastSyncedAt));
+        return builder.build();
+    }
+
+    public static MailboxSyncState fromSnapshot(MailboxSyncSnapshot snapshot) {
+        return new MailboxSyncState(
+                new MailboxKey(snapshot.getUserId(), snapshot.getMailboxId()),
+                snapshot.hasWatermark() ? PecProtoMapper.toInstant(snapshot.getWatermark()) : null,
+                snapshot.getWatermarkMessageId(),
+                snapshot.hasCoverageStart() ? PecProtoMapper.toInstant(snapshot.getCoverageStart()) : null,
+                snapshot.hasLastSyncedAt() ? PecProtoMapper.toInstant(snapshot.getLastSyncedAt()) : null,
+                List.copyOf(snapshot.getMessagesList()));
+    }
+}
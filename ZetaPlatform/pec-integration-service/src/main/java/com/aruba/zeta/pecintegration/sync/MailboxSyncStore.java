@@ -0,0 +1,14 @@
+package com.aruba.zeta.pecintegration.sync;
+
+import java.util.Optional;
+
+/**
+ * Local metadata store backing sync mode. Implementations must be thread-safe; states are
+ * immutable and replaced wholesale on every sync.
+ */
+public interface MailboxSyncStore {
+
+    Optional<MailboxSyncState> get(MailboxKey key);
+
+    void put(MailboxSyncState state);
+}
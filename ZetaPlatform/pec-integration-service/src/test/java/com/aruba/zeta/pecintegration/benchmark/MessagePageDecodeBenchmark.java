@@ -0,0 +1,120 @@
+package com.aruba.zeta.pecintegration.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.aruba.zeta.pec.grpc.PecMessage;
+import com.aruba.zeta.pecintegration.dto.ArubaMessagePage;
+import com.aruba.zeta.pecintegration.mapper.ArubaMessagePageDecoder;
+import com.aruba.zeta.pecintegration.mapper.PecProtoMapper;
+
+import tools.jackson.databind.json.JsonMapper;
+
+/**
+ * Compares the DTO decode path ({@link ArubaMessagePage} + {@link PecProtoMapper}) with the
+ * streaming {@link ArubaMessagePageDecoder} on synthetic Aruba message pages.
+ *
+ * <p>Run with the GC profiler to compare {@code gc.alloc.rate.norm} (bytes allocated per
+ * decoded page) alongside latency:
+ * <pre>
+ * ./mvnw test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.aruba.zeta.pecintegration.benchmark.MessagePageDecodeBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MessagePageDecodeBenchmark {
+
+    @Param({"50", "500"})
+    private int messagesPerPage;
+
+    @Param({"256", "4096"})
+    private int bodyLength;
+
+    private JsonMapper jsonMapper;
+    private byte[] payload;
+
+    @Setup
+    public void setUp() {
+        jsonMapper = JsonMapper.builder().build();
+        payload = jsonMapper.writeValueAsBytes(buildPage(messagesPerPage, bodyLength));
+    }
+
+    @Benchmark
+    public List<PecMessage> dtoPath() {
+        ArubaMessagePage page = jsonMapper.readValue(payload, ArubaMessagePage.class);
+        List<PecMessage> messages = new ArrayList<>(page.getMessages().size());
+        page.getMessages().forEach(m -> messages.add(PecProtoMapper.toProto(m)));
+        return messages;
+    }
+
+    @Benchmark
+    public List<PecMessage> streamingPath() {
+        return ArubaMessagePageDecoder.decode(new ByteArrayInputStream(payload)).getMessages();
+    }
+
+    // Fixture
+
+    private static Map<String, Object> buildPage(int count, int bodyLength) {
+        String body = "x".repeat(bodyLength);
+        List<Map<String, Object>> messages = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Map<String, Object> attachment = new LinkedHashMap<>();
+            attachment.put("id", "attach-" + i);
+            attachment.put("file_name", "documento-" + i + ".pdf");
+            attachment.put("content_type", "application/pdf");
+            attachment.put("size", 20_480);
+
+            Map<String, Object> message = new LinkedHashMap<>();
+            message.put("id", "msg-" + i);
+            message.put("from", "mittente" + i + "@pec.aruba.it");
+            message.put("to", "utente.test@pec.aruba.it");
+            message.put("subject", "Comunicazione di test " + i);
+            message.put("body", body);
+            message.put("status", "DELIVERED");
+            message.put("received_at", "2026-02-24T10:00:00Z");
+            message.put("attachments", List.of(attachment));
+            messages.add(message);
+        }
+
+        Map<String, Object> page = new LinkedHashMap<>();
+        page.put("messages", messages);
+        page.put("page", 0);
+        page.put("size", count);
+        page.put("total_elements", count);
+        page.put("total_pages", 1);
+        return page;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(MessagePageDecodeBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build())
+                .run();
+    }
+}
@@ -0,0 +1,162 @@
+package com.aruba.zeta.pecintegration.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.aruba.zeta.pecintegration.config.PecPollerProperties;
+import com.aruba.zeta.pecintegration.poller.PollScheduleStore;
+import com.aruba.zeta.pecintegration.poller.PollTicket;
+import com.aruba.zeta.pecintegration.sync.MailboxKey;
+
+/**
+ * Compares {@link PollScheduleStore} with the object-per-mailbox layout it replaced (a
+ * schedule object in a {@link ConcurrentHashMap} plus a {@link PriorityQueue}).
+ *
+ * <p>Dispatch throughput is one pop-and-reschedule of the earliest due mailbox. Retained
+ * heap per mailbox, excluding the shared id strings, is measured once per trial and printed:
+ * <pre>
+ * ./mvnw test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.aruba.zeta.pecintegration.benchmark.PollScheduleStoreBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms4g", "-Xmx4g"})
+public class PollScheduleStoreBenchmark {
+
+    @Param({"100000", "2000000"})
+    private int mailboxes;
+
+    private final PecPollerProperties props = new PecPollerProperties();
+
+    private List<MailboxKey> keys;
+    private PollScheduleStore store;
+    private ConcurrentMap<MailboxKey, ObjectSchedule> objectSchedules;
+    private PriorityQueue<ObjectSchedule> objectQueue;
+    private long clock;
+
+    @Setup
+    public void setUp() {
+        keys = new ArrayList<>(mailboxes);
+        for (int i = 0; i < mailboxes; i++) {
+            keys.add(new MailboxKey("user-" + (i / 3), "mailbox-" + i));
+        }
+        clock = props.getMaxIntervalMs();
+
+        store = retained("PollScheduleStore", this::buildStore);
+        objectSchedules = retained("object per mailbox", this::buildObjectSchedules);
+        objectQueue = new PriorityQueue<>(Comparator.comparingLong(ObjectSchedule::nextPollAt));
+        objectQueue.addAll(objectSchedules.values());
+    }
+
+    @Benchmark
+    public PollTicket storeDispatch() {
+        PollTicket ticket = store.pollDue(Long.MAX_VALUE);
+        store.recordSuccess(ticket, 0, ++clock, props);
+        return ticket;
+    }
+
+    @Benchmark
+    public ObjectSchedule objectDispatch() {
+        ObjectSchedule schedule = objectQueue.poll();
+        schedule.lastPollAt = ++clock;
+        schedule.nextPollAt = clock + props.getMaxIntervalMs();
+        objectQueue.add(schedule);
+        return schedule;
+    }
+
+    // Fixture
+
+    private PollScheduleStore buildStore() {
+        PollScheduleStore built = new PollScheduleStore(16);
+        SplittableRandom random = new SplittableRandom(42);
+        Instant watermark = Instant.now();
+        for (MailboxKey key : keys) {
+            built.add(key, watermark, random.nextLong(props.getMaxIntervalMs()));
+        }
+        return built;
+    }
+
+    private ConcurrentMap<MailboxKey, ObjectSchedule> buildObjectSchedules() {
+        ConcurrentMap<MailboxKey, ObjectSchedule> built = new ConcurrentHashMap<>();
+        SplittableRandom random = new SplittableRandom(42);
+        Instant watermark = Instant.now();
+        for (MailboxKey key : keys) {
+            built.put(key, new ObjectSchedule(key, watermark, random.nextLong(props.getMaxIntervalMs())));
+        }
+        return built;
+    }
+
+    private <T> T retained(String label, Supplier<T> builder) {
+        long before = usedHeapAfterGc();
+        T built = builder.get();
+        long after = usedHeapAfterGc();
+        System.out.printf("%n%s: %d bytes retained per mailbox (%,d mailboxes)%n",
+                label, (after - before) / mailboxes, mailboxes);
+        return built;
+    }
+
+    private static long usedHeapAfterGc() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    /** The per-mailbox object layout used before {@link PollScheduleStore}. */
+    static final class ObjectSchedule {
+        final MailboxKey key;
+        volatile long nextPollAt;
+        long lastPollAt;
+        double arrivalRate;
+        int failures;
+        Instant watermark;
+        final Set<String> watermarkMessageIds = new HashSet<>();
+
+        ObjectSchedule(MailboxKey key, Instant watermark, long nextPollAt) {
+            this.key = key;
+            this.watermark = watermark;
+            this.nextPollAt = nextPollAt;
+        }
+
+        long nextPollAt() {
+            return nextPollAt;
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(PollScheduleStoreBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+}
@@ -0,0 +1,104 @@
+package com.aruba.zeta.pecintegration.mapper;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+
+import java.io.ByteArrayInputStream;
+import java.time.Instant;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+import com.aruba.zeta.pec.grpc.AttachmentRef;
+import com.aruba.zeta.pec.grpc.MessageStatus;
+import com.aruba.zeta.pec.grpc.PecMessage;
+import com.aruba.zeta.pecintegration.dto.DecodedMessagePage;
+import com.google.protobuf.FieldMask;
+import com.google.protobuf.Timestamp;
+
+class ArubaMessagePageDecoderTest {
+
+    private static final String PAGE = """
+            {"page": 0, "size": 1, "total_elements": 1, "total_pages": 1, "messages": [
+              {"id": "m-1", "from": "a@pec.it", "to": "b@pec.it", "subject": "Fattura", "body": "...",
+               "status": "DELIVERED", "received_at": "2026-02-24T10:00:00Z",
+               "attachments": [{"id": "d-1", "file_name": "fattura.pdf", "size": 42}]}
+            ]}
+            """;
+
+    @Test
+    void decodesPaginationAndMappedFields() {
+        DecodedMessagePage page = decode(PAGE);
+
+        assertThat(page.getPage()).isZero();
+        assertThat(page.getSize()).isEqualTo(1);
+        assertThat(page.getTotalElements()).isEqualTo(1);
+        assertThat(page.getTotalPages()).isEqualTo(1);
+        assertThat(page.getMessages()).containsExactly(PecMessage.newBuilder()
+                .setId("m-1")
+                .setSenderAddress("a@pec.it")
+                .setRecipientAddress("b@pec.it")
+                .setSubject("Fattura")
+                .setStatus(MessageStatus.MESSAGE_STATUS_DELIVERED)
+                .setMessageTimestamp(Timestamp.newBuilder()
+                        .setSeconds(Instant.parse("2026-02-24T10:00:00Z").getEpochSecond()))
+                .addAttachments(AttachmentRef.newBuilder().setDocumentId("d-1").setFileName("fattura.pdf"))
+                .build());
+    }
+
+    @Test
+    void unknownPropertiesAndNullAttachmentsAreSkipped() {
+        DecodedMessagePage page = decode("""
+                {"links": {"next": null}, "messages": [{"id": "m-2", "extra": [1, {"a": 2}], "attachments": null}],
+                 "page": 3}
+                """);
+
+        assertThat(page.getPage()).isEqualTo(3);
+        assertThat(page.getMessages()).containsExactly(PecMessage.newBuilder().setId("m-2").build());
+    }
+
+    @Test
+    void payloadThatIsNotAnObjectIsRejected() {
+        assertThatIllegalStateException().isThrownBy(() -> decode("[]"));
+    }
+
+    @Test
+    void projectionLeavesUnrequestedFieldsUnset() {
+        PecMessageProjection projection = PecMessageProjection.of(
+                FieldMask.newBuilder().addPaths("subject").addPaths("status").build());
+
+        PecMessage message = decode(projection).getMessages().getFirst();
+
+        assertThat(message).isEqualTo(PecMessage.newBuilder()
+                .setId("m-1")
+                .setSubject("Fattura")
+                .setStatus(MessageStatus.MESSAGE_STATUS_DELIVERED)
+                .build());
+        assertThat(projection.apply(decode(PecMessageProjection.ALL).getMessages().getFirst())).isEqualTo(message);
+    }
+
+    @Test
+    void emptyMaskBuildsEveryField() {
+        PecMessage message = decode(PecMessageProjection.of(FieldMask.getDefaultInstance())).getMessages().getFirst();
+
+        assertThat(message.getSenderAddress()).isEqualTo("a@pec.it");
+        assertThat(message.hasMessageTimestamp()).isTrue();
+        assertThat(message.getAttachmentsList()).hasSize(1);
+    }
+
+    @Test
+    void unknownMaskPathIsRejected() {
+        assertThatIllegalArgumentException().isThrownBy(
+                () -> PecMessageProjection.of(FieldMask.newBuilder().addPaths("body").build()));
+    }
+
+    private static DecodedMessagePage decode(PecMessageProjection projection) {
+        return ArubaMessagePageDecoder.decode(
+                new ByteArrayInputStream(PAGE.getBytes(StandardCharsets.UTF_8)), projection);
+    }
+
+    private static DecodedMessagePage decode(String payload) {
+        return ArubaMessagePageDecoder.decode(new ByteArrayInputStream(payload.getBytes(StandardCharsets.UTF_8)));
+    }
+}
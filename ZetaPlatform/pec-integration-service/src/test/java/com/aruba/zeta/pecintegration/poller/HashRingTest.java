@@ -0,0 +1,55 @@
+package com.aruba.zeta.pecintegration.poller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.offset;
+
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+import com.aruba.zeta.pecintegration.sync.MailboxKey;
+
+class HashRingTest {
+
+    private static final List<MailboxKey> MAILBOXES = IntStream.range(0, 20_000)
+            .mapToObj(i -> new MailboxKey("user-" + (i / 4), "mailbox-" + i))
+            .toList();
+
+    @Test
+    void addingAPodOnlyMovesMailboxesToTheNewPod() {
+        HashRing before = ring("pod-a", "pod-b", "pod-c", "pod-d");
+        HashRing after = ring("pod-a", "pod-b", "pod-c", "pod-d", "pod-e");
+
+        long moved = MAILBOXES.stream()
+                .filter(key -> !before.ownerOf(key).equals(after.ownerOf(key)))
+                .peek(key -> assertThat(after.ownerOf(key)).isEqualTo("pod-e"))
+                .count();
+
+        // Ideal movement is 1/5 of the mailboxes
+        assertThat((double) moved / MAILBOXES.size()).isBetween(0.15, 0.25);
+    }
+
+    @Test
+    void ownedRangesMatchOwnerOfAndCoverTheRing() {
+        HashRing ring = ring("pod-a", "pod-b", "pod-c");
+
+        double totalShare = 0;
+        for (String member : ring.members()) {
+            List<TokenRange> ranges = ring.rangesOwnedBy(member);
+            for (MailboxKey key : MAILBOXES) {
+                boolean inOwnRange = ranges.stream().anyMatch(r -> r.contains(HashRing.token(key)));
+                assertThat(inOwnRange).isEqualTo(member.equals(ring.ownerOf(key)));
+            }
+            totalShare += ring.shareOf(member);
+        }
+        assertThat(totalShare).isCloseTo(1.0, offset(1e-9));
+    }
+
+    private static HashRing ring(String... members) {
+        SortedSet<String> set = new TreeSet<>(List.of(members));
+        return new HashRing(set, 128);
+    }
+}
@@ -0,0 +1,77 @@
+package com.aruba.zeta.pecintegration.poller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+import com.aruba.zeta.pecintegration.config.PecPollerProperties;
+import com.aruba.zeta.pecintegration.sync.MailboxKey;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class MailboxOwnershipTest {
+
+    private static final List<MailboxKey> MAILBOXES = IntStream.range(0, 200)
+            .mapToObj(i -> new MailboxKey("user-" + (i / 4), "mailbox-" + i))
+            .toList();
+
+    private final InMemoryPollerClusterStore store = new InMemoryPollerClusterStore();
+    private final List<Object> eventsA = new ArrayList<>();
+    private final List<Object> eventsB = new ArrayList<>();
+    private final MailboxOwnership podA = ownership("pod-a", eventsA);
+    private final MailboxOwnership podB = ownership("pod-b", eventsB);
+
+    @Test
+    void mailboxRegisteredThroughAPeerReachesItsOwnerOnTheNextRescan() {
+        podA.heartbeat();
+        podB.heartbeat();
+        podA.heartbeat();
+        eventsA.clear();
+        eventsB.clear();
+
+        // Listed through pod A only, as MailboxPoller.register does
+        store.registerMailboxes(MAILBOXES, Instant.now());
+        podA.heartbeat();
+        podB.heartbeat();
+
+        List<MailboxKey> ownedByA = rescanned(eventsA);
+        List<MailboxKey> ownedByB = rescanned(eventsB);
+        assertThat(ownedByB).isNotEmpty().allMatch(podB::owns);
+        assertThat(ownedByA).allMatch(podA::owns);
+        assertThat(ownedByA).doesNotContainAnyElementsOf(ownedByB);
+        assertThat(ownedByA.size() + ownedByB.size()).isEqualTo(MAILBOXES.size());
+    }
+
+    @Test
+    void unchangedRingIsNotRescannedBeforeTheInterval() {
+        List<Object> events = new ArrayList<>();
+        MailboxOwnership pod = ownership("pod-c", events, 60_000);
+
+        pod.heartbeat();
+        pod.heartbeat();
+
+        assertThat(events).singleElement().isInstanceOf(MailboxOwnershipChangedEvent.class);
+    }
+
+    private static List<MailboxKey> rescanned(List<Object> events) {
+        assertThat(events).singleElement().isInstanceOf(OwnedMailboxesRescannedEvent.class);
+        return ((OwnedMailboxesRescannedEvent) events.getFirst()).ownedMailboxes();
+    }
+
+    private MailboxOwnership ownership(String podId, List<Object> events) {
+        return ownership(podId, events, 0);
+    }
+
+    private MailboxOwnership ownership(String podId, List<Object> events, long rescanIntervalMs) {
+        PecPollerProperties props = new PecPollerProperties();
+        props.setEnabled(true);
+        props.setPodId(podId);
+        props.setRescanIntervalMs(rescanIntervalMs);
+        return new MailboxOwnership(store, events::add, props, new SimpleMeterRegistry());
+    }
+}
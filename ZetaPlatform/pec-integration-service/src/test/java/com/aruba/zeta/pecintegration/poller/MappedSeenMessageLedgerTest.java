@@ -0,0 +1,97 @@
+package com.aruba.zeta.pecintegration.poller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.aruba.zeta.pecintegration.config.PecDedupProperties;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class MappedSeenMessageLedgerTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void idsAreRememberedForTwoGenerations() throws IOException {
+        MappedSeenMessageLedger ledger = ledger(1_000);
+        ledger.record(0);
+        ledger.record(42);
+        ledger.rotate();
+        ledger.record(-7);
+
+        assertThat(ledger.contains(0)).isTrue();
+        assertThat(ledger.contains(42)).isTrue();
+        assertThat(ledger.contains(-7)).isTrue();
+        assertThat(ledger.contains(43)).isFalse();
+
+        ledger.rotate();
+        assertThat(ledger.contains(42)).isFalse();
+        assertThat(ledger.contains(0)).isFalse();
+        assertThat(ledger.contains(-7)).isTrue();
+        assertThat(ledgerFiles()).isEqualTo(2);
+    }
+
+    @Test
+    void reopenedLedgerKeepsBothGenerations() throws IOException {
+        Random random = new Random(11);
+        long[] older = random.longs(5_000).toArray();
+        long[] newer = random.longs(5_000).toArray();
+        MappedSeenMessageLedger ledger = ledger(10_000);
+        for (long id : older) {
+            ledger.record(id);
+        }
+        ledger.rotate();
+        for (long id : newer) {
+            ledger.record(id);
+        }
+        ledger.flush();
+
+        MappedSeenMessageLedger reopened = ledger(10_000);
+
+        assertThat(LongStream.of(older).allMatch(reopened::contains)).isTrue();
+        assertThat(LongStream.of(newer).allMatch(reopened::contains)).isTrue();
+        assertThat(random.longs(1_000).noneMatch(reopened::contains)).isTrue();
+    }
+
+    @Test
+    void fullGenerationStopsRecordingInsteadOfGrowing() throws IOException {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        MappedSeenMessageLedger ledger = ledger(8, meterRegistry);
+
+        for (long id = 1; id <= 20; id++) {
+            ledger.record(id);
+        }
+
+        // 16 slots, recording stops at three quarters
+        assertThat(ledger.contains(12)).isTrue();
+        assertThat(ledger.contains(13)).isFalse();
+        assertThat(meterRegistry.counter("pec.dedup.ledger.dropped").count()).isEqualTo(8);
+    }
+
+    private MappedSeenMessageLedger ledger(long expected) throws IOException {
+        return ledger(expected, new SimpleMeterRegistry());
+    }
+
+    private MappedSeenMessageLedger ledger(long expected, SimpleMeterRegistry meterRegistry) throws IOException {
+        PecDedupProperties props = new PecDedupProperties();
+        props.setExpectedMessagesPerGeneration(expected);
+        props.setSnapshotPath(dir.resolve("seen.bin").toString());
+        return new MappedSeenMessageLedger(props, meterRegistry);
+    }
+
+    private long ledgerFiles() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(p -> p.getFileName().toString().startsWith("seen.bin.ledger.")).count();
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.aruba.zeta.pecintegration.poller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import com.aruba.zeta.pecintegration.config.PecPollerProperties;
+import com.aruba.zeta.pecintegration.sync.MailboxKey;
+
+class PollScheduleStoreTest {
+
+    private static final Instant WATERMARK = Instant.parse("2026-01-01T00:00:00Z");
+
+    @Test
+    void pollDueHandsOutMailboxesInDueOrder() {
+        PollScheduleStore store = new PollScheduleStore(16);
+        long[] dueTimes = {50, 10, 40, 30, 20, 60};
+        for (int i = 0; i < dueTimes.length; i++) {
+            store.add(key(i), WATERMARK, dueTimes[i]);
+        }
+
+        assertThat(store.nextDueAt()).isEqualTo(10);
+        assertThat(store.pollDue(5)).isNull();
+        assertThat(drain(store, 45)).containsExactly(key(1), key(4), key(3), key(2));
+        assertThat(store.nextDueAt()).isEqualTo(50);
+        assertThat(store.size()).isEqualTo(6);
+    }
+
+    @Test
+    void addingTwiceIsRejected() {
+        PollScheduleStore store = new PollScheduleStore(16);
+
+        assertThat(store.add(key(1), WATERMARK, 10)).isTrue();
+        assertThat(store.add(key(1), WATERMARK, 20)).isFalse();
+        assertThat(store.size()).isEqualTo(1);
+        assertThat(store.nextDueAt()).isEqualTo(10);
+    }
+
+    @Test
+    void removeTakesMailboxOutOfHeapAndIndex() {
+        PollScheduleStore store = new PollScheduleStore(16);
+        for (int i = 0; i < 8; i++) {
+            store.add(key(i), WATERMARK, i * 10L);
+        }
+
+        assertThat(store.remove(key(0))).isTrue();
+        assertThat(store.remove(key(5))).isTrue();
+        assertThat(store.remove(key(5))).isFalse();
+
+        assertThat(store.contains(key(5))).isFalse();
+        assertThat(store.contains(key(6))).isTrue();
+        assertThat(drain(store, Long.MAX_VALUE - 1))
+                .containsExactly(key(1), key(2), key(3), key(4), key(6), key(7));
+    }
+
+    @Test
+    void removeIfDropsMatchingMailboxesOnly() {
+        PollScheduleStore store = new PollScheduleStore(16);
+        for (int i = 0; i < 10; i++) {
+            store.add(key(i), WATERMARK, 100 - i);
+        }
+
+        int removed = store.removeIf(key -> Integer.parseInt(key.mailboxId().substring(8)) % 2 == 0);
+
+        assertThat(removed).isEqualTo(5);
+        assertThat(store.size()).isEqualTo(5);
+        assertThat(drain(store, 1_000)).containsExactly(key(9), key(7), key(5), key(3), key(1));
+    }
+
+    @Test
+    void requeueKeepsTheDueTime() {
+        PollScheduleStore store = new PollScheduleStore(16);
+        store.add(key(1), WATERMARK, 10);
+        store.add(key(2), WATERMARK, 20);
+
+        PollTicket ticket = store.pollDue(15);
+        assertThat(store.nextDueAt()).isEqualTo(20);
+        store.requeue(ticket);
+
+        assertThat(store.nextDueAt()).isEqualTo(10);
+        assertThat(drain(store, 100)).containsExactly(key(1), key(2));
+    }
+
+    @Test
+    void ticketOfARemovedMailboxIsIgnoredOnceItsOrdinalIsReused() {
+        PollScheduleStore store = new PollScheduleStore(16);
+        PecPollerProperties props = new PecPollerProperties();
+        store.add(key(1), WATERMARK, 10);
+        PollTicket stale = store.pollDue(10);
+
+        store.remove(key(1));
+        store.add(key(2), WATERMARK, 500);
+        store.requeue(stale);
+        store.recordSuccess(stale, 3, 20, props);
+        assertThat(store.recordFailure(stale, 20, props)).isZero();
+
+        assertThat(store.nextDueAt()).isEqualTo(500);
+        assertThat(drain(store, 500)).containsExactly(key(2));
+        assertThat(store.pollDue(Long.MAX_VALUE - 1)).isNull();
+    }
+
+    @Test
+    void recordSuccessStoresTheWatermarkAndRequeues() {
+        PollScheduleStore store = new PollScheduleStore(16);
+        PecPollerProperties props = new PecPollerProperties();
+        store.add(key(1), WATERMARK, 0);
+        Instant newer = WATERMARK.plusSeconds(5);
+
+        PollTicket ticket = store.pollDue(0);
+        ticket.advanceWatermark(newer, "m-1");
+        ticket.advanceWatermark(newer, "m-2");
+        store.recordSuccess(ticket, 2, 1_000, props);
+
+        assertThat(store.nextDueAt()).isEqualTo(1_000 + props.getMaxIntervalMs());
+        PollTicket next = store.pollDue(Long.MAX_VALUE - 1);
+        assertThat(next.getWatermark()).isEqualTo(newer);
+        assertThat(next.announcedAtWatermark()).isEqualTo(2);
+        assertThat(next.isNew(newer, "m-2")).isFalse();
+        assertThat(next.isNew(newer, "m-3")).isTrue();
+    }
+
+    @Test
+    void matchesAReferenceModelThroughGrowthRehashAndDeletions() {
+        Random random = new Random(7);
+        PollScheduleStore store = new PollScheduleStore(16);
+        Map<MailboxKey, Long> model = new HashMap<>();
+        List<MailboxKey> removed = new ArrayList<>();
+
+        for (int step = 0; step < 20_000; step++) {
+            MailboxKey key = key(random.nextInt(3_000));
+            if (random.nextInt(3) > 0) {
+                long due = random.nextInt(1_000_000);
+                assertThat(store.add(key, WATERMARK, due)).isEqualTo(model.putIfAbsent(key, due) == null);
+            } else {
+                assertThat(store.remove(key)).isEqualTo(model.remove(key) != null);
+                removed.add(key);
+            }
+        }
+
+        assertThat(store.size()).isEqualTo(model.size());
+        model.keySet().forEach(key -> assertThat(store.contains(key)).isTrue());
+        removed.stream()
+                .filter(key -> !model.containsKey(key))
+                .forEach(key -> assertThat(store.contains(key)).isFalse());
+
+        List<Long> dueOrder = new ArrayList<>();
+        PollTicket ticket;
+        while ((ticket = store.pollDue(Long.MAX_VALUE - 1)) != null) {
+            dueOrder.add(model.get(ticket.getKey()));
+        }
+        assertThat(dueOrder).hasSize(model.size()).isSortedAccordingTo(Comparator.naturalOrder());
+    }
+
+    private static List<MailboxKey> drain(PollScheduleStore store, long nowMs) {
+        List<MailboxKey> keys = new ArrayList<>();
+        PollTicket ticket;
+        while ((ticket = store.pollDue(nowMs)) != null) {
+            keys.add(ticket.getKey());
+        }
+        return keys;
+    }
+
+    private static MailboxKey key(int i) {
+        return new MailboxKey("user-" + (i / 4), "mailbox-" + i);
+    }
+}
@@ -0,0 +1,79 @@
+package com.aruba.zeta.pecintegration.send;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.junit.jupiter.api.Test;
+
+class InMemorySendRecordStoreTest {
+
+    private static final Instant NOW = Instant.parse("2026-01-01T00:00:00Z");
+
+    private final ConcurrentMap<String, SendRecord> records = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, String> scopes = new ConcurrentHashMap<>();
+    private final InMemorySendRecordStore store = new InMemorySendRecordStore(records, scopes);
+
+    @Test
+    void secondRegistrationOfAScopeReturnsTheFirstRecord() {
+        SendRecord first = SendRecord.queued("t-1", "user", "mailbox", "key", NOW);
+        SendRecord second = SendRecord.queued("t-2", "user", "mailbox", "key", NOW);
+
+        assertThat(store.registerIfAbsent(first)).isEmpty();
+        assertThat(store.registerIfAbsent(second)).contains(first);
+        assertThat(store.get("t-2")).isEmpty();
+        assertThat(store.registerIfAbsent(SendRecord.queued("t-3", "other-user", "mailbox", "key", NOW))).isEmpty();
+    }
+
+    @Test
+    void scopeWhoseRecordWasEvictedIsTakenOver() {
+        SendRecord evicted = SendRecord.queued("t-1", "user", "mailbox", "key", NOW);
+        store.registerIfAbsent(evicted);
+        records.remove("t-1");
+
+        SendRecord next = SendRecord.queued("t-2", "user", "mailbox", "key", NOW);
+        assertThat(store.registerIfAbsent(next)).isEmpty();
+        assertThat(scopes).containsEntry(next.idempotencyScope(), "t-2");
+        assertThat(store.get("t-2")).contains(next);
+    }
+
+    @Test
+    void retriesWhenTheEvictedScopeIsTakenConcurrently() {
+        SendRecord winner = SendRecord.queued("t-winner", "user", "mailbox", "key", NOW);
+        SendRecord late = SendRecord.queued("t-late", "user", "mailbox", "key", NOW);
+        scopes.put(late.idempotencyScope(), "t-evicted");
+        // A concurrent registration takes the freed scope between the lookup and the replace
+        ConcurrentMap<String, String> racingScopes = new ConcurrentHashMap<>(scopes) {
+            @Override
+            public boolean replace(String key, String oldValue, String newValue) {
+                super.replace(key, oldValue, winner.trackingId());
+                records.put(winner.trackingId(), winner);
+                return false;
+            }
+        };
+        InMemorySendRecordStore racingStore = new InMemorySendRecordStore(records, racingScopes);
+
+        Optional<SendRecord> owner = racingStore.registerIfAbsent(late);
+
+        assertThat(owner).contains(winner);
+        assertThat(records).doesNotContainKey("t-late");
+    }
+
+    @Test
+    void removeFreesTheScopeOnlyForTheStoredRecord() {
+        SendRecord record = SendRecord.queued("t-1", "user", "mailbox", "key", NOW);
+        store.registerIfAbsent(record);
+        SendRecord sending = record.sending(NOW);
+        store.compareAndSet(record, sending);
+
+        store.remove(record);
+        assertThat(store.get("t-1")).contains(sending);
+
+        store.remove(sending);
+        assertThat(store.get("t-1")).isEmpty();
+        assertThat(store.registerIfAbsent(SendRecord.queued("t-2", "user", "mailbox", "key", NOW))).isEmpty();
+    }
+}
@@ -0,0 +1,40 @@
+package com.aruba.zeta.pecintegration.send;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import io.grpc.Status;
+
+class PecSendServiceTest {
+
+    @Test
+    void localRejectionsAndRefusedConnectionsNeverReachedAruba() {
+        assertThat(PecSendService.neverReachedAruba(Status.UNAVAILABLE.asRuntimeException())).isTrue();
+        assertThat(PecSendService.neverReachedAruba(
+                HttpClientErrorException.create(HttpStatus.TOO_MANY_REQUESTS, "", null, null, null))).isTrue();
+        assertThat(PecSendService.neverReachedAruba(
+                HttpClientErrorException.create(HttpStatus.REQUEST_TIMEOUT, "", null, null, null))).isTrue();
+        assertThat(PecSendService.neverReachedAruba(new ResourceAccessException("I/O error",
+                new IOException("wrapped", new ConnectException("Connection refused"))))).isTrue();
+    }
+
+    @Test
+    void requestsThatMayHaveReachedArubaAreNotRetried() {
+        assertThat(PecSendService.neverReachedAruba(
+                HttpClientErrorException.create(HttpStatus.BAD_REQUEST, "", null, null, null))).isFalse();
+        assertThat(PecSendService.neverReachedAruba(
+                HttpServerErrorException.create(HttpStatus.BAD_GATEWAY, "", null, null, null))).isFalse();
+        assertThat(PecSendService.neverReachedAruba(
+                new ResourceAccessException("Read timed out", new SocketTimeoutException("Read timed out")))).isFalse();
+        assertThat(PecSendService.neverReachedAruba(new IllegalStateException("boom"))).isFalse();
+    }
+}
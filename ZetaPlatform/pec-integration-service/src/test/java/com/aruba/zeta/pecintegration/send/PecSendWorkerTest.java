@@ -0,0 +1,137 @@
+package com.aruba.zeta.pecintegration.send;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.AmqpIOException;
+import org.springframework.amqp.rabbit.core.RabbitOperations;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+
+import com.aruba.zeta.pecintegration.client.resilience.ArubaCallPriority;
+import com.aruba.zeta.pecintegration.config.PecSendProperties;
+import com.aruba.zeta.pecintegration.dto.PecSendCommand;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class PecSendWorkerTest {
+
+    private static final Instant ACCEPTED = Instant.parse("2026-01-01T00:00:00Z");
+
+    private final PecSendService sendService = mock(PecSendService.class);
+    private final RabbitTemplate rabbitTemplate = mock(RabbitTemplate.class);
+    private final RabbitOperations operations = mock(RabbitOperations.class);
+    private final InMemorySendRecordStore store =
+            new InMemorySendRecordStore(new ConcurrentHashMap<>(), new ConcurrentHashMap<>());
+    private final PecSendProperties props = new PecSendProperties();
+    private final PecSendWorker worker =
+            new PecSendWorker(sendService, store, rabbitTemplate, props, new SimpleMeterRegistry());
+
+    PecSendWorkerTest() {
+        when(rabbitTemplate.invoke(any())).thenAnswer(invocation ->
+                invocation.<RabbitTemplate.OperationsCallback<?>>getArgument(0).doInRabbit(operations));
+    }
+
+    @Test
+    void redeliveredSendFoundInFlightIsFailedNotResent() {
+        SendRecord sending = register().sending(ACCEPTED);
+        store.compareAndSet(store.get("t-1").orElseThrow(), sending);
+
+        worker.onSend(command(), true);
+
+        assertThat(store.get("t-1").orElseThrow().state()).isEqualTo(SendState.FAILED);
+        verifyNoInteractions(sendService, rabbitTemplate);
+    }
+
+    @Test
+    void redeliveredSendUnknownToTheStoreIsFailedNotSent() {
+        worker.onSend(command(), true);
+
+        assertThat(store.get("t-1").orElseThrow().state()).isEqualTo(SendState.FAILED);
+        verifyNoInteractions(sendService, rabbitTemplate);
+    }
+
+    @Test
+    void duplicateDeliveryOfASendInFlightIsDroppedWithoutFailingIt() {
+        SendRecord sending = register().sending(ACCEPTED);
+        store.compareAndSet(store.get("t-1").orElseThrow(), sending);
+
+        worker.onSend(command(), false);
+
+        assertThat(store.get("t-1")).contains(sending);
+        verifyNoInteractions(sendService, rabbitTemplate);
+    }
+
+    @Test
+    void sendThatNeverReachedArubaGoesToItsDelayQueueWithAConfirm() {
+        SendRecord requeued = register().sending(ACCEPTED).requeued("refused", ACCEPTED);
+        when(sendService.perform(any(), any(), eq(ArubaCallPriority.BACKGROUND)))
+                .thenReturn(new PecSendService.Attempt(requeued, null));
+
+        worker.onSend(command(), false);
+
+        verify(operations).convertAndSend("", "pec.send.requests.retry.1000", command());
+        verify(operations).waitForConfirmsOrDie(props.getConfirmTimeoutMs());
+    }
+
+    @Test
+    void unconfirmedRetryFailsTheDeliverySoItIsRequeued() {
+        SendRecord requeued = register().sending(ACCEPTED).requeued("refused", ACCEPTED);
+        when(sendService.perform(any(), any(), any())).thenReturn(new PecSendService.Attempt(requeued, null));
+        doThrow(new AmqpIOException(new IOException("nack"))).when(operations).waitForConfirmsOrDie(any(Long.class));
+
+        assertThatThrownBy(() -> worker.onSend(command(), false)).isInstanceOf(AmqpIOException.class);
+    }
+
+    @Test
+    void sendOutOfAttemptsIsFailed() {
+        SendRecord last = register();
+        for (int i = 0; i < props.getMaxAttempts(); i++) {
+            last = last.sending(ACCEPTED).requeued("refused", ACCEPTED);
+        }
+        store.compareAndSet(store.get("t-1").orElseThrow(), last);
+        when(sendService.perform(any(), any(), any())).thenReturn(new PecSendService.Attempt(last, null));
+
+        worker.onSend(command(), false);
+
+        assertThat(store.get("t-1").orElseThrow().state()).isEqualTo(SendState.FAILED);
+        verifyNoInteractions(rabbitTemplate);
+    }
+
+    @Test
+    void retryDelayQueuesCoverEveryBackoffStep() {
+        assertThat(SendRetryBackoff.delaysMs(props)).containsExactly(1_000L, 2_000L, 4_000L, 8_000L);
+        props.setMaxAttempts(12);
+        assertThat(SendRetryBackoff.delaysMs(props)).last().isEqualTo(props.getMaxRetryDelayMs());
+    }
+
+    private SendRecord register() {
+        SendRecord record = SendRecord.queued("t-1", "user", "mailbox", "t-1", ACCEPTED);
+        store.registerIfAbsent(record);
+        return record;
+    }
+
+    private static PecSendCommand command() {
+        return PecSendCommand.builder()
+                .trackingId("t-1")
+                .idempotencyKey("t-1")
+                .userId("user")
+                .mailboxId("mailbox")
+                .recipientAddress("someone@pec.example")
+                .documentIds(List.of())
+                .acceptedAt(ACCEPTED.toString())
+                .build();
+    }
+}
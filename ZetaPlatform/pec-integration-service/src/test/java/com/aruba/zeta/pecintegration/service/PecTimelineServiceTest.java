@@ -0,0 +1,49 @@
+package com.aruba.zeta.pecintegration.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+import com.aruba.zeta.pec.grpc.PecMessage;
+import com.aruba.zeta.pecintegration.mapper.PecProtoMapper;
+import com.aruba.zeta.pecintegration.sync.MailboxSyncState;
+
+class PecTimelineServiceTest {
+
+    @Test
+    void mergeMatchesSortingEverythingAndTruncating() {
+        Random random = new Random(42);
+        List<List<PecMessage>> sources = IntStream.range(0, 12)
+                .mapToObj(mailbox -> IntStream.range(0, random.nextInt(40))
+                        .mapToObj(i -> message("mailbox-" + mailbox, "m-" + mailbox + "-" + i, random.nextInt(1_000)))
+                        .sorted(MailboxSyncState.NEWEST_FIRST)
+                        .toList())
+                .toList();
+        List<PecMessage> all = new ArrayList<>();
+        sources.forEach(all::addAll);
+        all.sort(MailboxSyncState.NEWEST_FIRST);
+
+        assertThat(PecTimelineService.mergeNewestFirst(sources, 50)).containsExactlyElementsOf(all.subList(0, 50));
+        assertThat(PecTimelineService.mergeNewestFirst(sources, all.size() + 10)).containsExactlyElementsOf(all);
+    }
+
+    @Test
+    void mergeOfNoSourcesIsEmpty() {
+        assertThat(PecTimelineService.mergeNewestFirst(List.of(List.of(), List.of()), 10)).isEmpty();
+        assertThat(PecTimelineService.mergeNewestFirst(List.of(), 10)).isEmpty();
+    }
+
+    private static PecMessage message(String mailboxId, String id, long epochSecond) {
+        return PecMessage.newBuilder()
+                .setId(id)
+                .setMailboxId(mailboxId)
+                .setMessageTimestamp(PecProtoMapper.toTimestamp(Instant.ofEpochSecond(epochSecond)))
+                .build();
+    }
+}